@@ -2,6 +2,8 @@ package com.example.demo2;
 
 import com.example.demo2.database.DatabaseManager;
 import com.example.demo2.service.DatabaseTestService;
+import com.example.demo2.service.EntityCache;
+import com.example.demo2.service.MaintenanceJobService;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
@@ -183,7 +185,8 @@ public class HelloController implements Initializable {
             protected String call() throws Exception {
                 String dbInfo = testService.getDatabaseInfo();
                 String performanceInfo = databaseManager.getPerformanceInfo();
-                return dbInfo + "\n\n" + performanceInfo;
+                return dbInfo + "\n\n" + performanceInfo + EntityCache.getResumen()
+                    + MaintenanceJobService.getInstance().getResumen();
             }
             
             @Override
@@ -42,6 +42,7 @@ import java.util.Properties;
  * CONFIGURACIONES DE RENDIMIENTO:
  * - Fetch Size: Número de registros por fetch (default: 1000)
  * - Batch Size: Operaciones agrupadas (default: 100)
+ * - Page Size: Filas por página en listados paginados (default: 100)
  * - Pool Size: Tamaño de pool de conexiones (5-20)
  * - High Performance Mode: Detectado por service name _high
  * - Cache de statements y optimizaciones Oracle-específicas
@@ -235,6 +236,177 @@ public class ConfigManager {
         return getPropertyAsInt("db.performance.batch_size", 100);
     }
     
+    /**
+     * Obtiene cuántas filas trae cada página de los listados paginados
+     */
+    public int getPageSize() {
+        return Math.max(1, getPropertyAsInt("db.performance.page_size", 100));
+    }
+    
+    /**
+     * Obtiene el número máximo de entidades por caché de lectura (0 = desactivada)
+     */
+    public int getEntityCacheSize() {
+        return Math.max(0, getPropertyAsInt("db.performance.entity_cache_size", 500));
+    }
+    
+    /**
+     * Obtiene los segundos que una entidad en caché se considera vigente
+     */
+    public int getEntityCacheTtl() {
+        return Math.max(1, getPropertyAsInt("db.performance.entity_cache_ttl", 600));
+    }
+    
+    /**
+     * Obtiene cada cuántos segundos se consultan los cambios hechos desde otros equipos (0 = nunca)
+     */
+    public int getChangePollInterval() {
+        return Math.max(0, getPropertyAsInt("db.performance.change_poll_interval", 5));
+    }
+    
+    /**
+     * Obtiene los segundos que se reutilizan los datos del dashboard antes de volver a leerlos
+     */
+    public int getDashboardSnapshotTtl() {
+        return Math.max(1, getPropertyAsInt("db.performance.dashboard_ttl", 30));
+    }
+    
+    /**
+     * Obtiene cada cuántos segundos se revisan las tareas de mantenimiento pendientes (0 = nunca)
+     */
+    public int getMaintenanceCheckInterval() {
+        return Math.max(0, getPropertyAsInt("db.performance.maintenance_check_interval", 300));
+    }
+    
+    /**
+     * Obtiene cada cuántos segundos se ejecuta cada tarea de mantenimiento (en uno solo de los equipos)
+     */
+    public int getMaintenanceJobInterval() {
+        return Math.max(60, getPropertyAsInt("db.performance.maintenance_interval", 3600));
+    }
+    
+    /**
+     * Obtiene cuántos préstamos se recalculan y confirman por vez al actualizar las multas
+     */
+    public int getFineChunkSize() {
+        return Math.max(1, getPropertyAsInt("db.performance.fine_chunk_size", 500));
+    }
+    
+    /**
+     * Obtiene el número mínimo de conexiones que el pool mantiene abiertas
+     */
+    public int getPoolMinSize() {
+        return Math.max(0, getPropertyAsInt("db.pool.min_size", 2));
+    }
+    
+    /**
+     * Obtiene el número máximo de conexiones físicas del pool
+     */
+    public int getPoolMaxSize() {
+        return Math.max(Math.max(1, getPoolMinSize()), getPropertyAsInt("db.pool.max_size", 10));
+    }
+    
+    /**
+     * Obtiene el tiempo máximo (en segundos) que se espera por una conexión libre del pool
+     */
+    public int getConnectionTimeout() {
+        return Math.max(0, getPropertyAsInt("db.connection.timeout", 30));
+    }
+    
+    /**
+     * Obtiene el tiempo (en segundos) tras el cual se cierran conexiones libres por encima del mínimo
+     */
+    public int getPoolIdleTimeout() {
+        return Math.max(1, getPropertyAsInt("db.pool.idle_timeout", 600));
+    }
+    
+    /**
+     * Obtiene la vida máxima (en segundos) de una conexión física antes de reemplazarla
+     */
+    public int getPoolMaxLifetime() {
+        return Math.max(1, getPropertyAsInt("db.pool.max_lifetime", 1800));
+    }
+    
+    /**
+     * Obtiene cada cuántos segundos se valida una conexión libre para mantenerla viva
+     */
+    public int getPoolKeepAliveInterval() {
+        return Math.max(1, getPropertyAsInt("db.pool.keepalive_interval", 120));
+    }
+    
+    /**
+     * Obtiene el intervalo (en segundos) entre ejecuciones del mantenimiento del pool
+     */
+    public int getPoolHousekeepingInterval() {
+        return Math.max(1, getPropertyAsInt("db.pool.housekeeping_interval", 30));
+    }
+    
+    /**
+     * Obtiene el tiempo máximo (en segundos) para validar una conexión
+     */
+    public int getPoolValidationTimeout() {
+        return Math.max(1, getPropertyAsInt("db.pool.validation_timeout", 5));
+    }
+    
+    /**
+     * Obtiene el número máximo de sentencias preparadas en caché por conexión (0 = desactivada)
+     */
+    public int getStatementCacheSize() {
+        return Math.max(0, getPropertyAsInt("db.performance.statement_cache_size", 50));
+    }
+    
+    /**
+     * Obtiene el tiempo (en segundos) a partir del cual una conexión prestada se reporta como fuga (0 = desactivado)
+     */
+    public int getLeakDetectionThreshold() {
+        return Math.max(0, getPropertyAsInt("db.pool.leak_detection_threshold", 0));
+    }
+    
+    /**
+     * Obtiene cada cuántos préstamos se captura la traza de pila (1 = todos)
+     */
+    public int getLeakStackSampleRate() {
+        return Math.max(1, getPropertyAsInt("db.pool.leak_stack_sample_rate", 1));
+    }
+    
+    /**
+     * Indica si las conexiones que superan el umbral de fuga se recuperan a la fuerza
+     */
+    public boolean isLeakReclaimEnabled() {
+        return Boolean.parseBoolean(getProperty("db.pool.leak_reclaim", "false").trim());
+    }
+    
+    /**
+     * Obtiene cuántos códigos (PRES-/LEC-) reserva cada viaje a la secuencia
+     */
+    public int getCodeBlockSize() {
+        return Math.max(1, getPropertyAsInt("db.sequence.block_size", 20));
+    }
+    
+    /**
+     * Obtiene el proveedor del pool de conexiones: "internal" (por defecto) o "ucp".
+     * La propiedad de sistema -Ddb.pool.provider tiene prioridad para comparar ambos sin editar el archivo.
+     */
+    public String getPoolProvider() {
+        String provider = System.getProperty("db.pool.provider", getProperty("db.pool.provider", "internal"));
+        return provider.trim().toLowerCase();
+    }
+    
+    /**
+     * Obtiene cuántas conexiones libres deben quedar para que UCP empiece a cosechar
+     * conexiones prestadas marcadas como cosechables (0 = desactivado)
+     */
+    public int getUcpHarvestTriggerCount() {
+        return Math.max(0, getPropertyAsInt("db.pool.ucp.harvest_trigger_count", 0));
+    }
+    
+    /**
+     * Obtiene el máximo de conexiones que UCP cosecha en cada disparo
+     */
+    public int getUcpHarvestMaxCount() {
+        return Math.max(1, getPropertyAsInt("db.pool.ucp.harvest_max_count", 1));
+    }
+    
     /**
      * Verifica si está configurado para alto rendimiento
      */
@@ -250,14 +422,18 @@ public class ConfigManager {
         return String.format(
             "🚀 CONFIGURACIÓN DE RENDIMIENTO:\n" +
             "   Service: %s\n" +
-            "   Pool inicial: %d conexiones\n" +
+            "   Proveedor del pool: %s\n" +
+            "   Pool mínimo: %d conexiones\n" +
             "   Pool máximo: %d conexiones\n" +
+            "   Timeout de conexión: %d s\n" +
             "   Fetch size: %d registros\n" +
             "   Batch size: %d operaciones\n" +
             "   Modo alto rendimiento: %s",
             getProperty("db.cloud.service_name", "N/A"),
-            getPropertyAsInt("db.pool.initial_size", 5),
-            getPropertyAsInt("db.pool.max_size", 20),
+            getPoolProvider(),
+            getPoolMinSize(),
+            getPoolMaxSize(),
+            getConnectionTimeout(),
             getFetchSize(),
             getBatchSize(),
             isHighPerformanceMode() ? "✅ ACTIVADO" : "❌ Desactivado"
@@ -5,6 +5,7 @@ import com.example.demo2.models.enums.TipoUsuario;
 import com.example.demo2.service.NotificationService;
 import com.example.demo2.service.UsuarioService;
 import com.example.demo2.utils.IconHelper;
+import com.example.demo2.utils.TextNormalizer;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -209,17 +210,13 @@ public class AdminManagementController {
     }
     
     private void aplicarFiltros() {
+        // El texto se pliega una vez por cambio, no una vez por fila
+        String filtroTexto = TextNormalizer.plegar(txtBuscar.getText() == null ? null : txtBuscar.getText().trim());
+        
         administradoresFiltrados.setPredicate(admin -> {
             // Filtro de texto
-            String filtroTexto = txtBuscar.getText();
-            if (filtroTexto != null && !filtroTexto.isEmpty()) {
-                String textoLower = filtroTexto.toLowerCase();
-                if (!admin.getNombre().toLowerCase().contains(textoLower) &&
-                    !admin.getApellido().toLowerCase().contains(textoLower) &&
-                    !admin.getEmail().toLowerCase().contains(textoLower) &&
-                    !admin.getUsername().toLowerCase().contains(textoLower)) {
-                    return false;
-                }
+            if (!TextNormalizer.coincide(admin.getClaveBusqueda(), filtroTexto)) {
+                return false;
             }
             
             // Filtro de estado
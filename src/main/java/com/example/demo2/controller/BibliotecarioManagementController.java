@@ -5,6 +5,7 @@ import com.example.demo2.models.enums.TipoUsuario;
 import com.example.demo2.service.UsuarioService;
 import com.example.demo2.service.NotificationService;
 import com.example.demo2.utils.IconHelper;
+import com.example.demo2.utils.TextNormalizer;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -239,14 +240,12 @@ public class BibliotecarioManagementController {
     }
     
     private void aplicarFiltros() {
+        // El texto se pliega una vez por cambio, no una vez por fila
+        String busqueda = TextNormalizer.plegar(txtBuscar.getText().trim());
+        
         bibliotecariosFiltrados.setPredicate(usuario -> {
             // Filtro de texto
-            String busqueda = txtBuscar.getText().toLowerCase();
-            boolean coincideTexto = busqueda.isEmpty() || 
-                usuario.getNombre().toLowerCase().contains(busqueda) ||
-                usuario.getApellido().toLowerCase().contains(busqueda) ||
-                usuario.getEmail().toLowerCase().contains(busqueda) ||
-                (usuario.getTelefono() != null && usuario.getTelefono().toLowerCase().contains(busqueda));
+            boolean coincideTexto = TextNormalizer.coincide(usuario.getClaveBusqueda(), busqueda);
             
             // Filtro de estado
             String estadoFiltro = cmbEstado.getValue();
@@ -5,6 +5,7 @@ import com.example.demo2.service.AuthService;
 import com.example.demo2.service.LectorService;
 import com.example.demo2.service.NotificationService;
 import com.example.demo2.utils.IconHelper;
+import com.example.demo2.utils.SearchPipeline;
 
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -25,6 +26,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * Controlador para la gestión de lectores
@@ -55,12 +57,17 @@ public class LectorManagementController {
     private LectorService lectorService;
     private AuthService authService;
     private NotificationService notificationService;
+    private SearchPipeline<FiltroLectores, List<Lector>> busqueda;
     
     @FXML
     public void initialize() {
         lectorService = LectorService.getInstance();
         authService = AuthService.getInstance();
         notificationService = NotificationService.getInstance();
+        busqueda = new SearchPipeline<>(SearchPipeline.ESPERA_POR_DEFECTO,
+            (filtro, cancelacion) -> lectorService.buscar(filtro.texto, filtro.estado, cancelacion),
+            this::mostrarLectores,
+            e -> mostrarError("Error al filtrar lectores", e.getMessage()));
         
         configurarTabla();
         configurarFiltros();
@@ -248,9 +255,9 @@ public class LectorManagementController {
             filtrarLectores();
         });
         
-        // Listener para filtro de estado
+        // Listener para filtro de estado (no hace falta esperar: es un solo cambio)
         filterEstado.valueProperty().addListener((observable, oldValue, newValue) -> {
-            filtrarLectores();
+            cargarLectores();
         });
     }
     
@@ -274,38 +281,39 @@ public class LectorManagementController {
         btnActualizarVencidos.setOnAction(e -> actualizarLectoresVencidos());
     }
     
+    /**
+     * Vuelve a consultar los lectores con los filtros actuales, sin esperar
+     */
     private void cargarLectores() {
-        try {
-            lectoresList.clear();
-            lectoresList.addAll(lectorService.obtenerTodos());
-        } catch (SQLException e) {
-            mostrarError("Error al cargar lectores", e.getMessage());
-        }
+        busqueda.ejecutarAhora(filtroActual());
     }
     
+    /**
+     * Búsqueda mientras se escribe: espera a que el usuario haga una pausa
+     */
     private void filtrarLectores() {
-        try {
-            String termino = searchField.getText().toLowerCase();
-            String estadoFiltro = filterEstado.getValue();
-            
-            lectoresList.clear();
-            
-            for (Lector lector : lectorService.obtenerTodos()) {
-                boolean coincideTermino = termino.isEmpty() ||
-                    lector.getNombreCompleto().toLowerCase().contains(termino) ||
-                    lector.getCodigoLector().toLowerCase().contains(termino) ||
-                    lector.getNumeroDocumento().toLowerCase().contains(termino) ||
-                    lector.getEmail().toLowerCase().contains(termino);
-                
-                boolean coincideEstado = "TODOS".equals(estadoFiltro) ||
-                    lector.getEstado().equals(estadoFiltro);
-                
-                if (coincideTermino && coincideEstado) {
-                    lectoresList.add(lector);
-                }
-            }
-        } catch (SQLException e) {
-            mostrarError("Error al filtrar lectores", e.getMessage());
+        busqueda.solicitar(filtroActual());
+    }
+    
+    private FiltroLectores filtroActual() {
+        String estado = filterEstado.getValue();
+        return new FiltroLectores(searchField.getText(), "TODOS".equals(estado) ? null : estado);
+    }
+    
+    private void mostrarLectores(List<Lector> lectores) {
+        lectoresList.setAll(lectores);
+    }
+    
+    /**
+     * Texto y estado con los que se pidió una búsqueda
+     */
+    private static final class FiltroLectores {
+        final String texto;
+        final String estado;
+        
+        FiltroLectores(String texto, String estado) {
+            this.texto = texto;
+            this.estado = estado;
         }
     }
     
@@ -1,10 +1,15 @@
 package com.example.demo2.controller;
 
+import com.example.demo2.config.ConfigManager;
 import com.example.demo2.models.Libro;
 import com.example.demo2.service.LibroService;
 import com.example.demo2.service.NotificationService;
 import com.example.demo2.utils.IconHelper;
+import com.example.demo2.utils.LazyPagedList;
+import com.example.demo2.utils.SearchPipeline;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -19,8 +24,10 @@ import org.kordamp.bootstrapfx.BootstrapFX;
 import org.kordamp.ikonli.javafx.FontIcon;
 
 import java.io.IOException;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -58,12 +65,21 @@ public class LibroManagementController {
     
     private LibroService libroService;
     private NotificationService notificationService;
-    private FilteredList<Libro> librosFiltrados;
+    private FilteredList<Libro> librosFiltrados;    // Resultado con filtros activos
+    private ObservableList<Libro> catalogoCompleto; // Solo se carga al filtrar por categoría/estado sin texto
+    private static final int LIMITE_RESULTADOS_BUSQUEDA = 200;
+    private LazyPagedList<Libro> librosPaginados;   // Vista sin filtros, cargada por páginas
+    private static final int PAGINAS_EN_MEMORIA = 5;
+    private SearchPipeline<BusquedaLibros, List<Libro>> busqueda;
     
     @FXML
     public void initialize() {
         libroService = LibroService.getInstance();
         notificationService = NotificationService.getInstance();
+        busqueda = new SearchPipeline<>(SearchPipeline.ESPERA_POR_DEFECTO,
+            (b, cancelacion) -> libroService.buscarEnIndice(b.texto, b.criterio, LIMITE_RESULTADOS_BUSQUEDA, cancelacion),
+            libros -> mostrarFiltrados(FXCollections.observableArrayList(libros)),
+            e -> mostrarError("Error", "No se pudo completar la búsqueda"));
         
         // Configurar tabla
         configurarTabla();
@@ -90,6 +106,9 @@ public class LibroManagementController {
     }
     
     private void configurarTabla() {
+        // El orden lo define la consulta paginada (por título)
+        tableLibros.getColumns().forEach(columna -> columna.setSortable(false));
+        
         // Configurar columnas básicas
         colIsbn.setCellValueFactory(new PropertyValueFactory<>("isbn"));
         colTitulo.setCellValueFactory(new PropertyValueFactory<>("titulo"));
@@ -175,18 +194,24 @@ public class LibroManagementController {
                 
                 // Eventos
                 btnEditar.setOnAction(e -> {
-                    Libro libro = getTableView().getItems().get(getIndex());
-                    editarLibro(libro);
+                    Libro libro = getTableRow().getItem();
+                    if (libro != null) {
+                        editarLibro(libro);
+                    }
                 });
                 
                 btnToggleEstado.setOnAction(e -> {
-                    Libro libro = getTableView().getItems().get(getIndex());
-                    toggleEstadoLibro(libro);
+                    Libro libro = getTableRow().getItem();
+                    if (libro != null) {
+                        toggleEstadoLibro(libro);
+                    }
                 });
                 
                 btnEliminar.setOnAction(e -> {
-                    Libro libro = getTableView().getItems().get(getIndex());
-                    eliminarLibro(libro);
+                    Libro libro = getTableRow().getItem();
+                    if (libro != null) {
+                        eliminarLibro(libro);
+                    }
                 });
                 
                 hbox.setAlignment(javafx.geometry.Pos.CENTER);
@@ -311,13 +336,22 @@ public class LibroManagementController {
             }
         });
         
+        // Búsqueda mientras se escribe: se consulta cuando el usuario hace una pausa
+        txtBuscar.textProperty().addListener((observable, anterior, nuevo) -> {
+            if (nuevo == null || nuevo.isBlank()) {
+                aplicarFiltros();
+            } else {
+                busqueda.solicitar(new BusquedaLibros(nuevo.trim(), cmbCriterioBusqueda.getValue()));
+            }
+        });
+        
         // Botones de footer eliminados (exportar/importar no requeridos)
         
         // Doble click en tabla para editar
         tableLibros.setRowFactory(tv -> {
             TableRow<Libro> row = new TableRow<>();
             row.setOnMouseClicked(event -> {
-                if (event.getClickCount() == 2 && (!row.isEmpty())) {
+                if (event.getClickCount() == 2 && !row.isEmpty() && row.getItem() != null) {
                     editarLibro(row.getItem());
                 }
             });
@@ -326,9 +360,19 @@ public class LibroManagementController {
     }
     
     private void cargarLibros() {
-        // Crear lista filtrada
-        librosFiltrados = new FilteredList<>(libroService.obtenerTodosLosLibros());
-        tableLibros.setItems(librosFiltrados);
+        // Vista sin filtros: solo se consulta la primera página, el resto al desplazarse
+        try {
+            librosPaginados = new LazyPagedList<>(libroService::obtenerPaginaLibros, Libro::getId,
+                ConfigManager.getInstance().getPageSize(), PAGINAS_EN_MEMORIA);
+            librosPaginados.addListener((javafx.collections.ListChangeListener<Libro>) cambio -> actualizarResultados());
+        } catch (SQLException e) {
+            System.err.println("❌ Error cargando libros: " + e.getMessage());
+            mostrarError("Error", "No se pudieron cargar los libros");
+            return;
+        }
+        
+        // El catálogo completo para filtrar se vuelve a leer solo si se usan filtros
+        catalogoCompleto = null;
         
         // Aplicar filtros actuales
         aplicarFiltros();
@@ -336,74 +380,106 @@ public class LibroManagementController {
         // Actualizar estadísticas
         actualizarEstadisticas();
         
-        System.out.println("📚 Libros cargados: " + librosFiltrados.size());
+        System.out.println("📚 Primera página de libros cargada: " + librosPaginados.size());
     }
     
     private void aplicarFiltros() {
-        if (librosFiltrados == null) return;
+        if (librosPaginados == null) return;
         
-        String textoBusqueda = txtBuscar.getText().toLowerCase().trim();
+        String textoBusqueda = txtBuscar.getText().trim();
         String criterio = cmbCriterioBusqueda.getValue();
         String filtroCategoria = cmbFiltroCategoria.getValue();
         String filtroEstado = cmbFiltroEstado.getValue();
         
-        librosFiltrados.setPredicate(libro -> {
-            // Filtro de búsqueda
-            if (!textoBusqueda.isEmpty()) {
-                String valorCampo = "";
-                switch (criterio) {
-                    case "titulo":
-                        valorCampo = libro.getTitulo();
-                        break;
-                    case "autor":
-                        valorCampo = libro.getAutor();
-                        break;
-                    case "isbn":
-                        valorCampo = libro.getIsbn();
-                        break;
-                    case "editorial":
-                        valorCampo = libro.getEditorial();
-                        break;
-                    case "categoria":
-                        valorCampo = libro.getCategoria();
-                        break;
-                }
-                
-                if (valorCampo == null || !valorCampo.toLowerCase().contains(textoBusqueda)) {
-                    return false;
-                }
-            }
-            
-            // Filtro de categoría
-            if (filtroCategoria != null && !filtroCategoria.equals("Todas")) {
-                if (!filtroCategoria.equals(libro.getCategoria())) {
-                    return false;
-                }
+        boolean sinFiltros = textoBusqueda.isEmpty() &&
+            (filtroCategoria == null || filtroCategoria.equals("Todas")) &&
+            (filtroEstado == null || filtroEstado.equals("Todos"));
+        
+        if (!textoBusqueda.isEmpty()) {
+            // El texto se resuelve en el índice de trigramas (ordenado por relevancia) fuera del hilo de JavaFX
+            busqueda.ejecutarAhora(new BusquedaLibros(textoBusqueda, criterio));
+            return;
+        }
+        
+        // Sin texto: una búsqueda que siga en curso ya no debe reemplazar la tabla
+        busqueda.cancelar();
+        
+        if (sinFiltros) {
+            tableLibros.setItems(librosPaginados);
+            actualizarResultados();
+            return;
+        }
+        
+        if (catalogoCompleto == null) {
+            catalogoCompleto = libroService.obtenerTodosLosLibros();
+        }
+        mostrarFiltrados(catalogoCompleto);
+    }
+    
+    /**
+     * Muestra los libros que cumplen los filtros de categoría y estado actuales
+     */
+    private void mostrarFiltrados(ObservableList<Libro> origen) {
+        String filtroCategoria = cmbFiltroCategoria.getValue();
+        String filtroEstado = cmbFiltroEstado.getValue();
+        
+        librosFiltrados = new FilteredList<>(origen, libro -> cumpleFiltros(libro, filtroCategoria, filtroEstado));
+        tableLibros.setItems(librosFiltrados);
+        
+        actualizarResultados();
+    }
+    
+    /**
+     * Texto y campo con los que se pidió una búsqueda en el índice
+     */
+    private static final class BusquedaLibros {
+        final String texto;
+        final String criterio;
+        
+        BusquedaLibros(String texto, String criterio) {
+            this.texto = texto;
+            this.criterio = criterio;
+        }
+    }
+    
+    /**
+     * Filtros de categoría y estado sobre un libro ya encontrado
+     */
+    private boolean cumpleFiltros(Libro libro, String filtroCategoria, String filtroEstado) {
+        // Filtro de categoría
+        if (filtroCategoria != null && !filtroCategoria.equals("Todas")) {
+            if (!filtroCategoria.equals(libro.getCategoria())) {
+                return false;
             }
-            
-            // Filtro de estado
-            if (filtroEstado != null && !filtroEstado.equals("Todos")) {
-                switch (filtroEstado) {
-                    case "Activos":
-                        if (!libro.isActivo()) return false;
-                        break;
-                    case "Inactivos":
-                        if (libro.isActivo()) return false;
-                        break;
-                    case "Disponibles":
-                        if (libro.getCantidadDisponible() == 0) return false;
-                        break;
-                    case "Agotados":
-                        if (libro.getCantidadDisponible() > 0) return false;
-                        break;
-                }
+        }
+        
+        // Filtro de estado
+        if (filtroEstado != null && !filtroEstado.equals("Todos")) {
+            switch (filtroEstado) {
+                case "Activos":
+                    if (!libro.isActivo()) return false;
+                    break;
+                case "Inactivos":
+                    if (libro.isActivo()) return false;
+                    break;
+                case "Disponibles":
+                    if (libro.getCantidadDisponible() == 0) return false;
+                    break;
+                case "Agotados":
+                    if (libro.getCantidadDisponible() > 0) return false;
+                    break;
             }
-            
-            return true;
-        });
+        }
         
-        // Actualizar etiqueta de resultados
-        lblResultados.setText("Mostrando " + librosFiltrados.size() + " libros");
+        return true;
+    }
+    
+    private void actualizarResultados() {
+        if (tableLibros.getItems() == librosPaginados && librosPaginados.hayMas()) {
+            lblResultados.setText("Mostrando " + librosPaginados.size() + "+ libros");
+        } else {
+            lblResultados.setText("Mostrando " + tableLibros.getItems().size() + " libros");
+        }
     }
     
     private void limpiarBusqueda() {
@@ -415,17 +491,13 @@ public class LibroManagementController {
     }
     
     private void actualizarEstadisticas() {
-        if (librosFiltrados == null) return;
-        
-        int total = librosFiltrados.getSource().size();
-        int activos = (int) librosFiltrados.getSource().stream().filter(Libro::isActivo).count();
-        int disponibles = (int) librosFiltrados.getSource().stream().filter(libro -> libro.getCantidadDisponible() > 0).count();
-        int prestados = librosFiltrados.getSource().stream().mapToInt(Libro::getCantidadPrestada).sum();
+        // Totales calculados en la base de datos: la tabla ya no tiene todo el catálogo en memoria
+        LibroService.ResumenCatalogo resumen = libroService.obtenerResumenCatalogo();
         
-        lblTotalLibros.setText(String.valueOf(total));
-        lblLibrosActivos.setText(String.valueOf(activos));
-        lblLibrosDisponibles.setText(String.valueOf(disponibles));
-        lblLibrosPrestados.setText(String.valueOf(prestados));
+        lblTotalLibros.setText(String.valueOf(resumen.total));
+        lblLibrosActivos.setText(String.valueOf(resumen.activos));
+        lblLibrosDisponibles.setText(String.valueOf(resumen.disponibles));
+        lblLibrosPrestados.setText(String.valueOf(resumen.prestados));
     }
     
     private void actualizarTimestamp() {
@@ -136,6 +136,9 @@ public class LoginController {
                     com.example.demo2.service.DatabaseInitService.inicializarBaseDatosRapido();
                 }
                 
+                // Columnas, índices y tablas agregadas después: deben existir antes de usar el sistema
+                com.example.demo2.service.DatabaseInitService.actualizarEsquema();
+                
                 // Solo crear usuario admin si no existe (esencial para login)
                 authService.crearSuperAdminInicial();
                 
@@ -162,15 +165,18 @@ public class LoginController {
                 // Esperar un poco para no interferir con el login
                 Thread.sleep(2000);
                 
-                // Actualizar estructuras si es necesario
-                com.example.demo2.service.DatabaseInitService.actualizarEstructuraUsuarios();
-                com.example.demo2.service.DatabaseInitService.actualizarEstructuraPrestamos();
+                // Servicios periódicos (sus tablas las creó actualizarEsquema al iniciar)
+                com.example.demo2.service.ChangeLogService.getInstance().iniciar();
+                com.example.demo2.service.MaintenanceJobService.getInstance().iniciar();
                 
                 // Crear datos de prueba
                 com.example.demo2.service.UsuarioService.getInstance().crearUsuariosDePrueba();
                 com.example.demo2.service.LectorService.getInstance().crearLectoresDePrueba();
                 com.example.demo2.service.PrestamoService.getInstance().crearPrestamosDePrueba();
                 
+                // Índice de búsqueda del catálogo de libros
+                com.example.demo2.service.LibroService.getInstance().construirIndiceBusqueda();
+                
                 System.out.println("✅ Datos de prueba creados en segundo plano");
                 
             } catch (Exception e) {
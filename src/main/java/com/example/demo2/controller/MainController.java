@@ -10,6 +10,7 @@ import com.example.demo2.service.NotificationService; // Sistema de notificacion
 import com.example.demo2.service.UsuarioService;      // Operaciones CRUD de usuarios
 import com.example.demo2.service.LibroService;        // Operaciones CRUD de libros
 import com.example.demo2.service.PrestamoService;        // Operaciones CRUD de préstamos
+import com.example.demo2.service.DashboardSnapshotService; // Datos del dashboard en una sola lectura
 
 // Controladores del sistema
 import com.example.demo2.controller.SystemConfigController; // Controlador de configuraciones
@@ -42,6 +43,7 @@ import org.kordamp.ikonli.javafx.FontIcon;
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
 import com.example.demo2.models.Prestamo;
+import com.example.demo2.models.Libro;
 
 /**
  * CONTROLADOR PRINCIPAL DEL SISTEMA - DASHBOARD DINÁMICO POR ROL
@@ -122,9 +124,12 @@ public class MainController {
     @FXML private Label lblProximosVencer;          // Contador de préstamos próximos a vencer
     @FXML private Label lblConMulta;                // Contador de usuarios con multa
     @FXML private Label lblUnaExistencia;           // Contador de libros con una existencia
-    @FXML private ListView<String> listProximosVencer;  // Lista de préstamos próximos a vencer
-    @FXML private ListView<String> listConMulta;        // Lista de usuarios con multa
-    @FXML private ListView<String> listUnaExistencia;   // Lista de libros con una existencia
+    @FXML private ListView<Prestamo> listProximosVencer;  // Lista de préstamos próximos a vencer
+    @FXML private ListView<Prestamo> listConMulta;        // Lista de usuarios con multa
+    @FXML private ListView<Libro> listUnaExistencia;      // Lista de libros con una existencia
+    
+    // Foto del dashboard que muestran las listas (los detalles se abren desde aquí sin consultar)
+    private DashboardSnapshotService.Snapshot snapshotMostrado;
     @FXML private Button btnVerProximosVencer;  // Botón para ver detalles de próximos a vencer
     @FXML private Button btnVerConMulta;        // Botón para ver detalles de usuarios con multa
     @FXML private Button btnVerUnaExistencia;   // Botón para ver detalles de libros únicos
@@ -738,22 +743,19 @@ public class MainController {
         // Cargar en hilo separado para no bloquear la UI
         new Thread(() -> {
             try {
-                // Obtener estadísticas de préstamos
-                var statsP = prestamoService.obtenerEstadisticasRapidas();
-                
-                // Obtener estadísticas de libros
-                var statsL = libroService.obtenerEstadisticasRapidas();
+                // Los contadores salen de la misma foto que usan las listas del dashboard
+                var snapshot = DashboardSnapshotService.getInstance().obtener();
                 
                 // Actualizar UI en JavaFX Application Thread
                 javafx.application.Platform.runLater(() -> {
                     if (lblProximosVencer != null) {
-                        lblProximosVencer.setText(String.valueOf(statsP.prestamosProximosAVencer));
+                        lblProximosVencer.setText(String.valueOf(snapshot.proximosAVencer.size()));
                     }
                     if (lblConMulta != null) {
-                        lblConMulta.setText(String.valueOf(statsP.prestamosConMulta));
+                        lblConMulta.setText(String.valueOf(snapshot.conMulta.size()));
                     }
                     if (lblUnaExistencia != null) {
-                        lblUnaExistencia.setText(String.valueOf(statsL.librosUnaExistencia));
+                        lblUnaExistencia.setText(String.valueOf(snapshot.librosUnaExistencia.size()));
                     }
                     
                     System.out.println("📊 Estadísticas del dashboard actualizadas");
@@ -778,59 +780,49 @@ public class MainController {
     private void configurarEventosListas() {
         System.out.println("⚙️ Configurando eventos de listas de estadísticas...");
         
-        if (listProximosVencer == null) {
-            System.err.println("⚠️ listProximosVencer es null!");
-        } else {
-            System.out.println("✅ Configurando handler para listProximosVencer");
-            listProximosVencer.setOnMouseClicked(event -> {
-                System.out.println("🖱️ Evento de clic detectado en listProximosVencer (clics: " + event.getClickCount() + ")");
-                if (event.getClickCount() == 2) {
-                    String seleccionado = listProximosVencer.getSelectionModel().getSelectedItem();
-                    if (seleccionado != null) {
-                        System.out.println("🔍 Mostrando detalle para: " + seleccionado);
-                        mostrarDetallePrestamoProximoVencer(seleccionado);
-                    } else {
-                        System.out.println("⚠️ No hay ítem seleccionado");
-                    }
-                }
-            });
-        }
+        configurarListaEstadisticas(listProximosVencer, "✨ No hay préstamos próximos a vencer",
+            prestamo -> String.format("📅 %s - %s", prestamo.getLectorNombre(), prestamo.getLibroTitulo()),
+            prestamo -> mostrarDetallePrestamo(prestamo, "⏰ Detalle - Próximo a Vencer"));
         
-        if (listConMulta == null) {
-            System.err.println("⚠️ listConMulta es null!");
-        } else {
-            System.out.println("✅ Configurando handler para listConMulta");
-            listConMulta.setOnMouseClicked(event -> {
-                System.out.println("🖱️ Evento de clic detectado en listConMulta (clics: " + event.getClickCount() + ")");
-                if (event.getClickCount() == 2) {
-                    String seleccionado = listConMulta.getSelectionModel().getSelectedItem();
-                    if (seleccionado != null) {
-                        System.out.println("🔍 Mostrando detalle para: " + seleccionado);
-                        mostrarDetallePrestamoConMulta(seleccionado);
-                    } else {
-                        System.out.println("⚠️ No hay ítem seleccionado");
-                    }
-                }
-            });
+        configurarListaEstadisticas(listConMulta, "✨ No hay usuarios con multa",
+            prestamo -> String.format("💰 %s - $%.2f", prestamo.getLectorNombre(), prestamo.getMulta()),
+            prestamo -> mostrarDetallePrestamo(prestamo, "💰 Detalle - Con Multa"));
+        
+        configurarListaEstadisticas(listUnaExistencia, "✨ No hay libros con ejemplar único",
+            libro -> String.format("📖 %s - %s", libro.getTitulo(), libro.getAutor()),
+            this::mostrarDetalleLibro);
+    }
+    
+    /**
+     * Configura cómo se muestra cada elemento de una lista de estadísticas y su doble clic
+     */
+    private <T> void configurarListaEstadisticas(ListView<T> lista, String mensajeVacia,
+                                                 java.util.function.Function<T, String> texto,
+                                                 java.util.function.Consumer<T> alAbrir) {
+        if (lista == null) {
+            System.err.println("⚠️ Lista de estadísticas no encontrada: " + mensajeVacia);
+            return;
         }
         
-        if (listUnaExistencia == null) {
-            System.err.println("⚠️ listUnaExistencia es null!");
-        } else {
-            System.out.println("✅ Configurando handler para listUnaExistencia");
-            listUnaExistencia.setOnMouseClicked(event -> {
-                System.out.println("🖱️ Evento de clic detectado en listUnaExistencia (clics: " + event.getClickCount() + ")");
-                if (event.getClickCount() == 2) {
-                    String seleccionado = listUnaExistencia.getSelectionModel().getSelectedItem();
-                    if (seleccionado != null) {
-                        System.out.println("🔍 Mostrando detalle para: " + seleccionado);
-                        mostrarDetalleLibroUnaExistencia(seleccionado);
-                    } else {
-                        System.out.println("⚠️ No hay ítem seleccionado");
-                    }
+        lista.setPlaceholder(new Label(mensajeVacia));
+        lista.setCellFactory(param -> new ListCell<T>() {
+            @Override
+            protected void updateItem(T item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : texto.apply(item));
+            }
+        });
+        
+        lista.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                T seleccionado = lista.getSelectionModel().getSelectedItem();
+                if (seleccionado != null) {
+                    alAbrir.accept(seleccionado);
+                } else {
+                    System.out.println("⚠️ No hay ítem seleccionado");
                 }
-            });
-        }
+            }
+        });
     }
     
     /**
@@ -839,14 +831,15 @@ public class MainController {
     private void cargarEstadisticasInteractivas() {
         new Thread(() -> {
             try {
-                // Cargar préstamos próximos a vencer
-                cargarProximosVencer();
-                
-                // Cargar préstamos con multa
-                cargarConMulta();
+                // Una sola lectura para las tres listas (ver DashboardSnapshotService)
+                var snapshot = DashboardSnapshotService.getInstance().obtener();
                 
-                // Cargar libros con una existencia
-                cargarUnaExistencia();
+                javafx.application.Platform.runLater(() -> {
+                    snapshotMostrado = snapshot;
+                    mostrarProximosVencer(snapshot.proximosAVencer);
+                    mostrarConMulta(snapshot.conMulta);
+                    mostrarUnaExistencia(snapshot.librosUnaExistencia);
+                });
                 
                 System.out.println("📊 Estadísticas interactivas del dashboard cargadas");
                 
@@ -858,144 +851,61 @@ public class MainController {
     }
     
     /**
-     * Carga la lista de préstamos próximos a vencer
+     * Muestra la lista de préstamos próximos a vencer
      */
-    private void cargarProximosVencer() {
-        try {
-            var prestamos = prestamoService.obtenerPrestamosProximosAVencer(3);
-            
-            javafx.application.Platform.runLater(() -> {
-                if (listProximosVencer != null && lblProximosVencer != null) {
-                    listProximosVencer.getItems().clear();
-                    
-                    if (prestamos.isEmpty()) {
-                        listProximosVencer.getItems().add("✨ No hay préstamos próximos a vencer");
-                        lblProximosVencer.setText("(0)");
-                    } else {
-                        for (var prestamo : prestamos) {
-                            String item = String.format("📅 %s - %s", 
-                                prestamo.getLectorNombre(),
-                                prestamo.getLibroTitulo());
-                            listProximosVencer.getItems().add(item);
-                        }
-                        lblProximosVencer.setText("(" + prestamos.size() + ")");
-                    }
-                }
-            });
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error cargando próximos a vencer: " + e.getMessage());
+    private void mostrarProximosVencer(java.util.List<Prestamo> prestamos) {
+        if (listProximosVencer != null && lblProximosVencer != null) {
+            listProximosVencer.getItems().setAll(prestamos);
+            lblProximosVencer.setText("(" + prestamos.size() + ")");
         }
     }
     
     /**
-     * Carga la lista de préstamos con multa
+     * Muestra la lista de préstamos con multa
      */
-    private void cargarConMulta() {
-        try {
-            var prestamos = prestamoService.obtenerPrestamosConMulta();
-            
-            javafx.application.Platform.runLater(() -> {
-                if (listConMulta != null && lblConMulta != null) {
-                    listConMulta.getItems().clear();
-                    
-                    if (prestamos.isEmpty()) {
-                        listConMulta.getItems().add("✨ No hay usuarios con multa");
-                        lblConMulta.setText("(0)");
-                    } else {
-                        for (var prestamo : prestamos) {
-                            String item = String.format("💰 %s - $%.2f", 
-                                prestamo.getLectorNombre(),
-                                prestamo.getMulta());
-                            listConMulta.getItems().add(item);
-                        }
-                        lblConMulta.setText("(" + prestamos.size() + ")");
-                    }
-                }
-            });
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error cargando con multa: " + e.getMessage());
+    private void mostrarConMulta(java.util.List<Prestamo> prestamos) {
+        if (listConMulta != null && lblConMulta != null) {
+            listConMulta.getItems().setAll(prestamos);
+            lblConMulta.setText("(" + prestamos.size() + ")");
         }
     }
     
     /**
-     * Carga la lista de libros con una existencia
+     * Muestra la lista de libros con una existencia
      */
-    private void cargarUnaExistencia() {
-        try {
-            var libros = libroService.obtenerLibrosConUnaExistencia();
-            
-            javafx.application.Platform.runLater(() -> {
-                if (listUnaExistencia != null && lblUnaExistencia != null) {
-                    listUnaExistencia.getItems().clear();
-                    
-                    if (libros.isEmpty()) {
-                        listUnaExistencia.getItems().add("✨ No hay libros con ejemplar único");
-                        lblUnaExistencia.setText("(0)");
-                    } else {
-                        for (var libro : libros) {
-                            String item = String.format("📖 %s - %s", 
-                                libro.getTitulo(),
-                                libro.getAutor());
-                            listUnaExistencia.getItems().add(item);
-                        }
-                        lblUnaExistencia.setText("(" + libros.size() + ")");
-                    }
-                }
-            });
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error cargando una existencia: " + e.getMessage());
+    private void mostrarUnaExistencia(java.util.List<Libro> libros) {
+        if (listUnaExistencia != null && lblUnaExistencia != null) {
+            listUnaExistencia.getItems().setAll(libros);
+            lblUnaExistencia.setText("(" + libros.size() + ")");
         }
     }
     
     /**
-     * Muestra detalle de un préstamo próximo a vencer
+     * Muestra el detalle de un préstamo de las listas del dashboard.
+     * Si la foto mostrada sigue vigente se usa el préstamo en memoria; si no, se vuelve a leer
+     * solo ese préstamo y se actualizan las listas.
      */
-    private void mostrarDetallePrestamoProximoVencer(String item) {
-        // Extraer nombre del lector del texto
-        String nombreLector = item.split(" - ")[0].replace("📅 ", "");
+    private void mostrarDetallePrestamo(Prestamo prestamo, String titulo) {
+        if (DashboardSnapshotService.getInstance().isVigente(snapshotMostrado)) {
+            mostrarDialogoDetallePrestamo(prestamo, titulo);
+            return;
+        }
         
         new Thread(() -> {
             try {
-                var prestamos = prestamoService.obtenerPrestamosProximosAVencer(3);
-                var prestamo = prestamos.stream()
-                    .filter(p -> p.getLectorNombre().equals(nombreLector))
-                    .findFirst()
-                    .orElse(null);
-                
-                if (prestamo != null) {
-                    javafx.application.Platform.runLater(() -> {
-                        mostrarDialogoDetallePrestamo(prestamo, "⏰ Detalle - Próximo a Vencer");
-                    });
+                Prestamo actual = prestamoService.buscarPorId(prestamo.getId());
+                if (actual != null && actual.getMulta() <= 0 && actual.isVencido()) {
+                    actual.setMulta(prestamoService.calcularMultaIndividual(actual));
                 }
-            } catch (Exception e) {
-                System.err.println("❌ Error mostrando detalle: " + e.getMessage());
-            }
-        }).start();
-    }
-    
-    /**
-     * Muestra detalle de un préstamo con multa
-     */
-    private void mostrarDetallePrestamoConMulta(String item) {
-        // Extraer nombre del lector del texto  
-        String nombreLector = item.split(" - ")[0].replace("💰 ", "");
-        
-        new Thread(() -> {
-            try {
-                var prestamos = prestamoService.obtenerPrestamosConMulta();
-                var prestamo = prestamos.stream()
-                    .filter(p -> p.getLectorNombre().equals(nombreLector))
-                    .findFirst()
-                    .orElse(null);
                 
-                if (prestamo != null) {
-                    javafx.application.Platform.runLater(() -> {
-                        mostrarDialogoDetallePrestamo(prestamo, "💰 Detalle - Con Multa");
-                    });
-                }
+                javafx.application.Platform.runLater(() -> {
+                    if (actual != null) {
+                        mostrarDialogoDetallePrestamo(actual, titulo);
+                    } else {
+                        mostrarError("Préstamo no encontrado", "El préstamo " + prestamo.getCodigoPrestamo() + " ya no existe.");
+                    }
+                    cargarEstadisticasInteractivas();
+                });
             } catch (Exception e) {
                 System.err.println("❌ Error mostrando detalle: " + e.getMessage());
             }
@@ -1003,28 +913,25 @@ public class MainController {
     }
     
     /**
-     * Muestra detalle de un libro con una existencia
+     * Muestra el detalle de un libro con una existencia (mismo criterio que mostrarDetallePrestamo)
      */
-    private void mostrarDetalleLibroUnaExistencia(String item) {
-        // Extraer título del libro del texto
-        String titulo = item.split(" - ")[0].replace("📖 ", "");
+    private void mostrarDetalleLibro(Libro libro) {
+        if (DashboardSnapshotService.getInstance().isVigente(snapshotMostrado)) {
+            mostrarDialogoDetalleLibro(libro);
+            return;
+        }
         
         new Thread(() -> {
-            try {
-                var libros = libroService.obtenerLibrosConUnaExistencia();
-                var libro = libros.stream()
-                    .filter(l -> l.getTitulo().equals(titulo))
-                    .findFirst()
-                    .orElse(null);
-                
-                if (libro != null) {
-                    javafx.application.Platform.runLater(() -> {
-                        mostrarDialogoDetalleLibro(libro);
-                    });
+            Libro actual = libroService.obtenerLibroPorId(libro.getId());
+            
+            javafx.application.Platform.runLater(() -> {
+                if (actual != null) {
+                    mostrarDialogoDetalleLibro(actual);
+                } else {
+                    mostrarError("Libro no encontrado", "El libro \"" + libro.getTitulo() + "\" ya no existe.");
                 }
-            } catch (Exception e) {
-                System.err.println("❌ Error mostrando detalle: " + e.getMessage());
-            }
+                cargarEstadisticasInteractivas();
+            });
         }).start();
     }
     
@@ -1063,20 +970,20 @@ public class MainController {
     /**
      * Muestra un diálogo con detalles completos de un libro
      */
-    private void mostrarDialogoDetalleLibro(Object libro) {
+    private void mostrarDialogoDetalleLibro(Libro libro) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Detalle del Libro");
         alert.setHeaderText("📖 Libro con Ejemplar Único");
         
         StringBuilder content = new StringBuilder();
-        // Aquí irían los detalles del libro cuando tengamos el objeto completo
         content.append("📚 Información del libro:\n\n");
-        content.append("• Título: ").append("Título del libro").append("\n");
-        content.append("• Autor: ").append("Autor del libro").append("\n");
-        content.append("• ISBN: ").append("ISBN").append("\n");
-        content.append("• Editorial: ").append("Editorial").append("\n");
-        content.append("• Año: ").append("Año").append("\n");
-        content.append("• Cantidad: 1 ejemplar (ÚNICO)\n\n");
+        content.append("• Título: ").append(libro.getTitulo()).append("\n");
+        content.append("• Autor: ").append(libro.getAutor()).append("\n");
+        content.append("• ISBN: ").append(libro.getIsbn()).append("\n");
+        content.append("• Editorial: ").append(libro.getEditorial() != null ? libro.getEditorial() : "-").append("\n");
+        content.append("• Año: ").append(libro.getAnioPublicacion() > 0 ? String.valueOf(libro.getAnioPublicacion()) : "-").append("\n");
+        content.append("• Cantidad: 1 ejemplar (ÚNICO), ")
+               .append(libro.getCantidadDisponible() > 0 ? "disponible" : "prestado").append("\n\n");
         content.append("⚠️ IMPORTANTE: Este libro NO debe prestarse para preservar\n");
         content.append("el único ejemplar disponible en la biblioteca.");
         
@@ -1114,12 +1021,12 @@ public class MainController {
     private void mostrarDialogoProximosVencer() {
         new Thread(() -> {
             try {
-                var prestamos = prestamoService.obtenerPrestamosProximosAVencer(3);
+                var prestamos = DashboardSnapshotService.getInstance().obtener().proximosAVencer;
                 
                 javafx.application.Platform.runLater(() -> {
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
                     alert.setTitle("Préstamos Próximos a Vencer");
-                    alert.setHeaderText("⏰ Préstamos que vencen en los próximos 3 días");
+                    alert.setHeaderText("⏰ Préstamos que vencen en los próximos " + DashboardSnapshotService.DIAS_PROXIMIDAD + " días");
                     
                     if (prestamos.isEmpty()) {
                         alert.setContentText("¡Excelente! No hay préstamos próximos a vencer.");
@@ -1159,7 +1066,7 @@ public class MainController {
     private void mostrarDialogoConMulta() {
         new Thread(() -> {
             try {
-                var prestamos = prestamoService.obtenerPrestamosConMulta();
+                var prestamos = DashboardSnapshotService.getInstance().obtener().conMulta;
                 
                 javafx.application.Platform.runLater(() -> {
                     Alert alert = new Alert(Alert.AlertType.WARNING);
@@ -1207,7 +1114,7 @@ public class MainController {
     private void mostrarDialogoUnaExistencia() {
         new Thread(() -> {
             try {
-                var libros = libroService.obtenerLibrosConUnaExistencia();
+                var libros = DashboardSnapshotService.getInstance().obtener().librosUnaExistencia;
                 
                 javafx.application.Platform.runLater(() -> {
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -185,7 +185,7 @@ public class PrestamoFormController implements Initializable {
                     // Mostrar advertencia en tiempo real, pero no bloquear
                     List<Prestamo> prestamosActivos = prestamoService.obtenerPorLector(lectorId);
                     int cantidadActivos = (int) prestamosActivos.stream()
-                        .filter(p -> "ACTIVO".equals(p.getEstado()))
+                        .filter(p -> "ACTIVO".equals(p.getEstado()) || "VENCIDO".equals(p.getEstado()))
                         .count();
                         
                     String mensaje = String.format(
@@ -217,17 +217,10 @@ public class PrestamoFormController implements Initializable {
         System.out.println("✅ Validación de formulario exitosa");
         
         try {
-            // Generar código de préstamo justo antes de guardar
+            // Generar código de préstamo justo antes de guardar (único por secuencia)
             String nuevoCodigo = prestamoService.generarCodigoPrestamo();
             System.out.println("🔑 Código de préstamo generado: " + nuevoCodigo);
             
-            // Verificar si el código ya existe antes de continuar
-            while (prestamoService.existeCodigo(nuevoCodigo)) {
-                System.out.println("⚠️ Código " + nuevoCodigo + " ya existe, generando uno nuevo...");
-                nuevoCodigo = prestamoService.generarCodigoPrestamo();
-                System.out.println("🔄 Nuevo código generado: " + nuevoCodigo);
-            }
-            
             Prestamo nuevoPrestamo = new Prestamo();
             nuevoPrestamo.setCodigoPrestamo(nuevoCodigo);
             nuevoPrestamo.setLibroId(libroCombo.getValue().getId());  // Libro.getId() ya retorna Long
@@ -275,14 +268,10 @@ public class PrestamoFormController implements Initializable {
                         intentos++;
                         System.out.println("⚠️ Colisión de código detectada, reintento " + intentos + "/" + maxIntentos);
                         
-                        // Generar un nuevo código y verificar que no exista
-                        do {
-                            nuevoCodigo = prestamoService.generarCodigoPrestamo();
-                            System.out.println("🔄 Nuevo código generado: " + nuevoCodigo);
-                        } while (prestamoService.existeCodigo(nuevoCodigo));
-                        
+                        // Código cargado a mano fuera del generador: tomar el siguiente de la secuencia
+                        nuevoCodigo = prestamoService.generarCodigoPrestamo();
+                        System.out.println("🔄 Nuevo código generado: " + nuevoCodigo);
                         nuevoPrestamo.setCodigoPrestamo(nuevoCodigo);
-                        System.out.println("✅ Usando código verificado: " + nuevoCodigo);
                     } else {
                         // Otro error SQL, relanzar
                         throw e;
@@ -367,21 +356,8 @@ public class PrestamoFormController implements Initializable {
             return false;
         }
         
-        // Validar disponibilidad del libro
-        try {
-            Long libroId = libroCombo.getValue().getId();
-            System.out.println("  📖 Validando disponibilidad del libro ID: " + libroId);
-            if (!prestamoService.libroDisponible(libroId)) {
-                System.out.println("  ❌ Libro no disponible");
-                mostrarError("El libro seleccionado no está disponible para préstamo");
-                return false;
-            }
-            System.out.println("  ✅ Libro disponible");
-        } catch (SQLException e) {
-            System.out.println("  ❌ Error SQL validando libro: " + e.getMessage());
-            mostrarError("Error al validar disponibilidad del libro");
-            return false;
-        }
+        // La disponibilidad del libro no se consulta aquí: crear() reserva el ejemplar
+        // con un UPDATE condicional y rechaza el préstamo si ya no quedan
         
         // Validar estado del lector - CONFIGURACIÓN TEMPORAL RELAJADA
         try {
@@ -395,7 +371,7 @@ public class PrestamoFormController implements Initializable {
                 // Obtener información de los préstamos activos
                 List<Prestamo> prestamosActivos = prestamoService.obtenerPorLector(lectorId);
                 int cantidadActivos = (int) prestamosActivos.stream()
-                    .filter(p -> "ACTIVO".equals(p.getEstado()))
+                    .filter(p -> "ACTIVO".equals(p.getEstado()) || "VENCIDO".equals(p.getEstado()))
                     .count();
                 
                 // Mostrar advertencia pero permitir continuar
@@ -1,9 +1,18 @@
 package com.example.demo2.controller;
 
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.ConsultaCancelable;
+import com.example.demo2.database.Pagina;
 import com.example.demo2.models.Prestamo;
+import com.example.demo2.models.Usuario;
+import com.example.demo2.service.AuthService;
+import com.example.demo2.service.FineLedgerService;
 import com.example.demo2.service.PrestamoService;
 import com.example.demo2.service.NotificationService;
 import com.example.demo2.utils.IconHelper;
+import com.example.demo2.utils.LazyPagedList;
+import com.example.demo2.utils.SearchPipeline;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -18,9 +27,11 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.ArrayList;
 
@@ -51,15 +62,49 @@ public class PrestamoManagementController implements Initializable {
     @FXML private Button btnLimpiarBusqueda;
     
     private PrestamoService prestamoService;
+    private FineLedgerService fineLedgerService;
     private NotificationService notificationService;
-    private List<Prestamo> prestamosCache; // Cache para evitar consultas innecesarias
-    private long ultimaActualizacionCache = 0;
-    private static final long CACHE_DURATION_MS = 30000; // 30 segundos
+    private static final int PAGINAS_EN_MEMORIA = 5;
+    private ListaPrestamos listaActual;                 // Resultado de la búsqueda mostrada, cargado por páginas
+    private SearchPipeline<PrestamoService.CriteriosBusqueda, ListaPrestamos> busqueda;
+    private SearchPipeline<ListaPrestamos, PrestamoService.CambiosPrestamos> sincronizacion;
+    
+    /**
+     * Préstamos mostrados, con los criterios con que se buscaron y la marca desde la que
+     * se piden sus cambios en la próxima actualización incremental
+     */
+    private static final class ListaPrestamos {
+        final PrestamoService.CriteriosBusqueda criterios;
+        final LazyPagedList<Prestamo> prestamos;
+        Timestamp marca;
+        
+        ListaPrestamos(PrestamoService.CriteriosBusqueda criterios, LazyPagedList<Prestamo> prestamos, Timestamp marca) {
+            this.criterios = criterios;
+            this.prestamos = prestamos;
+            this.marca = marca;
+        }
+    }
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         prestamoService = PrestamoService.getInstance();
+        fineLedgerService = FineLedgerService.getInstance();
         notificationService = NotificationService.getInstance();
+        busqueda = new SearchPipeline<>(SearchPipeline.ESPERA_POR_DEFECTO,
+            this::consultarPrimeraPagina,
+            this::mostrarPrestamos,
+            e -> {
+                notificationService.notifyError("Error al cargar préstamos", "Error: " + e.getMessage());
+                e.printStackTrace();
+            });
+        sincronizacion = new SearchPipeline<>(SearchPipeline.ESPERA_POR_DEFECTO,
+            (lista, cancelacion) -> prestamoService.obtenerCambios(lista.criterios, lista.marca, cancelacion),
+            this::aplicarCambios,
+            e -> {
+                // Sin la actualización incremental se vuelve a cargar la lista completa
+                System.err.println("⚠️ Error en actualización incremental de préstamos: " + e.getMessage());
+                cargarPrestamos();
+            });
         
         configurarTabla();
         configurarFiltros();
@@ -72,6 +117,9 @@ public class PrestamoManagementController implements Initializable {
      * Configura las columnas de la tabla
      */
     private void configurarTabla() {
+        // El orden lo define la consulta paginada (más recientes primero)
+        prestamosTable.getColumns().forEach(columna -> columna.setSortable(false));
+        
         codigoColumn.setCellValueFactory(new PropertyValueFactory<>("codigoPrestamo"));
         libroColumn.setCellValueFactory(new PropertyValueFactory<>("libroTitulo"));
         lectorColumn.setCellValueFactory(new PropertyValueFactory<>("lectorNombre"));
@@ -80,7 +128,7 @@ public class PrestamoManagementController implements Initializable {
         // Configurar columna de fecha de préstamo
         fechaPrestamoColumn.setCellValueFactory(cellData -> {
             Prestamo prestamo = cellData.getValue();
-            if (prestamo.getFechaPrestamo() != null) {
+            if (prestamo != null && prestamo.getFechaPrestamo() != null) {
                 return new javafx.beans.property.SimpleStringProperty(
                     prestamo.getFechaPrestamo().toLocalDateTime().toLocalDate()
                            .format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
@@ -92,7 +140,7 @@ public class PrestamoManagementController implements Initializable {
         // Configurar columna de fecha de devolución esperada
         fechaDevolucionColumn.setCellValueFactory(cellData -> {
             Prestamo prestamo = cellData.getValue();
-            if (prestamo.getFechaDevolucionEsperada() != null) {
+            if (prestamo != null && prestamo.getFechaDevolucionEsperada() != null) {
                 return new javafx.beans.property.SimpleStringProperty(
                     prestamo.getFechaDevolucionEsperada().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))
                 );
@@ -191,15 +239,14 @@ public class PrestamoManagementController implements Initializable {
             @Override
             protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty) {
+                // Sin préstamo (fila vacía o página que se está cargando) no hay acciones
+                Prestamo prestamo = empty || getTableRow() == null ? null : getTableRow().getItem();
+                if (prestamo == null) {
                     setGraphic(null);
                 } else {
-                    Prestamo prestamo = getTableRow().getItem();
-                    if (prestamo != null) {
-                        // Mostrar/ocultar botones según el estado
-                        devolucionBtn.setVisible(prestamo.isActivo() || "VENCIDO".equals(prestamo.getEstado()));
-                        eliminarBtn.setVisible(!"ACTIVO".equals(prestamo.getEstado()) && !"VENCIDO".equals(prestamo.getEstado()));
-                    }
+                    // Mostrar/ocultar botones según el estado
+                    devolucionBtn.setVisible(prestamo.isActivo() || "VENCIDO".equals(prestamo.getEstado()));
+                    eliminarBtn.setVisible(!"ACTIVO".equals(prestamo.getEstado()) && !"VENCIDO".equals(prestamo.getEstado()));
                     setGraphic(actionBox);
                 }
             }
@@ -214,13 +261,13 @@ public class PrestamoManagementController implements Initializable {
         estadoFilter.getItems().addAll("Todos", "ACTIVO", "VENCIDO", "DEVUELTO", "PERDIDO");
         estadoFilter.setValue("Todos");
         
-        // Listener para búsqueda en tiempo real
+        // Listener para búsqueda en tiempo real (consulta cuando el usuario hace una pausa)
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
             filtrarPrestamos();
         });
         
         estadoFilter.valueProperty().addListener((observable, oldValue, newValue) -> {
-            filtrarPrestamos();
+            cargarPrestamos();
         });
     }
     
@@ -233,21 +280,21 @@ public class PrestamoManagementController implements Initializable {
         
         // Configurar botón renovar lista
         renovarListaBtn.setOnAction(e -> {
-            System.out.println("🔄 Renovando lista manualmente - invalidando caché...");
-            cargarPrestamos(true); // Forzar actualización
+            System.out.println("🔄 Renovando lista manualmente...");
+            actualizarPrestamos();
             actualizarEstadisticas();
         });
         
         // Configurar botones de búsqueda (si existen)
         if (btnBuscar != null) {
-            btnBuscar.setOnAction(e -> filtrarPrestamos());
+            btnBuscar.setOnAction(e -> cargarPrestamos());
         }
         
         if (btnLimpiarBusqueda != null) {
             btnLimpiarBusqueda.setOnAction(e -> {
                 searchField.clear();
                 estadoFilter.setValue("Todos");
-                filtrarPrestamos();
+                cargarPrestamos();
             });
         }
         
@@ -270,105 +317,110 @@ public class PrestamoManagementController implements Initializable {
     }
     
     /**
-     * Carga todos los préstamos en la tabla con sistema de caché optimizado
+     * Carga en la tabla los préstamos que cumplen los filtros actuales, por páginas: solo se
+     * consulta la primera y el resto se trae a medida que la tabla se desplaza. Los filtros se
+     * resuelven en la base de datos (PrestamoService.buscar), así que siempre reflejan los datos actuales.
+     * La primera página se consulta fuera del hilo de JavaFX y reemplaza a cualquier búsqueda en curso.
      */
     private void cargarPrestamos() {
-        cargarPrestamos(false);
+        busqueda.ejecutarAhora(criteriosActuales());
+    }
+    
+    private PrestamoService.CriteriosBusqueda criteriosActuales() {
+        String estadoFiltro = estadoFilter.getValue();
+        return new PrestamoService.CriteriosBusqueda(
+            searchField.getText(),
+            estadoFiltro == null || estadoFiltro.equals("Todos") ? null : estadoFiltro);
     }
     
     /**
-     * Carga todos los préstamos en la tabla con opción de forzar actualización
+     * Consulta la primera página (en el hilo de búsqueda); las siguientes las pide la lista
      */
-    private void cargarPrestamos(boolean forzarActualizacion) {
-        try {
-            long tiempoActual = System.currentTimeMillis();
-            boolean cacheValido = prestamosCache != null && 
-                                 (tiempoActual - ultimaActualizacionCache) < CACHE_DURATION_MS;
-            
-            List<Prestamo> prestamos;
-            
-            if (!forzarActualizacion && cacheValido) {
-                System.out.println("📋 Usando caché de préstamos (válido por " + 
-                    ((CACHE_DURATION_MS - (tiempoActual - ultimaActualizacionCache)) / 1000) + " segundos más)");
-                prestamos = prestamosCache;
-            } else {
-                System.out.println("🔄 Aplicando optimizaciones de alto rendimiento para carga de préstamos...");
-                long startTime = System.currentTimeMillis();
-                
-                prestamos = prestamoService.obtenerTodos();
-                prestamosCache = prestamos;
-                ultimaActualizacionCache = tiempoActual;
-                
-                long endTime = System.currentTimeMillis();
-                System.out.println("✅ Conexión obtenida exitosamente - " + prestamos.size() + 
-                    " préstamos cargados en " + (endTime - startTime) + "ms");
-            }
-            
-            prestamosTable.getItems().clear();
-            prestamosTable.getItems().addAll(prestamos);
-            
-            // Actualizar contador de resultados
-            if (lblResultados != null) {
-                lblResultados.setText("Mostrando " + prestamos.size() + " préstamos");
-            }
-            
-            // Actualizar timestamp
-            actualizarTimestamp();
-        } catch (SQLException e) {
-            notificationService.notifyError("Error al cargar préstamos", "Error: " + e.getMessage());
-            e.printStackTrace();
-        }
+    private ListaPrestamos consultarPrimeraPagina(PrestamoService.CriteriosBusqueda criterios,
+                                                  ConsultaCancelable cancelacion) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        int tamanoPagina = ConfigManager.getInstance().getPageSize();
+        
+        // La marca se toma antes de leer: un cambio hecho durante la carga llega en la próxima actualización
+        Timestamp marca = prestamoService.obtenerMarcaSincronizacion();
+        Pagina<Prestamo> primera = prestamoService.buscar(criterios, null, tamanoPagina, cancelacion);
+        System.out.println("✅ Primera página de préstamos cargada en " + (System.currentTimeMillis() - startTime) + "ms");
+        
+        LazyPagedList<Prestamo> prestamos = new LazyPagedList<>(
+            (token, tamano) -> prestamoService.buscar(criterios, token, tamano),
+            Prestamo::getId, primera, tamanoPagina, PAGINAS_EN_MEMORIA);
+        return new ListaPrestamos(criterios, prestamos, marca);
+    }
+    
+    private void mostrarPrestamos(ListaPrestamos lista) {
+        // Una actualización pendiente corresponde a la lista anterior
+        sincronizacion.cancelar();
+        
+        listaActual = lista;
+        listaActual.prestamos.addListener((ListChangeListener<Prestamo>) cambio -> actualizarContadorResultados());
+        prestamosTable.setItems(listaActual.prestamos);
+        
+        actualizarContadorResultados();
+        actualizarTimestamp();
     }
     
     /**
-     * Filtra los préstamos según los criterios seleccionados usando caché optimizado
+     * Actualiza la lista mostrada solo con los préstamos creados, modificados o eliminados desde
+     * la carga anterior (ver PrestamoService.obtenerCambios). Las filas se fusionan en la misma
+     * lista, así la tabla conserva la selección y el desplazamiento; si no se puede (una búsqueda
+     * o una recarga de la lista en curso) se vuelve a cargar la lista completa.
      */
-    private void filtrarPrestamos() {
-        try {
-            String textoBusqueda = searchField.getText().toLowerCase();
-            String estadoFiltro = estadoFilter.getValue();
-            
-            // Usar caché si está disponible, sino cargar datos
-            List<Prestamo> prestamos;
-            long tiempoActual = System.currentTimeMillis();
-            boolean cacheValido = prestamosCache != null && 
-                                 (tiempoActual - ultimaActualizacionCache) < CACHE_DURATION_MS;
-            
-            if (cacheValido) {
-                System.out.println("🔍 Filtrando usando caché de préstamos");
-                prestamos = prestamosCache;
-            } else {
-                System.out.println("🔄 Actualizando caché para filtrado...");
-                prestamos = prestamoService.obtenerTodos();
-                prestamosCache = prestamos;
-                ultimaActualizacionCache = tiempoActual;
-            }
-            
-            prestamosTable.getItems().clear();
-            
-            for (Prestamo prestamo : prestamos) {
-                boolean coincideTexto = textoBusqueda.isEmpty() || 
-                    prestamo.getCodigoPrestamo().toLowerCase().contains(textoBusqueda) ||
-                    prestamo.getLibroTitulo().toLowerCase().contains(textoBusqueda) ||
-                    prestamo.getLectorNombre().toLowerCase().contains(textoBusqueda) ||
-                    prestamo.getLibroIsbn().toLowerCase().contains(textoBusqueda);
-                
-                boolean coincideEstado = estadoFiltro.equals("Todos") || 
-                    prestamo.getEstado().equals(estadoFiltro);
-                
-                if (coincideTexto && coincideEstado) {
-                    prestamosTable.getItems().add(prestamo);
+    private void actualizarPrestamos() {
+        if (listaActual == null || busqueda.isOcupado()) {
+            cargarPrestamos();
+            return;
+        }
+        sincronizacion.ejecutarAhora(listaActual);
+    }
+    
+    private void aplicarCambios(PrestamoService.CambiosPrestamos cambios) {
+        Prestamo seleccionado = prestamosTable.getSelectionModel().getSelectedItem();
+        
+        if (!listaActual.prestamos.fusionar(cambios.actualizados, cambios.quitados, PrestamoService.ORDEN_PAGINAS)) {
+            cargarPrestamos();
+            return;
+        }
+        listaActual.marca = cambios.marca;
+        
+        // Un reemplazo en la fila seleccionada o un cambio de posición puede perder la selección
+        if (seleccionado != null) {
+            Prestamo actual = prestamosTable.getSelectionModel().getSelectedItem();
+            if (actual == null || !seleccionado.getId().equals(actual.getId())) {
+                int indice = listaActual.prestamos.indiceCargado(p -> seleccionado.getId().equals(p.getId()));
+                if (indice >= 0) {
+                    prestamosTable.getSelectionModel().select(indice);
+                } else {
+                    prestamosTable.getSelectionModel().clearSelection();
                 }
             }
-            
-            // Actualizar contador de resultados
-            if (lblResultados != null) {
-                lblResultados.setText("Mostrando " + prestamosTable.getItems().size() + " préstamos");
-            }
-        } catch (SQLException e) {
-            notificationService.notifyError("Error al filtrar préstamos", "Error: " + e.getMessage());
-            e.printStackTrace();
         }
+        
+        actualizarTimestamp();
+        if (!cambios.isVacio()) {
+            System.out.println("🔄 Préstamos actualizados: " + cambios.actualizados.size() +
+                              " nuevos o modificados, " + cambios.quitados.size() + " quitados");
+        }
+    }
+    
+    private void actualizarContadorResultados() {
+        if (lblResultados == null || listaActual == null) {
+            return;
+        }
+        
+        lblResultados.setText("Mostrando " + listaActual.prestamos.size() +
+            (listaActual.prestamos.hayMas() ? "+" : "") + " préstamos");
+    }
+    
+    /**
+     * Aplica los criterios de búsqueda mientras se escribe: espera a que el usuario haga una pausa
+     */
+    private void filtrarPrestamos() {
+        busqueda.solicitar(criteriosActuales());
     }
     
     /**
@@ -481,9 +533,25 @@ public class PrestamoManagementController implements Initializable {
                     detalles.append("Condición Devolución: ").append(prestamoCompleto.getCondicionDevolucion()).append("\n");
                 }
                 
-                if (prestamoCompleto.getMulta() > 0) {
+                // Multa según el libro mayor: movimientos del préstamo y saldo pendiente del lector
+                List<FineLedgerService.Movimiento> historial = fineLedgerService.obtenerHistorial(prestamoCompleto.getId());
+                double saldoMulta = fineLedgerService.obtenerSaldoPrestamo(prestamoCompleto.getId());
+                if (!historial.isEmpty()) {
                     detalles.append("Multa: S/. ").append(String.format("%.2f", prestamoCompleto.getMulta()));
-                    detalles.append(" - ").append(prestamoCompleto.isMultaPagada() ? "Pagada" : "Pendiente").append("\n");
+                    detalles.append(" - Pendiente: S/. ").append(String.format("%.2f", saldoMulta)).append("\n");
+                    for (FineLedgerService.Movimiento movimiento : historial) {
+                        detalles.append("   • ").append(movimiento.fecha.toLocalDateTime()
+                                .format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")))
+                            .append(" ").append(movimiento.tipo)
+                            .append(" S/. ").append(String.format("%.2f", movimiento.monto));
+                        if (movimiento.observaciones != null && !movimiento.observaciones.isEmpty()) {
+                            detalles.append(" (").append(movimiento.observaciones).append(")");
+                        }
+                        detalles.append("\n");
+                    }
+                    FineLedgerService.Saldo saldoLector = fineLedgerService.obtenerSaldoLector(prestamoCompleto.getLectorId());
+                    detalles.append("Saldo pendiente del lector: S/. ")
+                            .append(String.format("%.2f", saldoLector.getPendiente())).append("\n");
                 }
                 
                 if (prestamoCompleto.getObservacionesPrestamo() != null && !prestamoCompleto.getObservacionesPrestamo().isEmpty()) {
@@ -499,7 +567,21 @@ public class PrestamoManagementController implements Initializable {
                 alert.setHeaderText(null);
                 alert.setContentText(detalles.toString());
                 alert.getDialogPane().setPrefSize(500, 400);
-                alert.showAndWait();
+                
+                // Con saldo pendiente se puede pagar o condonar desde el detalle
+                ButtonType pagarBtn = new ButtonType("Registrar pago", ButtonBar.ButtonData.LEFT);
+                ButtonType condonarBtn = new ButtonType("Condonar", ButtonBar.ButtonData.LEFT);
+                if (saldoMulta >= 0.01) {
+                    alert.getButtonTypes().setAll(pagarBtn, condonarBtn, ButtonType.OK);
+                }
+                
+                alert.showAndWait().ifPresent(response -> {
+                    if (response == pagarBtn) {
+                        registrarAbonoMulta(prestamoCompleto, saldoMulta, false);
+                    } else if (response == condonarBtn) {
+                        registrarAbonoMulta(prestamoCompleto, saldoMulta, true);
+                    }
+                });
             }
         } catch (SQLException e) {
             notificationService.notifyError("Error al obtener detalles", "Error: " + e.getMessage());
@@ -507,6 +589,65 @@ public class PrestamoManagementController implements Initializable {
         }
     }
     
+    /**
+     * Registra un pago o una condonación de la multa de un préstamo en el libro mayor
+     */
+    private void registrarAbonoMulta(Prestamo prestamo, double saldo, boolean condonacion) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle(condonacion ? "Condonar Multa" : "Registrar Pago de Multa");
+        dialog.setHeaderText("Préstamo: " + prestamo.getCodigoPrestamo() +
+                             " - Saldo pendiente: S/. " + String.format("%.2f", saldo));
+        
+        TextField montoField = new TextField(String.format(Locale.US, "%.2f", saldo));
+        TextArea observacionesArea = new TextArea();
+        observacionesArea.setPromptText(condonacion ? "Motivo de la condonación" : "Observaciones (opcional)");
+        observacionesArea.setPrefRowCount(3);
+        
+        javafx.scene.layout.VBox content = new javafx.scene.layout.VBox(10);
+        content.getChildren().addAll(
+            new Label("Monto:"),
+            montoField,
+            new Label(condonacion ? "Motivo:" : "Observaciones:"),
+            observacionesArea
+        );
+        
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        
+        dialog.showAndWait().ifPresent(response -> {
+            if (response != ButtonType.OK) {
+                return;
+            }
+            String observaciones = observacionesArea.getText().trim();
+            if (condonacion && observaciones.isEmpty()) {
+                notificationService.notifyError("Motivo requerido", "Indique el motivo de la condonación.");
+                return;
+            }
+            
+            try {
+                double monto = Double.parseDouble(montoField.getText().trim().replace(',', '.'));
+                Usuario usuario = AuthService.getInstance().getUsuarioActual();
+                Long usuarioId = usuario != null ? usuario.getId() : null;
+                
+                if (condonacion) {
+                    fineLedgerService.condonar(prestamo.getId(), monto, usuarioId, observaciones);
+                } else {
+                    fineLedgerService.registrarPago(prestamo.getId(), monto, usuarioId,
+                                                    observaciones.isEmpty() ? null : observaciones);
+                }
+                notificationService.notifySuccess(condonacion ? "Multa condonada" : "Pago registrado",
+                    String.format("S/. %.2f del préstamo %s", monto, prestamo.getCodigoPrestamo()));
+                actualizarPrestamos();
+                actualizarEstadisticas();
+            } catch (NumberFormatException e) {
+                notificationService.notifyError("Monto inválido", "Ingrese un monto numérico, por ejemplo 12.50");
+            } catch (SQLException e) {
+                notificationService.notifyError(condonacion ? "Error al condonar multa" : "Error al registrar pago",
+                                                "Error: " + e.getMessage());
+            }
+        });
+    }
+    
     /**
      * Registra la devolución de un préstamo
      */
@@ -551,7 +692,7 @@ public class PrestamoManagementController implements Initializable {
                     if (exito) {
                         notificationService.notifySuccess("Devolución registrada", 
                             "La devolución del préstamo " + prestamo.getCodigoPrestamo() + " ha sido registrada exitosamente.");
-                        cargarPrestamos();
+                        actualizarPrestamos();
                         actualizarEstadisticas();
                     } else {
                         notificationService.notifyError("Error", "No se pudo registrar la devolución.");
@@ -580,7 +721,7 @@ public class PrestamoManagementController implements Initializable {
                     if (exito) {
                         notificationService.notifySuccess("Préstamo eliminado", 
                             "El préstamo " + prestamo.getCodigoPrestamo() + " ha sido eliminado exitosamente.");
-                        cargarPrestamos();
+                        actualizarPrestamos();
                         actualizarEstadisticas();
                     } else {
                         notificationService.notifyError("Error", "No se pudo eliminar el préstamo.");
@@ -594,11 +735,11 @@ public class PrestamoManagementController implements Initializable {
     }
     
     /**
-     * Refresca la tabla de préstamos invalidando el caché
+     * Refresca la tabla de préstamos con los cambios desde la última carga (la llama el formulario al guardar)
      */
     public void refrescarTabla() {
-        System.out.println("🔄 Refrescando tabla de préstamos - invalidando caché...");
-        cargarPrestamos(true); // Forzar actualización
+        System.out.println("🔄 Refrescando tabla de préstamos...");
+        actualizarPrestamos();
         actualizarEstadisticas();
     }
 }
\ No newline at end of file
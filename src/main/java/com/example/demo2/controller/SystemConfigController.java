@@ -1,8 +1,11 @@
 package com.example.demo2.controller;
 
+import com.example.demo2.database.ConsultaCancelable;
 import com.example.demo2.database.DatabaseManager;
 import com.example.demo2.service.ConfigurationService;
 import com.example.demo2.service.ConfigurationService.SystemConfiguration;
+import com.example.demo2.service.DataExportService;
+import com.example.demo2.service.FinePolicySimulator;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -14,6 +17,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import com.example.demo2.service.AppConfigService;
 
 /**
@@ -64,10 +69,19 @@ public class SystemConfigController {
     @FXML private Button btnRunBackup;
     @FXML private Button btnRestoreBackup;
     
+    // Elementos de exportación de datos
+    @FXML private ComboBox<String> cmbExportEntidad;
+    @FXML private ComboBox<String> cmbExportFormato;
+    @FXML private ProgressBar prgExportacion;
+    @FXML private Label lblExportProgreso;
+    @FXML private Button btnExportar;
+    @FXML private Button btnCancelarExportacion;
+    
     // Elementos de configuración de multas
     @FXML private Spinner<Integer> spnDiasGraciaMulta;
     @FXML private Spinner<Double> spnMontoMultaDiario;
     @FXML private Spinner<Double> spnMontoMultaMaxima;
+    @FXML private Button btnSimularMultas;
     
     // Elementos de personalización de logo de la aplicación
     @FXML private ImageView imgLogoAppPreview;
@@ -87,6 +101,8 @@ public class SystemConfigController {
     @FXML private TabPane configTabPane;
     
     private ConfigurationService configService;
+    private volatile FinePolicySimulator.Instantanea instantaneaMultas;
+    private ConsultaCancelable exportacionEnCurso;
     private MainController mainController;
     
     @FXML
@@ -156,6 +172,17 @@ public class SystemConfigController {
     }
     
     private void configurarComboBoxes() {
+        // Configurar exportación de datos (solo si existe)
+        if (cmbExportEntidad != null) {
+            cmbExportEntidad.setItems(FXCollections.observableArrayList("Préstamos", "Libros", "Lectores"));
+            cmbExportEntidad.setValue("Préstamos");
+        }
+        if (cmbExportFormato != null) {
+            cmbExportFormato.setItems(FXCollections.observableArrayList(
+                DataExportService.CSV, DataExportService.NDJSON));
+            cmbExportFormato.setValue(DataExportService.CSV);
+        }
+        
         // Configurar frecuencia de backups (solo si existe)
         if (cmbBackupFrequency != null) {
             cmbBackupFrequency.setItems(FXCollections.observableArrayList(
@@ -365,6 +392,103 @@ public class SystemConfigController {
     
 
     
+    @FXML
+    private void handleSimularMultas() {
+        if (spnDiasGraciaMulta == null || spnMontoMultaDiario == null || spnMontoMultaMaxima == null) {
+            return;
+        }
+        
+        SystemConfiguration config = configService.getConfiguracion();
+        FinePolicySimulator.Politica actual = new FinePolicySimulator.Politica(
+            config.diasGraciaMulta, config.montoMultaDiario, config.montoMultaMaxima);
+        FinePolicySimulator.Politica editada = new FinePolicySimulator.Politica(
+            spnDiasGraciaMulta.getValue(), spnMontoMultaDiario.getValue(), spnMontoMultaMaxima.getValue());
+        
+        // Además de la política guardada y la editada, variantes alrededor de la editada
+        List<FinePolicySimulator.Politica> politicas = new ArrayList<>();
+        politicas.add(actual);
+        politicas.add(editada);
+        for (int gracia = Math.max(0, editada.diasGracia - 2); gracia <= editada.diasGracia + 2; gracia += 2) {
+            for (double factor : new double[] {0.5, 1.0, 1.5}) {
+                if (gracia != editada.diasGracia || factor != 1.0) {
+                    politicas.add(new FinePolicySimulator.Politica(
+                        gracia, editada.multaPorDia * factor, editada.multaMaxima * factor));
+                }
+            }
+        }
+        
+        if (btnSimularMultas != null) {
+            btnSimularMultas.setDisable(true);
+            btnSimularMultas.setText("Simulando...");
+        }
+        
+        new Thread(() -> {
+            try {
+                FinePolicySimulator simulador = FinePolicySimulator.getInstance();
+                // Los préstamos se leen una vez por apertura de la pantalla; las simulaciones siguientes no consultan
+                if (instantaneaMultas == null) {
+                    instantaneaMultas = simulador.cargarInstantanea();
+                }
+                FinePolicySimulator.Instantanea instantanea = instantaneaMultas;
+                List<FinePolicySimulator.Resultado> resultados = simulador.simular(instantanea, politicas);
+                
+                javafx.application.Platform.runLater(() -> {
+                    mostrarSimulacionMultas(instantanea, resultados);
+                    if (btnSimularMultas != null) {
+                        btnSimularMultas.setDisable(false);
+                        btnSimularMultas.setText("Simular Impacto");
+                    }
+                });
+                
+            } catch (Exception e) {
+                javafx.application.Platform.runLater(() -> {
+                    mostrarError("Error en la Simulación", "No se pudieron leer los préstamos abiertos:\n" + e.getMessage());
+                    if (btnSimularMultas != null) {
+                        btnSimularMultas.setDisable(false);
+                        btnSimularMultas.setText("Simular Impacto");
+                    }
+                });
+            }
+        }).start();
+    }
+    
+    private void mostrarSimulacionMultas(FinePolicySimulator.Instantanea instantanea,
+                                         List<FinePolicySimulator.Resultado> resultados) {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format("Préstamos abiertos: %d de %d lectores (multas guardadas: $%.2f)%n",
+            instantanea.getPrestamos(), instantanea.getLectores(), instantanea.totalMultasActuales));
+        
+        for (int i = 0; i < resultados.size(); i++) {
+            FinePolicySimulator.Resultado r = resultados.get(i);
+            String etiqueta = i == 0 ? "GUARDADA" : i == 1 ? "EDITADA" : "VARIANTE";
+            texto.append(String.format("%n[%s] %s%n", etiqueta, r.politica));
+            texto.append(String.format("   Multas: $%.2f (%+.2f respecto a las guardadas)%n", r.ingresos, r.diferencia));
+            texto.append(String.format("   %d préstamos con multa, %d lectores afectados, promedio $%.2f, máximo $%.2f%n",
+                r.prestamosConMulta, r.lectoresAfectados, r.getPromedioPorLector(), r.maximoPorLector));
+            
+            texto.append("   Lectores por total:");
+            double anterior = 0;
+            for (int t = 0; t < FinePolicySimulator.TRAMOS.length; t++) {
+                double limite = FinePolicySimulator.TRAMOS[t] * r.politica.multaMaxima;
+                texto.append(String.format(" $%.0f-$%.0f: %d |", anterior, limite, r.distribucion[t]));
+                anterior = limite;
+            }
+            texto.append(String.format(" más de $%.0f: %d%n", anterior, r.distribucion[FinePolicySimulator.TRAMOS.length]));
+        }
+        
+        TextArea area = new TextArea(texto.toString());
+        area.setEditable(false);
+        area.setPrefSize(720, 420);
+        area.setStyle("-fx-font-family: monospace;");
+        
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Simulación de Multas");
+        alert.setHeaderText("Impacto de la política de multas sobre los préstamos abiertos (sin modificar datos)");
+        alert.getDialogPane().setContent(area);
+        alert.setResizable(true);
+        alert.showAndWait();
+    }
+    
     @FXML
     private void handleTestConnection() {
         System.out.println("🔍 Probando conexión a la base de datos...");
@@ -505,6 +629,92 @@ public class SystemConfigController {
         }).start();
     }
     
+    @FXML
+    private void handleExportar() {
+        if (exportacionEnCurso != null || cmbExportEntidad == null || cmbExportFormato == null) {
+            return;
+        }
+        
+        String entidad = switch (cmbExportEntidad.getValue()) {
+            case "Libros" -> DataExportService.LIBROS;
+            case "Lectores" -> DataExportService.LECTORES;
+            default -> DataExportService.PRESTAMOS;
+        };
+        String formato = cmbExportFormato.getValue();
+        
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Exportar " + cmbExportEntidad.getValue());
+        fileChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+        fileChooser.setInitialFileName(DataExportService.nombreSugerido(entidad, formato));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Archivos comprimidos (*.gz)", "*.gz"));
+        
+        File destino = fileChooser.showSaveDialog(btnExportar.getScene().getWindow());
+        if (destino == null) {
+            return;
+        }
+        
+        ConsultaCancelable cancelacion = new ConsultaCancelable();
+        exportacionEnCurso = cancelacion;
+        btnExportar.setDisable(true);
+        btnCancelarExportacion.setDisable(false);
+        prgExportacion.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        lblExportProgreso.setText("Iniciando exportación...");
+        
+        Thread thread = new Thread(() -> {
+            try {
+                DataExportService.Resultado resultado = DataExportService.getInstance().exportar(
+                    entidad, formato, destino.toPath(),
+                    (filas, total) -> javafx.application.Platform.runLater(() -> {
+                        prgExportacion.setProgress(total > 0 ? Math.min(1.0, (double) filas / total) : 1.0);
+                        lblExportProgreso.setText(String.format("%,d de %,d filas", filas, total));
+                    }),
+                    cancelacion);
+                
+                javafx.application.Platform.runLater(() -> {
+                    terminarExportacion(String.format("%,d filas exportadas", resultado.filas));
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Exportación Completada");
+                    alert.setHeaderText("✅ Exportación Exitosa");
+                    alert.setContentText(String.format("Se exportaron %,d filas en %.1f segundos.\n\n" +
+                        "• Archivo: %s\n" +
+                        "• Tamaño: %,d KB",
+                        resultado.filas, resultado.duracionMs / 1000.0, resultado.archivo, resultado.bytes / 1024));
+                    alert.showAndWait();
+                });
+                
+            } catch (Exception e) {
+                javafx.application.Platform.runLater(() -> {
+                    if (cancelacion.isCancelada()) {
+                        terminarExportacion("Exportación cancelada");
+                    } else {
+                        terminarExportacion("Error en la exportación");
+                        mostrarError("Error de Exportación", "No se pudieron exportar los datos:\n" + e.getMessage());
+                    }
+                });
+            }
+        }, "data-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @FXML
+    private void handleCancelarExportacion() {
+        if (exportacionEnCurso != null) {
+            System.out.println("⏹️ Cancelando exportación...");
+            btnCancelarExportacion.setDisable(true);
+            lblExportProgreso.setText("Cancelando...");
+            exportacionEnCurso.cancelar();
+        }
+    }
+    
+    private void terminarExportacion(String estado) {
+        exportacionEnCurso = null;
+        btnExportar.setDisable(false);
+        btnCancelarExportacion.setDisable(true);
+        prgExportacion.setProgress(0);
+        lblExportProgreso.setText(estado);
+    }
+    
     @FXML
     private void handleRestoreBackup() {
         System.out.println("📥 Iniciando restauración de backup...");
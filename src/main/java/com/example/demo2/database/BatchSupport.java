@@ -0,0 +1,90 @@
+package com.example.demo2.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilidades para operaciones en lote con addBatch/executeBatch.
+ *
+ * Se usan dentro de una unidad de trabajo (DatabaseManager.executeInTransaction):
+ * no hacen commit, así el lote completo se confirma o se deshace junto.
+ */
+public final class BatchSupport {
+    
+    /**
+     * Asigna los parámetros de una fila del lote
+     */
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T item) throws SQLException;
+    }
+    
+    private BatchSupport() {}
+    
+    /**
+     * Ejecuta la sentencia para cada elemento en tandas de batchSize filas
+     * (un viaje a la base de datos por tanda) y devuelve las filas afectadas por elemento
+     */
+    public static <T> int[] executeInChunks(Connection conn, String sql, List<T> items,
+                                            int batchSize, RowBinder<T> binder) throws SQLException {
+        int tamano = Math.max(1, batchSize);
+        int[] resultados = new int[items.size()];
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int inicio = 0; inicio < items.size(); inicio += tamano) {
+                List<T> tanda = items.subList(inicio, Math.min(inicio + tamano, items.size()));
+                
+                for (T item : tanda) {
+                    binder.bind(pstmt, item);
+                    pstmt.addBatch();
+                }
+                
+                int[] filas = pstmt.executeBatch();
+                System.arraycopy(filas, 0, resultados, inicio, filas.length);
+            }
+        }
+        
+        return resultados;
+    }
+    
+    /**
+     * Obtiene los IDs generados de filas recién insertadas buscándolas por una columna única.
+     * Oracle no devuelve claves generadas en executeBatch, así que se consultan de a batchSize
+     * claves; la lista IN se rellena siempre hasta batchSize para reutilizar la misma sentencia.
+     */
+    public static Map<String, Long> findIdsByKey(Connection conn, String table, String keyColumn,
+                                                 List<String> keys, int batchSize) throws SQLException {
+        int tamano = Math.max(1, batchSize);
+        Map<String, Long> ids = new HashMap<>();
+        if (keys.isEmpty()) {
+            return ids;
+        }
+        
+        String sql = "SELECT id, " + keyColumn + " FROM " + table + " WHERE " + keyColumn +
+                    " IN (" + "?, ".repeat(tamano - 1) + "?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int inicio = 0; inicio < keys.size(); inicio += tamano) {
+                List<String> tanda = keys.subList(inicio, Math.min(inicio + tamano, keys.size()));
+                
+                for (int i = 0; i < tamano; i++) {
+                    // Relleno con la última clave de la tanda
+                    pstmt.setString(i + 1, tanda.get(Math.min(i, tanda.size() - 1)));
+                }
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.put(rs.getString(2), rs.getLong(1));
+                    }
+                }
+            }
+        }
+        
+        return ids;
+    }
+}
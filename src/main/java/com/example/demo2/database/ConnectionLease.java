@@ -0,0 +1,76 @@
+package com.example.demo2.database;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Préstamo de una conexión del pool: quién la tomó, cuándo y (si se muestreó)
+ * desde dónde. Lo usa la detección de fugas para señalar el código que no la cierra.
+ */
+final class ConnectionLease {
+    
+    private static final String PAQUETE_APP = "com.example.demo2.";
+    private static final String PAQUETE_DATABASE = "com.example.demo2.database.";
+    
+    private final PoolEntry entry;
+    private final String threadName;
+    private final long checkoutAt;
+    private final Throwable checkoutTrace;          // null si este préstamo no se muestreó
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    private volatile boolean reported = false;
+    
+    ConnectionLease(PoolEntry entry, boolean captureStack) {
+        this.entry = entry;
+        this.threadName = Thread.currentThread().getName();
+        this.checkoutAt = System.currentTimeMillis();
+        this.checkoutTrace = captureStack ? new Throwable("Conexión prestada en hilo " + threadName) : null;
+    }
+    
+    PoolEntry getEntry() {
+        return entry;
+    }
+    
+    String getThreadName() {
+        return threadName;
+    }
+    
+    Throwable getCheckoutTrace() {
+        return checkoutTrace;
+    }
+    
+    long getHeldMillis(long now) {
+        return now - checkoutAt;
+    }
+    
+    /**
+     * Cierra el préstamo una sola vez: al devolver la conexión o al recuperarla por fuga
+     */
+    boolean finish() {
+        return finished.compareAndSet(false, true);
+    }
+    
+    boolean isReported() {
+        return reported;
+    }
+    
+    void markReported() {
+        reported = true;
+    }
+    
+    /**
+     * Primer punto de la aplicación fuera del paquete database que pidió la conexión
+     * (normalmente el servicio o controlador responsable)
+     */
+    String getOrigin() {
+        if (checkoutTrace == null) {
+            return "sin traza (no muestreado)";
+        }
+        
+        for (StackTraceElement frame : checkoutTrace.getStackTrace()) {
+            String clase = frame.getClassName();
+            if (clase.startsWith(PAQUETE_APP) && !clase.startsWith(PAQUETE_DATABASE)) {
+                return frame.toString();
+            }
+        }
+        return "desconocido";
+    }
+}
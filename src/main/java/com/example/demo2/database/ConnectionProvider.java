@@ -0,0 +1,47 @@
+package com.example.demo2.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Origen de las conexiones que entrega DatabaseManager.getConnection().
+ *
+ * Se elige al arrancar con db.pool.provider:
+ * - internal: pool propio (InternalPoolConnectionProvider)
+ * - ucp: Oracle Universal Connection Pool (UcpConnectionProvider)
+ *
+ * Las conexiones entregadas tienen autocommit desactivado y deben cerrarse
+ * (try-with-resources) para devolverlas al pool.
+ */
+public interface ConnectionProvider {
+    
+    /**
+     * Abre las conexiones iniciales del pool
+     */
+    void start() throws SQLException;
+    
+    /**
+     * Presta una conexión, esperando como máximo db.connection.timeout
+     */
+    Connection getConnection() throws SQLException;
+    
+    /**
+     * Cierra las conexiones libres; las que estén en uso se cierran al devolverse
+     */
+    void close();
+    
+    /**
+     * Indica si el pool está activo
+     */
+    boolean isActive();
+    
+    /**
+     * Nombre del proveedor para logs y diagnóstico
+     */
+    String getName();
+    
+    /**
+     * Estado y métricas del pool para getPerformanceInfo()
+     */
+    String getPoolInfo();
+}
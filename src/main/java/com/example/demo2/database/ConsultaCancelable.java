@@ -0,0 +1,71 @@
+package com.example.demo2.database;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permite cancelar desde otro hilo una consulta que se está ejecutando.
+ *
+ * El servicio registra el Statement justo antes de ejecutarlo y lo libera al terminar;
+ * cancelar() llama a Statement.cancel(), con lo que Oracle interrumpe la consulta en el
+ * servidor (ORA-01013) y el hilo que esperaba el ResultSet recibe una SQLException.
+ * Si la cancelación llega antes de registrar el Statement, la consulta ni siquiera se ejecuta.
+ */
+public final class ConsultaCancelable {
+    
+    /**
+     * Para las llamadas que no necesitan cancelación
+     */
+    public static final ConsultaCancelable NINGUNA = new ConsultaCancelable();
+    
+    private Statement statement;
+    private boolean cancelada = false;
+    
+    /**
+     * Asocia el Statement que se va a ejecutar
+     *
+     * @throws SQLException si la consulta ya fue cancelada
+     */
+    public synchronized void registrar(Statement statement) throws SQLException {
+        if (cancelada) {
+            throw new SQLException("Consulta cancelada antes de ejecutarse");
+        }
+        if (this != NINGUNA) {
+            this.statement = statement;
+        }
+    }
+    
+    /**
+     * Desasocia el Statement (llamar antes de cerrarlo)
+     */
+    public synchronized void liberar() {
+        statement = null;
+    }
+    
+    /**
+     * Cancela la consulta en curso, si la hay, y las que se intenten registrar después.
+     * cancel() se llama con el bloqueo tomado: así liberar() espera y el Statement no puede
+     * cerrarse ni volver a la caché de otra conexión del pool antes de cancelarlo.
+     */
+    public void cancelar() {
+        if (this == NINGUNA) {
+            return;
+        }
+        
+        synchronized (this) {
+            cancelada = true;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    System.err.println("⚠️ No se pudo cancelar la consulta: " + e.getMessage());
+                }
+                statement = null;
+            }
+        }
+    }
+    
+    public synchronized boolean isCancelada() {
+        return cancelada;
+    }
+}
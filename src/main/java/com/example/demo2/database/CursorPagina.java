@@ -0,0 +1,79 @@
+package com.example.demo2.database;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Codifica y decodifica los tokens de continuación de Pagina.
+ *
+ * El token guarda los valores de la clave de ordenación de la última fila
+ * entregada (por ejemplo fecha_prestamo e id) en Base64 URL-safe, de modo que
+ * la siguiente página se pide con un predicado "después de esta clave" que
+ * resuelve el índice, sin OFFSET y sin importar cuántas páginas se hayan leído.
+ */
+public final class CursorPagina {
+    
+    private static final String VERSION = "v1";
+    private static final char SEPARADOR = '\u001F';
+    private static final String NULO = "\u0000";
+    
+    private CursorPagina() {}
+    
+    /**
+     * Expresión de orden binario para claves de texto. La sesión puede ordenar con
+     * NLS_SORT lingüístico (según el idioma del cliente) mientras compara en binario;
+     * usando la misma expresión en ORDER BY, en el predicado y en el índice el orden
+     * de las páginas y el "después de" siempre coinciden.
+     */
+    public static String ordenBinario(String expresion) {
+        return "NLSSORT(" + expresion + ", 'NLS_SORT=BINARY')";
+    }
+    
+    /**
+     * Crea el token a partir de los valores de la clave (toString de cada uno, null permitido)
+     */
+    public static String codificar(Object... valores) {
+        StringBuilder sb = new StringBuilder(VERSION);
+        for (Object valor : valores) {
+            sb.append(SEPARADOR).append(valor == null ? NULO : valor.toString());
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Devuelve los valores guardados en el token (null donde se codificó null)
+     *
+     * @throws IllegalArgumentException si el token no es válido o no tiene el número de campos esperado
+     */
+    public static String[] decodificar(String token, int campos) {
+        String texto;
+        try {
+            texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token de paginación inválido", e);
+        }
+        
+        List<String> partes = new ArrayList<>();
+        int inicio = 0;
+        for (int i = 0; i <= texto.length(); i++) {
+            if (i == texto.length() || texto.charAt(i) == SEPARADOR) {
+                partes.add(texto.substring(inicio, i));
+                inicio = i + 1;
+            }
+        }
+        
+        if (partes.size() != campos + 1 || !VERSION.equals(partes.get(0))) {
+            throw new IllegalArgumentException("Token de paginación inválido");
+        }
+        
+        String[] valores = new String[campos];
+        for (int i = 0; i < campos; i++) {
+            String valor = partes.get(i + 1);
+            valores[i] = NULO.equals(valor) ? null : valor;
+        }
+        return valores;
+    }
+}
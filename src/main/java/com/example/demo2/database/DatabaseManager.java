@@ -8,9 +8,6 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicInteger;
-import com.example.demo2.database.PooledConnectionWrapper;
 
 /**
  * GESTOR DE BASE DE DATOS - CONEXIÓN A ORACLE CLOUD INFRASTRUCTURE
@@ -49,12 +46,8 @@ public class DatabaseManager {
     private ConfigManager config;               // Gestor de configuración (wallet, URLs, etc.)
     private boolean isInitialized = false;     // Estado de inicialización exitosa
     
-    // Pool de conexiones simple
-    private final ConcurrentLinkedQueue<Connection> connectionPool = new ConcurrentLinkedQueue<>();
-    private final AtomicInteger activeConnections = new AtomicInteger(0);
-    private final int MAX_POOL_SIZE = 10;
-    private final int MIN_POOL_SIZE = 3;
-    private boolean poolInitialized = false;
+    // Pool de conexiones: propio o UCP según db.pool.provider
+    private ConnectionProvider connectionProvider;
     
     private DatabaseManager() {
         config = ConfigManager.getInstance();
@@ -109,7 +102,8 @@ public class DatabaseManager {
                 initializeConnectionPool();
                 System.out.println("✅ Gestor de base de datos inicializado correctamente");
                 System.out.println("   - Modo: " + (config.isCloudMode() ? "☁️ Oracle Cloud" : "🏠 Local"));
-                System.out.println("   - Pool de conexiones: " + (poolInitialized ? "✅ Activo" : "❌ Inactivo"));
+                System.out.println("   - Pool de conexiones (" + connectionProvider.getName() + "): " +
+                    (connectionProvider.isActive() ? "✅ Activo" : "❌ Inactivo"));
             } else {
                 System.err.println("❌ Error: Falló la prueba de conexión inicial");
                 isInitialized = false;
@@ -128,39 +122,64 @@ public class DatabaseManager {
     }
     
     /**
-     * Inicializa el pool de conexiones
+     * Crea el proveedor del pool elegido en db.pool.provider y abre sus conexiones iniciales
      */
-    private void initializeConnectionPool() {
+    private synchronized void initializeConnectionPool() {
+        if (connectionProvider == null) {
+            connectionProvider = createConnectionProvider();
+        }
+        
         try {
-            System.out.println("🏊 Inicializando pool de conexiones...");
-            
-            // Crear conexiones iniciales
-            for (int i = 0; i < MIN_POOL_SIZE; i++) {
-                Connection conn = createNewConnection();
-                if (conn != null) {
-                    connectionPool.offer(conn);
-                    activeConnections.incrementAndGet();
-                }
-            }
-            
-            poolInitialized = true;
-            System.out.println("✅ Pool de conexiones inicializado con " + activeConnections.get() + " conexiones");
-            
-        } catch (Exception e) {
+            connectionProvider.start();
+        } catch (SQLException e) {
             System.err.println("❌ Error inicializando pool de conexiones: " + e.getMessage());
-            poolInitialized = false;
         }
     }
     
+    /**
+     * Instancia el proveedor configurado; si UCP no puede configurarse se usa el pool propio
+     */
+    private ConnectionProvider createConnectionProvider() {
+        String provider = config.getPoolProvider();
+        
+        if ("ucp".equals(provider)) {
+            try {
+                return new UcpConnectionProvider(config, buildConnectionProperties());
+            } catch (SQLException | RuntimeException | LinkageError e) {
+                System.err.println("⚠️ No se pudo configurar Oracle UCP, se usa el pool propio: " + e.getMessage());
+            }
+        } else if (!"internal".equals(provider)) {
+            System.err.println("⚠️ db.pool.provider desconocido '" + provider + "', se usa el pool propio");
+        }
+        
+        return new InternalPoolConnectionProvider(config, this::createNewConnection);
+    }
+    
     /**
      * Crea una nueva conexión física a la base de datos
      */
     private Connection createNewConnection() throws SQLException {
         String url = config.getDatabaseUrl();
+        if (url == null) {
+            throw new SQLException("Configuración de base de datos incompleta");
+        }
+        
+        Connection connection = DriverManager.getConnection(url, buildConnectionProperties());
+        
+        // Configurar la conexión para rendimiento
+        connection.setAutoCommit(false); // Control manual de transacciones
+        
+        return connection;
+    }
+    
+    /**
+     * Propiedades de conexión comunes a ambos proveedores del pool
+     */
+    private Properties buildConnectionProperties() throws SQLException {
         String username = config.getDatabaseUsername();
         String password = config.getDatabasePassword();
         
-        if (url == null || username == null || password == null) {
+        if (username == null || password == null) {
             throw new SQLException("Configuración de base de datos incompleta");
         }
         
@@ -180,99 +199,71 @@ public class DatabaseManager {
             // Configuraciones para alto rendimiento
             props.setProperty("oracle.jdbc.defaultRowPrefetch", String.valueOf(config.getFetchSize()));
             props.setProperty("oracle.jdbc.defaultBatchValue", String.valueOf(config.getBatchSize()));
-            props.setProperty("oracle.jdbc.implicitStatementCacheSize", "50");
+            if (config.getStatementCacheSize() == 0) {
+                // Sin caché propia del pool, delegar la reutilización de sentencias al driver
+                props.setProperty("oracle.jdbc.implicitStatementCacheSize", "50");
+            }
             props.setProperty("oracle.jdbc.maxCachedBufferSize", "20971520"); // 20MB
             props.setProperty("oracle.jdbc.ReadTimeout", "0"); // Sin timeout para consultas largas
         }
         
-        Connection connection = DriverManager.getConnection(url, props);
-        
-        // Configurar la conexión para rendimiento
-        connection.setAutoCommit(false); // Control manual de transacciones
-        
-        return connection;
+        return props;
     }
     
     /**
-     * Obtiene una conexión del pool
+     * Obtiene una conexión del pool.
+     * Si todas las conexiones están en uso, el hilo espera en una cola FIFO
+     * hasta que se libere una o se agote db.connection.timeout.
      */
     public Connection getConnection() throws SQLException {
         if (!isInitialized) {
             throw new SQLException("Gestor de base de datos no inicializado");
         }
         
-        if (!poolInitialized) {
+        if (connectionProvider == null || !connectionProvider.isActive()) {
             initializeConnectionPool();
         }
         
-        try {
-            // Intentar obtener una conexión del pool
-            Connection connection = connectionPool.poll();
-            
-            if (connection != null && !connection.isClosed()) {
-                // Conexión válida del pool
-                return new PooledConnectionWrapper(connection, this);
-            } else {
-                // Crear nueva conexión si el pool está vacío o la conexión está cerrada
-                if (activeConnections.get() < MAX_POOL_SIZE) {
-                    connection = createNewConnection();
-                    activeConnections.incrementAndGet();
-                    return new PooledConnectionWrapper(connection, this);
-                } else {
-                    throw new SQLException("Pool de conexiones agotado. Máximo: " + MAX_POOL_SIZE);
-                }
+        return connectionProvider.getConnection();
+    }
+    
+    /**
+     * Ejecuta una unidad de trabajo en una sola conexión y una sola transacción:
+     * confirma si termina sin errores y deshace todo si lanza una excepción
+     */
+    public <T> T executeInTransaction(UnitOfWork<T> work) throws SQLException {
+        try (Connection connection = getConnection()) {
+            try {
+                T resultado = work.execute(connection);
+                connection.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
             }
-            
-        } catch (SQLException e) {
-            System.err.println("❌ Error obteniendo conexión del pool: " + e.getMessage());
-            throw e;
         }
     }
     
     /**
-      * Devuelve una conexión al pool
-      */
-     public void returnConnection(Connection connection) {
-         if (connection != null && poolInitialized) {
-             try {
-                 if (!connection.isClosed()) {
-                     // Resetear el estado de la conexión
-                     if (!connection.getAutoCommit()) {
-                         connection.rollback(); // Limpiar cualquier transacción pendiente
-                     }
-                     connectionPool.offer(connection);
-                 } else {
-                     // Conexión cerrada, decrementar contador
-                     activeConnections.decrementAndGet();
-                 }
-             } catch (SQLException e) {
-                 System.err.println("⚠️ Error devolviendo conexión al pool: " + e.getMessage());
-                 activeConnections.decrementAndGet();
-             }
-         }
-     }
-     
-     /**
-      * Cierra todas las conexiones del pool
-      */
-     public void closePool() {
-         System.out.println("🔒 Cerrando pool de conexiones...");
-         
-         Connection conn;
-         while ((conn = connectionPool.poll()) != null) {
-             try {
-                 if (!conn.isClosed()) {
-                     conn.close();
-                 }
-             } catch (SQLException e) {
-                 System.err.println("⚠️ Error cerrando conexión del pool: " + e.getMessage());
-             }
-         }
-         
-         activeConnections.set(0);
-         poolInitialized = false;
-         System.out.println("✅ Pool de conexiones cerrado");
-     }
+     * Obtiene el proveedor activo del pool (por ejemplo, para préstamos etiquetados con UCP)
+     */
+    public ConnectionProvider getConnectionProvider() {
+        return connectionProvider;
+    }
+    
+    /**
+     * Cierra todas las conexiones libres del pool.
+     * Las conexiones que estén en uso se cierran al devolverse.
+     */
+    public synchronized void closePool() {
+        System.out.println("🔒 Cerrando pool de conexiones...");
+        
+        if (connectionProvider != null) {
+            connectionProvider.close();
+        }
+        
+        System.out.println("✅ Pool de conexiones cerrado");
+    }
     
     /**
      * Prueba la conexión a la base de datos
@@ -438,16 +429,8 @@ public class DatabaseManager {
             return "❌ Manager no inicializado";
         }
         
-        String poolInfo = String.format(
-            "\n🏊 POOL DE CONEXIONES:\n" +
-            "   Estado: %s\n" +
-            "   Conexiones activas: %d/%d\n" +
-            "   Conexiones disponibles: %d",
-            poolInitialized ? "✅ Activo" : "❌ Inactivo",
-            activeConnections.get(),
-            MAX_POOL_SIZE,
-            connectionPool.size()
-        );
+        String poolInfo = "\n🏊 POOL DE CONEXIONES:\n" +
+            (connectionProvider != null ? connectionProvider.getPoolInfo() : "   Estado: ❌ Inactivo");
         
         return config.getPerformanceInfo() + poolInfo;
     }
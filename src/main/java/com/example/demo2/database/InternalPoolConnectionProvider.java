@@ -0,0 +1,542 @@
+package com.example.demo2.database;
+
+import com.example.demo2.config.ConfigManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de conexiones propio (db.pool.provider=internal).
+ *
+ * - Acotado entre db.pool.min_size y db.pool.max_size con espera FIFO justa
+ * - Mantenimiento en segundo plano: vencimiento, desalojo de ociosas y keep-alive
+ * - Caché LRU de sentencias preparadas por conexión física
+ * - Detección opcional de fugas: conexiones prestadas más de db.pool.leak_detection_threshold
+ */
+public class InternalPoolConnectionProvider implements ConnectionProvider {
+    
+    /**
+     * Abre una conexión física nueva (la provee DatabaseManager)
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+    
+    private final ConnectionFactory connectionFactory;
+    
+    // Pool de conexiones acotado (tamaños y timeout definidos en database.properties)
+    private final ConcurrentLinkedQueue<PoolEntry> connectionPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeConnections = new AtomicInteger(0);   // Conexiones físicas abiertas
+    private final int maxPoolSize;                                           // db.pool.max_size
+    private final int minPoolSize;                                           // db.pool.min_size
+    private final long connectionTimeoutMillis;                              // db.connection.timeout
+    private final Semaphore poolPermits;                                     // Un permiso por conexión prestable, cola FIFO justa
+    private volatile boolean poolInitialized = false;
+    
+    // Mantenimiento en segundo plano del pool
+    private final long idleTimeoutMillis;                                    // db.pool.idle_timeout
+    private final long maxLifetimeMillis;                                    // db.pool.max_lifetime
+    private final long keepAliveMillis;                                      // db.pool.keepalive_interval
+    private final int validationTimeoutSeconds;                              // db.pool.validation_timeout
+    private final long housekeepingIntervalSeconds;                          // db.pool.housekeeping_interval
+    private ScheduledExecutorService housekeeper;
+    private final AtomicLong connectionsRetired = new AtomicLong(0);
+    private final AtomicLong connectionsEvicted = new AtomicLong(0);
+    private final AtomicLong connectionsInvalid = new AtomicLong(0);
+    
+    // Caché de sentencias preparadas por conexión física
+    private final int statementCacheSize;                                    // db.performance.statement_cache_size
+    private final AtomicLong statementCacheHits = new AtomicLong(0);
+    private final AtomicLong statementCacheMisses = new AtomicLong(0);
+    
+    // Detección de fugas (conexiones prestadas que nunca se cierran)
+    private final long leakThresholdMillis;                                  // db.pool.leak_detection_threshold (0 = desactivada)
+    private final int leakStackSampleRate;                                   // db.pool.leak_stack_sample_rate
+    private final boolean leakReclaim;                                       // db.pool.leak_reclaim
+    private final ConcurrentHashMap<PoolEntry, ConnectionLease> borrowed = new ConcurrentHashMap<>();
+    private final AtomicLong leaksDetected = new AtomicLong(0);
+    private final AtomicLong leaksReclaimed = new AtomicLong(0);
+    
+    // Métricas de espera del pool
+    private final AtomicLong totalCheckouts = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong checkoutTimeouts = new AtomicLong(0);
+    
+    InternalPoolConnectionProvider(ConfigManager config, ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        minPoolSize = config.getPoolMinSize();
+        maxPoolSize = config.getPoolMaxSize();
+        connectionTimeoutMillis = TimeUnit.SECONDS.toMillis(config.getConnectionTimeout());
+        poolPermits = new Semaphore(maxPoolSize, true);
+        idleTimeoutMillis = TimeUnit.SECONDS.toMillis(config.getPoolIdleTimeout());
+        maxLifetimeMillis = TimeUnit.SECONDS.toMillis(config.getPoolMaxLifetime());
+        keepAliveMillis = TimeUnit.SECONDS.toMillis(config.getPoolKeepAliveInterval());
+        validationTimeoutSeconds = config.getPoolValidationTimeout();
+        housekeepingIntervalSeconds = config.getPoolHousekeepingInterval();
+        statementCacheSize = config.getStatementCacheSize();
+        leakThresholdMillis = TimeUnit.SECONDS.toMillis(config.getLeakDetectionThreshold());
+        leakStackSampleRate = config.getLeakStackSampleRate();
+        leakReclaim = config.isLeakReclaimEnabled();
+    }
+    
+    @Override
+    public String getName() {
+        return "internal";
+    }
+    
+    @Override
+    public boolean isActive() {
+        return poolInitialized;
+    }
+    
+    /**
+     * Inicializa el pool de conexiones y arranca el mantenimiento en segundo plano
+     */
+    @Override
+    public synchronized void start() {
+        initializeConnectionPool();
+        
+        if (housekeeper == null) {
+            housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "db-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            housekeeper.scheduleWithFixedDelay(this::runHousekeeping,
+                housekeepingIntervalSeconds, housekeepingIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Inicializa el pool de conexiones
+     */
+    private synchronized void initializeConnectionPool() {
+        if (poolInitialized) {
+            return;
+        }
+        
+        try {
+            System.out.println("🏊 Inicializando pool de conexiones (mín: " + minPoolSize + ", máx: " + maxPoolSize + ")...");
+            
+            // Crear conexiones iniciales
+            for (int i = activeConnections.get(); i < minPoolSize; i++) {
+                Connection conn = connectionFactory.create();
+                if (conn != null) {
+                    connectionPool.offer(newPoolEntry(conn));
+                    activeConnections.incrementAndGet();
+                }
+            }
+            
+            poolInitialized = true;
+            System.out.println("✅ Pool de conexiones inicializado con " + activeConnections.get() + " conexiones");
+            
+        } catch (Exception e) {
+            System.err.println("❌ Error inicializando pool de conexiones: " + e.getMessage());
+            poolInitialized = false;
+        }
+    }
+    
+    /**
+     * Registra una conexión física nueva junto con su caché de sentencias
+     */
+    private PoolEntry newPoolEntry(Connection connection) {
+        StatementCache cache = statementCacheSize > 0
+            ? new StatementCache(statementCacheSize, statementCacheHits, statementCacheMisses)
+            : null;
+        return new PoolEntry(connection, cache);
+    }
+    
+    /**
+     * Envuelve una conexión del pool para que close() la devuelva en lugar de cerrarla.
+     * Con la detección de fugas activa se registra el préstamo (y su traza si toca muestrear).
+     */
+    private Connection wrap(PoolEntry entry) {
+        boolean detectarFugas = leakThresholdMillis > 0;
+        boolean capturarTraza = detectarFugas && totalCheckouts.get() % leakStackSampleRate == 0;
+        ConnectionLease lease = new ConnectionLease(entry, capturarTraza);
+        
+        if (detectarFugas) {
+            borrowed.put(entry, lease);
+        }
+        return new PooledConnectionWrapper(entry.getConnection(), entry.getStatementCache(),
+            () -> returnConnection(lease));
+    }
+    
+    /**
+     * Obtiene una conexión del pool.
+     * Si todas las conexiones están en uso, el hilo espera en una cola FIFO
+     * hasta que se libere una o se agote db.connection.timeout.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!poolInitialized) {
+            initializeConnectionPool();
+        }
+        
+        acquirePermit();
+        
+        try {
+            // Reutilizar una conexión libre del pool, descartando las cerradas, vencidas o caídas
+            PoolEntry entry;
+            while ((entry = connectionPool.poll()) != null) {
+                if (isUsable(entry)) {
+                    entry.markUsed();
+                    return wrap(entry);
+                }
+                closePhysicalConnection(entry);
+            }
+            
+            // No hay conexiones libres: el permiso obtenido garantiza que no se supera el máximo
+            entry = newPoolEntry(connectionFactory.create());
+            activeConnections.incrementAndGet();
+            return wrap(entry);
+            
+        } catch (SQLException | RuntimeException e) {
+            poolPermits.release();
+            System.err.println("❌ Error obteniendo conexión del pool: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * Espera (en orden de llegada) un permiso del pool respetando el timeout configurado
+     */
+    private void acquirePermit() throws SQLException {
+        long inicio = System.nanoTime();
+        boolean acquired;
+        
+        try {
+            acquired = poolPermits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+        
+        if (!acquired) {
+            checkoutTimeouts.incrementAndGet();
+            throw new SQLTimeoutException(String.format(
+                "Pool de conexiones agotado: no se liberó ninguna conexión en %d ms (máximo: %d, en espera: %d)",
+                connectionTimeoutMillis, maxPoolSize, poolPermits.getQueueLength()));
+        }
+        
+        totalCheckouts.incrementAndGet();
+        totalWaitNanos.addAndGet(System.nanoTime() - inicio);
+    }
+    
+    /**
+     * Verifica si una conexión libre puede entregarse.
+     * Solo valida contra la base de datos las que llevan más del intervalo keep-alive sin tráfico.
+     */
+    private boolean isUsable(PoolEntry entry) {
+        long now = System.currentTimeMillis();
+        try {
+            if (entry.getConnection().isClosed() || entry.getAgeMillis(now) >= maxLifetimeMillis) {
+                return false;
+            }
+            return entry.getSilentMillis(now) < keepAliveMillis || isAlive(entry);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Valida una conexión con un viaje a la base de datos (también actúa como keep-alive)
+     */
+    private boolean isAlive(PoolEntry entry) {
+        try {
+            if (entry.getConnection().isValid(validationTimeoutSeconds)) {
+                entry.markValidated();
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Conexión del pool no válida: " + e.getMessage());
+        }
+        connectionsInvalid.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Devuelve una conexión al pool y libera su permiso para el siguiente hilo en espera
+     */
+    private void returnConnection(ConnectionLease lease) {
+        // Si la conexión ya fue recuperada por fuga, su permiso ya se liberó
+        if (lease == null || !lease.finish()) {
+            return;
+        }
+        
+        PoolEntry entry = lease.getEntry();
+        borrowed.remove(entry);
+        if (lease.isReported()) {
+            System.out.printf("ℹ️ Conexión reportada como fuga devuelta tras %d s (hilo %s, origen %s)%n",
+                TimeUnit.MILLISECONDS.toSeconds(lease.getHeldMillis(System.currentTimeMillis())),
+                lease.getThreadName(), lease.getOrigin());
+        }
+        
+        Connection connection = entry.getConnection();
+        try {
+            if (!poolInitialized || connection.isClosed()) {
+                // Pool cerrado o conexión cerrada: descartar la conexión física
+                closePhysicalConnection(entry);
+            } else if (entry.getAgeMillis(System.currentTimeMillis()) >= maxLifetimeMillis) {
+                // Conexión vencida: se retira y el mantenimiento repone el mínimo
+                closePhysicalConnection(entry);
+                connectionsRetired.incrementAndGet();
+            } else {
+                // Resetear el estado de la conexión
+                if (!connection.getAutoCommit()) {
+                    connection.rollback(); // Limpiar cualquier transacción pendiente
+                }
+                entry.markUsed();
+                connectionPool.offer(entry);
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error devolviendo conexión al pool: " + e.getMessage());
+            closePhysicalConnection(entry);
+        } finally {
+            poolPermits.release();
+        }
+    }
+    
+    /**
+     * Cierra una conexión física descontándola del total del pool
+     */
+    private void closePhysicalConnection(PoolEntry entry) {
+        try {
+            entry.closeStatements();
+            if (!entry.getConnection().isClosed()) {
+                entry.getConnection().close();
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error cerrando conexión del pool: " + e.getMessage());
+        } finally {
+            activeConnections.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Mantenimiento periódico del pool:
+     * 1. Retira conexiones que superaron db.pool.max_lifetime
+     * 2. Cierra conexiones ociosas por encima del mínimo tras db.pool.idle_timeout
+     * 3. Valida (keep-alive) las conexiones libres sin tráfico reciente
+     * 4. Repone conexiones hasta db.pool.min_size para que el handshake TLS no ocurra al hacer clic
+     */
+    private void runHousekeeping() {
+        if (!poolInitialized) {
+            return;
+        }
+        
+        try {
+            if (leakThresholdMillis > 0) {
+                detectLeaks();
+            }
+            
+            int retiradas = 0;
+            int desalojadas = 0;
+            int invalidas = 0;
+            long now = System.currentTimeMillis();
+            
+            for (PoolEntry entry : connectionPool) {
+                boolean vencida = entry.getAgeMillis(now) >= maxLifetimeMillis;
+                boolean ociosa = entry.getIdleMillis(now) >= idleTimeoutMillis && activeConnections.get() > minPoolSize;
+                boolean requiereKeepAlive = entry.getSilentMillis(now) >= keepAliveMillis;
+                
+                if (!vencida && !ociosa && !requiereKeepAlive) {
+                    continue;
+                }
+                
+                // Si otro hilo ya tomó la conexión, no se toca
+                if (!connectionPool.remove(entry)) {
+                    continue;
+                }
+                
+                if (vencida) {
+                    closePhysicalConnection(entry);
+                    connectionsRetired.incrementAndGet();
+                    retiradas++;
+                } else if (ociosa) {
+                    closePhysicalConnection(entry);
+                    connectionsEvicted.incrementAndGet();
+                    desalojadas++;
+                } else if (isAlive(entry)) {
+                    connectionPool.offer(entry);
+                } else {
+                    closePhysicalConnection(entry);
+                    invalidas++;
+                }
+            }
+            
+            int creadas = fillToMinimum();
+            
+            if (retiradas + desalojadas + invalidas + creadas > 0) {
+                System.out.printf("🧹 Mantenimiento del pool: %d vencidas, %d ociosas, %d inválidas, %d nuevas (total: %d)%n",
+                    retiradas, desalojadas, invalidas, creadas, activeConnections.get());
+            }
+            
+        } catch (Exception e) {
+            System.err.println("⚠️ Error en mantenimiento del pool: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reporta las conexiones prestadas por encima del umbral de fuga y,
+     * si db.pool.leak_reclaim está activo, cierra la conexión física y libera su permiso
+     */
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        
+        for (ConnectionLease lease : borrowed.values()) {
+            if (lease.getHeldMillis(now) < leakThresholdMillis) {
+                continue;
+            }
+            
+            if (!lease.isReported()) {
+                lease.markReported();
+                leaksDetected.incrementAndGet();
+                System.err.printf("🚰 Posible fuga de conexión: prestada hace %d s al hilo %s desde %s%n",
+                    TimeUnit.MILLISECONDS.toSeconds(lease.getHeldMillis(now)), lease.getThreadName(), lease.getOrigin());
+                if (lease.getCheckoutTrace() != null) {
+                    lease.getCheckoutTrace().printStackTrace();
+                }
+            }
+            
+            if (leakReclaim && lease.finish()) {
+                borrowed.remove(lease.getEntry());
+                closePhysicalConnection(lease.getEntry());
+                poolPermits.release();
+                leaksReclaimed.incrementAndGet();
+                System.err.println("♻️ Conexión recuperada del hilo " + lease.getThreadName());
+            }
+        }
+    }
+    
+    /**
+     * Abre conexiones hasta alcanzar el mínimo configurado.
+     * Cada apertura toma un permiso libre, así nunca se supera el máximo del pool.
+     */
+    private int fillToMinimum() {
+        int creadas = 0;
+        
+        while (poolInitialized && activeConnections.get() < minPoolSize) {
+            // Si hay hilos esperando, ellos mismos abrirán la conexión que necesitan
+            if (poolPermits.hasQueuedThreads() || !poolPermits.tryAcquire()) {
+                break;
+            }
+            try {
+                connectionPool.offer(newPoolEntry(connectionFactory.create()));
+                activeConnections.incrementAndGet();
+                creadas++;
+            } catch (SQLException e) {
+                System.err.println("⚠️ No se pudo reponer conexión del pool: " + e.getMessage());
+                break;
+            } finally {
+                poolPermits.release();
+            }
+        }
+        
+        return creadas;
+    }
+    
+    /**
+     * Cierra todas las conexiones libres del pool.
+     * Las conexiones que estén en uso se cierran al devolverse.
+     */
+    @Override
+    public synchronized void close() {
+        poolInitialized = false;
+        
+        PoolEntry entry;
+        while ((entry = connectionPool.poll()) != null) {
+            closePhysicalConnection(entry);
+        }
+    }
+    
+    @Override
+    public String getPoolInfo() {
+        long checkouts = totalCheckouts.get();
+        return String.format(
+            "   Proveedor: %s\n" +
+            "   Estado: %s\n" +
+            "   Conexiones activas: %d/%d (mínimo: %d)\n" +
+            "   Conexiones disponibles: %d\n" +
+            "   Conexiones en uso: %d\n" +
+            "   Hilos en espera: %d\n" +
+            "   Espera promedio: %.2f ms (timeout: %d ms, agotados: %d)\n" +
+            "   Mantenimiento: %d vencidas, %d ociosas, %d inválidas\n" +
+            "   Caché de sentencias: %s\n" +
+            "   Detección de fugas: %s",
+            getName(),
+            poolInitialized ? "✅ Activo" : "❌ Inactivo",
+            activeConnections.get(),
+            maxPoolSize,
+            minPoolSize,
+            connectionPool.size(),
+            maxPoolSize - poolPermits.availablePermits(),
+            poolPermits.getQueueLength(),
+            checkouts > 0 ? totalWaitNanos.get() / 1_000_000.0 / checkouts : 0.0,
+            connectionTimeoutMillis,
+            checkoutTimeouts.get(),
+            connectionsRetired.get(),
+            connectionsEvicted.get(),
+            connectionsInvalid.get(),
+            getStatementCacheInfo(),
+            getLeakInfo()
+        );
+    }
+    
+    /**
+     * Resume las fugas detectadas y lista las conexiones que siguen prestadas
+     * por encima del umbral, con el hilo y el punto de la aplicación que las pidió
+     */
+    private String getLeakInfo() {
+        if (leakThresholdMillis == 0) {
+            return "❌ Desactivada";
+        }
+        
+        long now = System.currentTimeMillis();
+        List<ConnectionLease> sospechosas = new ArrayList<>();
+        for (ConnectionLease lease : borrowed.values()) {
+            if (lease.getHeldMillis(now) >= leakThresholdMillis) {
+                sospechosas.add(lease);
+            }
+        }
+        sospechosas.sort(Comparator.comparingLong((ConnectionLease lease) -> lease.getHeldMillis(now)).reversed());
+        
+        StringBuilder info = new StringBuilder(String.format(
+            "umbral %d s, %d detectadas, %d recuperadas, %d prestadas ahora por encima del umbral",
+            TimeUnit.MILLISECONDS.toSeconds(leakThresholdMillis), leaksDetected.get(), leaksReclaimed.get(), sospechosas.size()));
+        
+        for (ConnectionLease lease : sospechosas.subList(0, Math.min(5, sospechosas.size()))) {
+            info.append(String.format("\n     - %d s, hilo %s, desde %s",
+                TimeUnit.MILLISECONDS.toSeconds(lease.getHeldMillis(now)), lease.getThreadName(), lease.getOrigin()));
+        }
+        return info.toString();
+    }
+    
+    /**
+     * Resume el uso de la caché de sentencias preparadas
+     */
+    private String getStatementCacheInfo() {
+        if (statementCacheSize == 0) {
+            return "❌ Desactivada";
+        }
+        
+        long hits = statementCacheHits.get();
+        long misses = statementCacheMisses.get();
+        long total = hits + misses;
+        return String.format("%d por conexión, %d aciertos / %d fallos (%.1f%%)",
+            statementCacheSize, hits, misses, total > 0 ? hits * 100.0 / total : 0.0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo2.database;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados de un listado paginado por clave (keyset).
+ *
+ * tokenSiguiente es opaco para quien llama: se pasa tal cual a la siguiente
+ * consulta para continuar justo después de la última fila de esta página.
+ * Es null cuando no quedan más filas.
+ */
+public final class Pagina<T> {
+    
+    private final List<T> elementos;
+    private final String tokenSiguiente;
+    
+    public Pagina(List<T> elementos, String tokenSiguiente) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.tokenSiguiente = tokenSiguiente;
+    }
+    
+    public List<T> getElementos() {
+        return elementos;
+    }
+    
+    public String getTokenSiguiente() {
+        return tokenSiguiente;
+    }
+    
+    public boolean hayMas() {
+        return tokenSiguiente != null;
+    }
+    
+    public int size() {
+        return elementos.size();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo2.database;
+
+import java.sql.Connection;
+
+/**
+ * Conexión física administrada por el pool junto con los tiempos
+ * que usa el mantenimiento para decidir si validarla, retirarla o cerrarla,
+ * y la caché de sentencias preparadas que sobrevive entre préstamos
+ */
+final class PoolEntry {
+    
+    private final Connection connection;
+    private final StatementCache statementCache;   // null si la caché está desactivada
+    private final long createdAt;
+    private volatile long lastUsedAt;       // Último préstamo o devolución
+    private volatile long lastValidatedAt;  // Última validación keep-alive
+    
+    PoolEntry(Connection connection, StatementCache statementCache) {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.createdAt = System.currentTimeMillis();
+        this.lastUsedAt = createdAt;
+        this.lastValidatedAt = createdAt;
+    }
+    
+    Connection getConnection() {
+        return connection;
+    }
+    
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+    
+    /**
+     * Cierra las sentencias en caché; se invoca antes de cerrar la conexión física
+     */
+    void closeStatements() {
+        if (statementCache != null) {
+            statementCache.close();
+        }
+    }
+    
+    void markUsed() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+    
+    void markValidated() {
+        lastValidatedAt = System.currentTimeMillis();
+    }
+    
+    /**
+     * Tiempo de vida de la conexión física
+     */
+    long getAgeMillis(long now) {
+        return now - createdAt;
+    }
+    
+    /**
+     * Tiempo que la conexión lleva libre en el pool
+     */
+    long getIdleMillis(long now) {
+        return now - lastUsedAt;
+    }
+    
+    /**
+     * Tiempo sin tráfico hacia la base de datos (ni uso ni validación)
+     */
+    long getSilentMillis(long now) {
+        return now - Math.max(lastUsedAt, lastValidatedAt);
+    }
+}
@@ -11,13 +11,23 @@ import java.util.concurrent.Executor;
  */
 public class PooledConnectionWrapper implements Connection {
     
+    /**
+     * Acción que devuelve la conexión física a su pool
+     */
+    @FunctionalInterface
+    interface ReturnAction {
+        void returnConnection() throws SQLException;
+    }
+    
     private final Connection realConnection;
-    private final DatabaseManager databaseManager;
+    private final StatementCache statementCache;   // null si la caché está desactivada
+    private final ReturnAction returnAction;
     private boolean closed = false;
     
-    public PooledConnectionWrapper(Connection realConnection, DatabaseManager databaseManager) {
+    PooledConnectionWrapper(Connection realConnection, StatementCache statementCache, ReturnAction returnAction) {
         this.realConnection = realConnection;
-        this.databaseManager = databaseManager;
+        this.statementCache = statementCache;
+        this.returnAction = returnAction;
     }
     
     @Override
@@ -25,7 +35,7 @@ public class PooledConnectionWrapper implements Connection {
         if (!closed) {
             closed = true;
             // En lugar de cerrar la conexión, la devolvemos al pool
-            databaseManager.returnConnection(realConnection);
+            returnAction.returnConnection();
         }
     }
     
@@ -40,9 +50,20 @@ public class PooledConnectionWrapper implements Connection {
         return realConnection.createStatement();
     }
     
+    /**
+     * Entrega una sentencia de la caché de la conexión física (o la prepara si no existe)
+     */
+    private PreparedStatement prepareCached(StatementCache.Key key, StatementCache.StatementFactory factory) throws SQLException {
+        if (statementCache == null) {
+            return factory.create();
+        }
+        return new CachedPreparedStatement(statementCache.acquire(key, factory), key, statementCache, this);
+    }
+    
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return realConnection.prepareStatement(sql);
+        return prepareCached(StatementCache.Key.of(sql),
+            () -> realConnection.prepareStatement(sql));
     }
     
     @Override
@@ -127,7 +148,8 @@ public class PooledConnectionWrapper implements Connection {
     
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        return prepareCached(StatementCache.Key.of(sql, resultSetType, resultSetConcurrency),
+            () -> realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency));
     }
     
     @Override
@@ -182,7 +204,8 @@ public class PooledConnectionWrapper implements Connection {
     
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        return prepareCached(StatementCache.Key.of(sql, resultSetType, resultSetConcurrency, resultSetHoldability),
+            () -> realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
     }
     
     @Override
@@ -192,17 +215,20 @@ public class PooledConnectionWrapper implements Connection {
     
     @Override
     public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
-        return realConnection.prepareStatement(sql, autoGeneratedKeys);
+        return prepareCached(StatementCache.Key.withGeneratedKeys(sql, autoGeneratedKeys),
+            () -> realConnection.prepareStatement(sql, autoGeneratedKeys));
     }
     
     @Override
     public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
-        return realConnection.prepareStatement(sql, columnIndexes);
+        return prepareCached(StatementCache.Key.withColumnIndexes(sql, columnIndexes),
+            () -> realConnection.prepareStatement(sql, columnIndexes));
     }
     
     @Override
     public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
-        return realConnection.prepareStatement(sql, columnNames);
+        return prepareCached(StatementCache.Key.withColumnNames(sql, columnNames),
+            () -> realConnection.prepareStatement(sql, columnNames));
     }
     
     @Override
@@ -0,0 +1,117 @@
+package com.example.demo2.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Generador de números consecutivos respaldado por una secuencia de Oracle.
+ *
+ * La secuencia avanza de a blockSize (INCREMENT BY), así cada NEXTVAL reserva
+ * un bloque completo [valor, valor + blockSize) que se entrega desde memoria:
+ * un viaje a la base de datos cada blockSize códigos y sin colisiones entre
+ * hilos ni entre instancias de la aplicación. Los números de un bloque no usado
+ * se pierden al cerrar la aplicación (puede haber huecos, nunca duplicados).
+ *
+ * Si la secuencia no existe se crea la primera vez, empezando después del mayor
+ * valor ya usado (seedQuery debe devolver ese siguiente valor en una sola fila).
+ * El tamaño de bloque efectivo es siempre el INCREMENT BY real de la secuencia,
+ * aunque la configuración cambie después de crearla.
+ */
+public final class SequenceBlockAllocator {
+    
+    private static final int ORA_NOMBRE_EN_USO = 955;   // ORA-00955
+    
+    private final String sequenceName;
+    private final int blockSize;
+    private final String seedQuery;
+    
+    private long increment = 0;  // INCREMENT BY real de la secuencia (0 = aún no leído)
+    private long next = 0;       // Próximo valor a entregar del bloque actual
+    private long limit = 0;      // Primer valor fuera del bloque actual
+    
+    public SequenceBlockAllocator(String sequenceName, int blockSize, String seedQuery) {
+        this.sequenceName = sequenceName;
+        this.blockSize = Math.max(1, blockSize);
+        this.seedQuery = seedQuery;
+    }
+    
+    /**
+     * Entrega el siguiente número; solo consulta la base de datos al agotarse el bloque
+     */
+    public synchronized long next() throws SQLException {
+        if (next >= limit) {
+            next = reserveBlock();
+            limit = next + increment;
+        }
+        return next++;
+    }
+    
+    /**
+     * Reserva un bloque nuevo con NEXTVAL, creando la secuencia si todavía no existe
+     */
+    private long reserveBlock() throws SQLException {
+        if (increment == 0) {
+            increment = readIncrement();
+            if (increment == 0) {
+                createSequence();
+                increment = readIncrement();
+            }
+        }
+        return nextVal();
+    }
+    
+    /**
+     * Lee el INCREMENT BY de la secuencia (0 si no existe)
+     */
+    private long readIncrement() throws SQLException {
+        String sql = "SELECT increment_by FROM user_sequences WHERE sequence_name = ?";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, sequenceName.toUpperCase());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    private long nextVal() throws SQLException {
+        String sql = "SELECT " + sequenceName + ".NEXTVAL FROM DUAL";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    /**
+     * Crea la secuencia a partir del siguiente valor libre (solo ocurre una vez por base de datos)
+     */
+    private void createSequence() throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            long inicio = 1;
+            try (ResultSet rs = stmt.executeQuery(seedQuery)) {
+                if (rs.next()) {
+                    inicio = Math.max(1, rs.getLong(1));
+                }
+            }
+            
+            stmt.execute("CREATE SEQUENCE " + sequenceName + " START WITH " + inicio +
+                        " INCREMENT BY " + blockSize);
+            System.out.println("✅ Secuencia " + sequenceName + " creada (inicio: " + inicio + ", bloque: " + blockSize + ")");
+            
+        } catch (SQLException e) {
+            // Otra instancia la creó al mismo tiempo
+            if (e.getErrorCode() != ORA_NOMBRE_EN_USO) {
+                throw e;
+            }
+        }
+    }
+}
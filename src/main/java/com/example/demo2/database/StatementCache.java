@@ -0,0 +1,183 @@
+package com.example.demo2.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU de sentencias preparadas asociada a una conexión física.
+ * 
+ * Vive en el PoolEntry, por lo que sobrevive entre préstamos de la conexión.
+ * Las sentencias se retiran de la caché mientras están en uso y vuelven a ella
+ * al cerrarse, así una misma sentencia nunca se entrega dos veces a la vez.
+ */
+final class StatementCache {
+    
+    /**
+     * Crea la sentencia física cuando no hay una reutilizable en la caché
+     */
+    @FunctionalInterface
+    interface StatementFactory {
+        PreparedStatement create() throws SQLException;
+    }
+    
+    private final int maxSize;
+    private final AtomicLong hits;     // Contadores compartidos por todo el pool
+    private final AtomicLong misses;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+    
+    StatementCache(int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * Obtiene una sentencia de la caché o la crea con la fábrica indicada
+     */
+    PreparedStatement acquire(Key key, StatementFactory factory) throws SQLException {
+        PreparedStatement statement;
+        synchronized (this) {
+            statement = statements.remove(key);
+        }
+        
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            return statement;
+        }
+        
+        misses.incrementAndGet();
+        return factory.create();
+    }
+    
+    /**
+     * Devuelve una sentencia a la caché, cerrando la menos usada si se supera el tamaño máximo
+     */
+    void release(Key key, PreparedStatement statement) throws SQLException {
+        if (statement.isClosed()) {
+            return;
+        }
+        
+        PreparedStatement duplicada;
+        PreparedStatement desalojada = null;
+        synchronized (this) {
+            duplicada = statements.put(key, statement);
+            if (statements.size() > maxSize) {
+                Map.Entry<Key, PreparedStatement> eldest = statements.entrySet().iterator().next();
+                desalojada = eldest.getValue();
+                statements.remove(eldest.getKey());
+            }
+        }
+        
+        discard(duplicada);
+        discard(desalojada);
+    }
+    
+    /**
+     * Cierra físicamente una sentencia que no volverá a la caché
+     */
+    void discard(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error cerrando sentencia en caché: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Cierra todas las sentencias en caché (antes de cerrar la conexión física)
+     */
+    void close() {
+        PreparedStatement[] pendientes;
+        synchronized (this) {
+            pendientes = statements.values().toArray(new PreparedStatement[0]);
+            statements.clear();
+        }
+        for (PreparedStatement statement : pendientes) {
+            discard(statement);
+        }
+    }
+    
+    synchronized int size() {
+        return statements.size();
+    }
+    
+    /**
+     * Clave de la caché: texto SQL más las opciones con las que se preparó la sentencia
+     */
+    static final class Key {
+        private final String sql;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int resultSetHoldability;
+        private final int autoGeneratedKeys;
+        private final int[] columnIndexes;
+        private final String[] columnNames;
+        private final int hash;
+        
+        private Key(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability,
+                    int autoGeneratedKeys, int[] columnIndexes, String[] columnNames) {
+            this.sql = sql;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.resultSetHoldability = resultSetHoldability;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.columnIndexes = columnIndexes != null ? columnIndexes.clone() : null;
+            this.columnNames = columnNames != null ? columnNames.clone() : null;
+            this.hash = Objects.hash(sql, resultSetType, resultSetConcurrency, resultSetHoldability, autoGeneratedKeys,
+                Arrays.hashCode(this.columnIndexes), Arrays.hashCode(this.columnNames));
+        }
+        
+        static Key of(String sql) {
+            return new Key(sql, -1, -1, -1, -1, null, null);
+        }
+        
+        static Key of(String sql, int resultSetType, int resultSetConcurrency) {
+            return new Key(sql, resultSetType, resultSetConcurrency, -1, -1, null, null);
+        }
+        
+        static Key of(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+            return new Key(sql, resultSetType, resultSetConcurrency, resultSetHoldability, -1, null, null);
+        }
+        
+        static Key withGeneratedKeys(String sql, int autoGeneratedKeys) {
+            return new Key(sql, -1, -1, -1, autoGeneratedKeys, null, null);
+        }
+        
+        static Key withColumnIndexes(String sql, int[] columnIndexes) {
+            return new Key(sql, -1, -1, -1, -1, columnIndexes, null);
+        }
+        
+        static Key withColumnNames(String sql, String[] columnNames) {
+            return new Key(sql, -1, -1, -1, -1, null, columnNames);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash
+                && resultSetType == other.resultSetType
+                && resultSetConcurrency == other.resultSetConcurrency
+                && resultSetHoldability == other.resultSetHoldability
+                && autoGeneratedKeys == other.autoGeneratedKeys
+                && sql.equals(other.sql)
+                && Arrays.equals(columnIndexes, other.columnIndexes)
+                && Arrays.equals(columnNames, other.columnNames);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.demo2.database;
+
+import com.example.demo2.config.ConfigManager;
+
+import oracle.ucp.UniversalConnectionPoolException;
+import oracle.ucp.admin.UniversalConnectionPoolManager;
+import oracle.ucp.admin.UniversalConnectionPoolManagerImpl;
+import oracle.ucp.jdbc.JDBCConnectionPoolStatistics;
+import oracle.ucp.jdbc.LabelableConnection;
+import oracle.ucp.jdbc.PoolDataSource;
+import oracle.ucp.jdbc.PoolDataSourceFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Pool de conexiones basado en Oracle Universal Connection Pool (db.pool.provider=ucp).
+ *
+ * Se configura con las mismas propiedades db.pool.* que el pool propio:
+ * - db.pool.min_size / db.pool.max_size: tamaño inicial, mínimo y máximo
+ * - db.connection.timeout: espera máxima por una conexión libre
+ * - db.pool.idle_timeout: cierre de conexiones ociosas por encima del mínimo
+ * - db.pool.max_lifetime: reutilización máxima de una conexión física
+ * - db.pool.keepalive_interval: tiempo en que una conexión libre se considera válida sin comprobarla
+ * - db.pool.housekeeping_interval: frecuencia con que UCP revisa los timeouts
+ * - db.performance.statement_cache_size: caché de sentencias por conexión (setMaxStatements)
+ * - db.pool.ucp.harvest_*: cosecha de conexiones prestadas cuando el pool se queda sin libres
+ * - db.pool.leak_detection_threshold + db.pool.leak_reclaim: recuperación de conexiones abandonadas
+ *
+ * Además permite préstamos etiquetados (connection labeling) para reutilizar
+ * conexiones que ya tienen configurado un estado de sesión.
+ */
+public class UcpConnectionProvider implements ConnectionProvider {
+    
+    private static final String POOL_NAME = "bibliosystem-ucp";
+    
+    /**
+     * Configura el estado de sesión de una conexión antes de etiquetarla
+     */
+    @FunctionalInterface
+    public interface SessionSetup {
+        void apply(Connection connection) throws SQLException;
+    }
+    
+    private final PoolDataSource dataSource;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final int statementCacheSize;
+    private volatile boolean poolInitialized = false;
+    
+    UcpConnectionProvider(ConfigManager config, Properties connectionProperties) throws SQLException {
+        minPoolSize = config.getPoolMinSize();
+        maxPoolSize = config.getPoolMaxSize();
+        statementCacheSize = config.getStatementCacheSize();
+        
+        dataSource = PoolDataSourceFactory.getPoolDataSource();
+        dataSource.setConnectionPoolName(POOL_NAME);
+        dataSource.setConnectionFactoryClassName("oracle.jdbc.pool.OracleDataSource");
+        dataSource.setURL(config.getDatabaseUrl());
+        dataSource.setUser(config.getDatabaseUsername());
+        dataSource.setPassword(config.getDatabasePassword());
+        dataSource.setConnectionProperties(connectionProperties);
+        
+        // Tamaño del pool
+        dataSource.setInitialPoolSize(minPoolSize);
+        dataSource.setMinPoolSize(minPoolSize);
+        dataSource.setMaxPoolSize(maxPoolSize);
+        dataSource.setConnectionWaitTimeout(config.getConnectionTimeout());
+        
+        // Mantenimiento: ociosas, vencidas y validación al prestar
+        dataSource.setInactiveConnectionTimeout(config.getPoolIdleTimeout());
+        dataSource.setMaxConnectionReuseTime(config.getPoolMaxLifetime());
+        dataSource.setTimeoutCheckInterval(config.getPoolHousekeepingInterval());
+        dataSource.setValidateConnectionOnBorrow(true);
+        dataSource.setSecondsToTrustIdleConnection(config.getPoolKeepAliveInterval());
+        
+        // Caché de sentencias del driver por conexión
+        dataSource.setMaxStatements(statementCacheSize);
+        
+        // Cosecha: con menos de N conexiones libres, UCP recupera conexiones prestadas cosechables
+        if (config.getUcpHarvestTriggerCount() > 0) {
+            dataSource.setConnectionHarvestTriggerCount(config.getUcpHarvestTriggerCount());
+            dataSource.setConnectionHarvestMaxCount(config.getUcpHarvestMaxCount());
+        }
+        
+        // Fugas: UCP solo sabe recuperar (no reportar) las conexiones prestadas sin actividad
+        if (config.getLeakDetectionThreshold() > 0 && config.isLeakReclaimEnabled()) {
+            dataSource.setAbandonedConnectionTimeout(config.getLeakDetectionThreshold());
+        }
+        
+        // Sin ONS en la nube ni en local
+        dataSource.setFastConnectionFailoverEnabled(false);
+    }
+    
+    @Override
+    public String getName() {
+        return "ucp";
+    }
+    
+    @Override
+    public boolean isActive() {
+        return poolInitialized;
+    }
+    
+    /**
+     * Arranca el pool con db.pool.min_size conexiones abiertas
+     */
+    @Override
+    public synchronized void start() throws SQLException {
+        if (poolInitialized) {
+            return;
+        }
+        
+        System.out.println("🏊 Inicializando pool UCP (mín: " + minPoolSize + ", máx: " + maxPoolSize + ")...");
+        
+        // El primer préstamo crea el pool con sus conexiones iniciales
+        try (Connection connection = getConnection()) {
+            poolInitialized = true;
+        }
+        
+        System.out.println("✅ Pool UCP inicializado con " + dataSource.getAvailableConnectionsCount() + " conexiones");
+    }
+    
+    /**
+     * Presta una conexión del pool UCP
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(dataSource.getConnection());
+    }
+    
+    /**
+     * Presta una conexión etiquetada (connection labeling de UCP).
+     * UCP entrega, si existe, una conexión libre con las mismas etiquetas; si la conexión
+     * no las tiene todas se ejecuta sessionSetup y se etiqueta, así los siguientes préstamos
+     * con las mismas etiquetas evitan repetir la configuración de sesión.
+     */
+    public Connection getConnection(Properties labels, SessionSetup sessionSetup) throws SQLException {
+        Connection connection = dataSource.getConnection(labels);
+        
+        try {
+            LabelableConnection labelable = (LabelableConnection) connection;
+            Properties faltantes = labelable.getUnmatchedConnectionLabels(labels);
+            
+            if (faltantes != null && !faltantes.isEmpty()) {
+                sessionSetup.apply(connection);
+                for (String key : faltantes.stringPropertyNames()) {
+                    labelable.applyConnectionLabel(key, faltantes.getProperty(key));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        
+        return wrap(connection);
+    }
+    
+    /**
+     * Envuelve la conexión para que, como en el pool propio, al cerrarla
+     * se descarte cualquier transacción pendiente antes de devolverla a UCP
+     */
+    private Connection wrap(Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false); // Control manual de transacciones
+        }
+        
+        return new PooledConnectionWrapper(connection, null, () -> {
+            try {
+                if (!connection.isClosed() && !connection.getAutoCommit()) {
+                    connection.rollback(); // Limpiar cualquier transacción pendiente
+                }
+            } finally {
+                connection.close();
+            }
+        });
+    }
+    
+    /**
+     * Destruye el pool UCP cerrando sus conexiones
+     */
+    @Override
+    public synchronized void close() {
+        poolInitialized = false;
+        
+        try {
+            UniversalConnectionPoolManager manager = UniversalConnectionPoolManagerImpl.getUniversalConnectionPoolManager();
+            manager.destroyConnectionPool(POOL_NAME);
+        } catch (UniversalConnectionPoolException e) {
+            System.err.println("⚠️ Error cerrando pool UCP: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public String getPoolInfo() {
+        JDBCConnectionPoolStatistics stats = dataSource.getStatistics();
+        if (stats == null) {
+            return String.format("   Proveedor: %s\n   Estado: ❌ Inactivo", getName());
+        }
+        
+        return String.format(
+            "   Proveedor: %s\n" +
+            "   Estado: %s\n" +
+            "   Conexiones activas: %d/%d (mínimo: %d)\n" +
+            "   Conexiones disponibles: %d\n" +
+            "   Conexiones en uso: %d\n" +
+            "   Hilos en espera: %d\n" +
+            "   Espera promedio: %d ms\n" +
+            "   Conexiones etiquetadas: %d\n" +
+            "   Conexiones abandonadas recuperadas: %d\n" +
+            "   Caché de sentencias: %s",
+            getName(),
+            poolInitialized ? "✅ Activo" : "❌ Inactivo",
+            stats.getTotalConnectionsCount(),
+            maxPoolSize,
+            minPoolSize,
+            stats.getAvailableConnectionsCount(),
+            stats.getBorrowedConnectionsCount(),
+            stats.getPendingRequestsCount(),
+            stats.getAverageConnectionWaitTime(),
+            stats.getLabeledConnectionsCount(),
+            stats.getAbandonedConnectionsCount(),
+            statementCacheSize > 0 ? statementCacheSize + " por conexión (driver)" : "❌ Desactivada"
+        );
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo2.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Unidad de trabajo que se ejecuta completa sobre una sola conexión del pool
+ * y se confirma con un único commit (ver DatabaseManager.executeInTransaction)
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+    
+    /**
+     * Ejecuta las sentencias de la transacción; no debe hacer commit ni cerrar la conexión
+     */
+    T execute(Connection connection) throws SQLException;
+}
@@ -234,6 +234,9 @@ public class Prestamo {
     }
     
     public boolean isVencido() {
+        if ("VENCIDO".equals(estado)) {
+            return true;
+        }
         if (!"ACTIVO".equals(estado)) {
             return false;
         }
@@ -241,7 +244,7 @@ public class Prestamo {
     }
     
     public long getDiasRetraso() {
-        if (!"ACTIVO".equals(estado) || !isVencido()) {
+        if (!isVencido()) {
             return 0;
         }
         return LocalDate.now().toEpochDay() - fechaDevolucionEsperada.toEpochDay();
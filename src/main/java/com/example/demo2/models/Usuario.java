@@ -2,6 +2,7 @@ package com.example.demo2.models;
 
 // Importación del enum que define los tipos de usuario del sistema
 import com.example.demo2.models.enums.TipoUsuario;
+import com.example.demo2.utils.TextNormalizer;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 
@@ -50,6 +51,9 @@ public class Usuario {
     private Timestamp fechaCreacion;    // Cuándo se creó la cuenta
     private Timestamp ultimoAcceso;     // Última vez que hizo login
     
+    // === CLAVE DE BÚSQUEDA ===
+    private String claveBusqueda;       // Nombre, apellido, email, username y teléfono plegados (sin tildes)
+    
     // Constructor vacío
     public Usuario() {
         this.activo = true;
@@ -80,6 +84,7 @@ public class Usuario {
     
     public void setNombre(String nombre) {
         this.nombre = nombre;
+        this.claveBusqueda = null;
     }
     
     public String getApellido() {
@@ -88,6 +93,7 @@ public class Usuario {
     
     public void setApellido(String apellido) {
         this.apellido = apellido;
+        this.claveBusqueda = null;
     }
     
     public String getEmail() {
@@ -96,6 +102,7 @@ public class Usuario {
     
     public void setEmail(String email) {
         this.email = email;
+        this.claveBusqueda = null;
     }
     
     public String getUsername() {
@@ -104,6 +111,7 @@ public class Usuario {
     
     public void setUsername(String username) {
         this.username = username;
+        this.claveBusqueda = null;
     }
     
     public String getPasswordHash() {
@@ -152,6 +160,7 @@ public class Usuario {
     
     public void setTelefono(String telefono) {
         this.telefono = telefono;
+        this.claveBusqueda = null;
     }
     
     public LocalDate getFechaNacimiento() {
@@ -184,6 +193,16 @@ public class Usuario {
         return nombre + " " + apellido;
     }
     
+    /**
+     * Clave de búsqueda plegada con TextNormalizer (UsuarioService la calcula al leer el usuario)
+     */
+    public String getClaveBusqueda() {
+        if (claveBusqueda == null) {
+            claveBusqueda = TextNormalizer.claveBusqueda(nombre, apellido, email, username, telefono);
+        }
+        return claveBusqueda;
+    }
+    
     @Override
     public String toString() {
         return "Usuario{" +
@@ -87,7 +87,8 @@ public class AuthService {
     public boolean login(String username, String password) {
         try {
             UsuarioService usuarioService = UsuarioService.getInstance();
-            Usuario usuario = usuarioService.buscarPorUsername(username);
+            // Credenciales y estado siempre con los datos vigentes, no con los de la caché
+            Usuario usuario = usuarioService.buscarPorUsernameVigente(username);
             
             if (usuario != null && usuario.isActivo() && 
                 verifyPassword(password, usuario.getPasswordHash())) {
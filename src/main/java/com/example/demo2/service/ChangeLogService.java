@@ -0,0 +1,285 @@
+package com.example.demo2.service;
+
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Registro de cambios compartido entre todos los equipos que usan la misma base de datos.
+ *
+ * - Los servicios llaman a registrar() dentro de la misma transacción que modifica la entidad:
+ *   la fila de cambios_entidades se confirma o se deshace junto con el cambio.
+ * - Un hilo en segundo plano consulta cada db.performance.change_poll_interval segundos los
+ *   cambios hechos por otros equipos y avisa a los servicios suscritos, que invalidan solo
+ *   las entradas afectadas de sus cachés.
+ *
+ * Se consulta por fecha y no por ID: en Autonomous/RAC los valores IDENTITY no llegan en orden.
+ * Cada consulta vuelve a leer los últimos VENTANA_SEGUNDOS (una transacción puede confirmarse
+ * después de insertar su fila) y descarta los IDs ya procesados.
+ */
+public class ChangeLogService {
+    
+    public static final String LIBRO = "LIBRO";
+    public static final String LECTOR = "LECTOR";
+    public static final String USUARIO = "USUARIO";
+    public static final String PRESTAMO = "PRESTAMO";
+    
+    public static final String ALTA = "ALTA";
+    public static final String MODIFICACION = "MODIFICACION";
+    public static final String BAJA = "BAJA";
+    public static final String STOCK = "STOCK";            // Solo cambió la cantidad disponible
+    
+    private static final int VENTANA_SEGUNDOS = 60;
+    private static final int DIAS_CONSERVADOS = 1;
+    private static final int CONSULTAS_ENTRE_PURGAS = 720;
+    
+    private static final String SQL_INSERTAR =
+        "INSERT INTO cambios_entidades (entidad, entidad_id, operacion, origen) VALUES (?, ?, ?, ?)";
+    private static final String SQL_CONSULTAR =
+        "SELECT id, entidad, entidad_id, operacion, origen, fecha_cambio FROM cambios_entidades " +
+        "WHERE fecha_cambio >= ? ORDER BY fecha_cambio, id";
+    
+    private static ChangeLogService instance;
+    
+    // Identifica a este equipo para no procesar sus propios cambios (ya invalidó al hacerlos)
+    private final String origen = UUID.randomUUID().toString();
+    private final Map<String, List<Consumer<Cambio>>> suscriptores = new ConcurrentHashMap<>();
+    private final Map<Long, Timestamp> procesados = new HashMap<>();
+    private final AtomicLong cambiosLocales = new AtomicLong();
+    
+    private ScheduledExecutorService sondeo;
+    private Timestamp desde;
+    private int consultasSinPurgar = 0;
+    private volatile boolean tablaDisponible = true;
+    
+    private ChangeLogService() {}
+    
+    public static synchronized ChangeLogService getInstance() {
+        if (instance == null) {
+            instance = new ChangeLogService();
+        }
+        return instance;
+    }
+    
+    /**
+     * Cambio de una entidad hecho desde otro equipo
+     */
+    public static class Cambio {
+        public final String entidad;
+        public final String entidadId;      // null = cambio masivo (todas las entidades del tipo)
+        public final String operacion;
+        
+        Cambio(String entidad, String entidadId, String operacion) {
+            this.entidad = entidad;
+            this.entidadId = entidadId;
+            this.operacion = operacion;
+        }
+        
+        public Long getIdLong() {
+            return entidadId == null ? null : Long.valueOf(entidadId);
+        }
+    }
+    
+    /**
+     * Registra el cambio de una entidad en la transacción de conn (antes de su commit).
+     * Si falla solo se informa: en Oracle el error deshace esta sentencia, no la transacción.
+     *
+     * @param id ID de la entidad, o null para un cambio masivo
+     */
+    public void registrar(Connection conn, String entidad, Object id, String operacion) {
+        cambiosLocales.incrementAndGet();
+        if (!tablaDisponible) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR)) {
+            pstmt.setString(1, entidad);
+            pstmt.setString(2, id == null ? null : id.toString());
+            pstmt.setString(3, operacion);
+            pstmt.setString(4, origen);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo registrar el cambio de " + entidad + " " + id + ": " + e.getMessage());
+            if (e.getErrorCode() == 942) {
+                // ORA-00942: la tabla todavía no existe; se vuelve a intentar al iniciar el sondeo
+                tablaDisponible = false;
+            }
+        }
+    }
+    
+    /**
+     * Registra el mismo cambio para varias entidades en un solo viaje a la base de datos
+     */
+    public void registrarLote(Connection conn, String entidad, List<?> ids, String operacion) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        cambiosLocales.incrementAndGet();
+        if (!tablaDisponible) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR)) {
+            for (Object id : ids) {
+                pstmt.setString(1, entidad);
+                pstmt.setString(2, id == null ? null : id.toString());
+                pstmt.setString(3, operacion);
+                pstmt.setString(4, origen);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo registrar el lote de cambios de " + entidad + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Identificador de este equipo (también lo usa MaintenanceJobService para tomar tareas)
+     */
+    public String getOrigen() {
+        return origen;
+    }
+    
+    /**
+     * Número de cambios registrados por este equipo desde que arrancó; sirve a los datos
+     * guardados para saber si algo cambió desde que se leyeron (el sondeo los omite)
+     */
+    public long getCambiosLocales() {
+        return cambiosLocales.get();
+    }
+    
+    /**
+     * Avisa al suscriptor de los cambios de otros equipos sobre un tipo de entidad.
+     * Se llama desde el hilo de sondeo: el suscriptor no debe tocar la interfaz directamente.
+     */
+    public void suscribir(String entidad, Consumer<Cambio> suscriptor) {
+        suscriptores.computeIfAbsent(entidad, e -> new CopyOnWriteArrayList<>()).add(suscriptor);
+    }
+    
+    /**
+     * Inicia la consulta periódica de cambios (db.performance.change_poll_interval; 0 = desactivada)
+     */
+    public synchronized void iniciar() {
+        int intervalo = ConfigManager.getInstance().getChangePollInterval();
+        if (sondeo != null || intervalo <= 0) {
+            return;
+        }
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            desde = ahoraEnBaseDatos(conn);
+            tablaDisponible = true;
+        } catch (SQLException e) {
+            System.err.println("❌ No se pudo iniciar el sondeo de cambios: " + e.getMessage());
+            return;
+        }
+        
+        sondeo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-log-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sondeo.scheduleWithFixedDelay(this::consultarCambios, intervalo, intervalo, TimeUnit.SECONDS);
+        System.out.println("🔄 Sondeo de cambios entre equipos cada " + intervalo + " s");
+    }
+    
+    /**
+     * Detiene la consulta periódica de cambios
+     */
+    public synchronized void detener() {
+        if (sondeo != null) {
+            sondeo.shutdownNow();
+            sondeo = null;
+        }
+    }
+    
+    /**
+     * Lee los cambios nuevos de otros equipos y avisa a los suscriptores
+     */
+    private void consultarCambios() {
+        List<Cambio> cambios = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            // La hora se toma antes de consultar para no perder cambios confirmados mientras tanto
+            Timestamp ahora = ahoraEnBaseDatos(conn);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(SQL_CONSULTAR)) {
+                pstmt.setTimestamp(1, desde);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        long id = rs.getLong("id");
+                        if (procesados.putIfAbsent(id, rs.getTimestamp("fecha_cambio")) == null
+                                && !origen.equals(rs.getString("origen"))) {
+                            cambios.add(new Cambio(rs.getString("entidad"), rs.getString("entidad_id"),
+                                                   rs.getString("operacion")));
+                        }
+                    }
+                }
+            }
+            
+            desde = new Timestamp(ahora.getTime() - TimeUnit.SECONDS.toMillis(VENTANA_SEGUNDOS));
+            procesados.values().removeIf(fecha -> fecha.before(desde));
+            
+            if (++consultasSinPurgar >= CONSULTAS_ENTRE_PURGAS) {
+                consultasSinPurgar = 0;
+                purgar(conn);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("⚠️ Error consultando cambios de otros equipos: " + e.getMessage());
+            return;
+        }
+        
+        for (Cambio cambio : cambios) {
+            for (Consumer<Cambio> suscriptor : suscriptores.getOrDefault(cambio.entidad, List.of())) {
+                try {
+                    suscriptor.accept(cambio);
+                } catch (RuntimeException e) {
+                    System.err.println("⚠️ Error aplicando cambio de " + cambio.entidad + ": " + e.getMessage());
+                }
+            }
+        }
+        
+        if (!cambios.isEmpty()) {
+            System.out.println("🔄 " + cambios.size() + " cambios de otros equipos aplicados a las cachés");
+        }
+    }
+    
+    private static Timestamp ahoraEnBaseDatos(Connection conn) throws SQLException {
+        // Mismo reloj que el DEFAULT SYSTIMESTAMP de fecha_cambio
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT CAST(SYSTIMESTAMP AS TIMESTAMP) FROM dual");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+    
+    /**
+     * Elimina los cambios que ningún equipo necesita ya
+     */
+    private static void purgar(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM cambios_entidades WHERE fecha_cambio < SYSTIMESTAMP - NUMTODSINTERVAL(?, 'DAY')")) {
+            pstmt.setInt(1, DIAS_CONSERVADOS);
+            int eliminados = pstmt.executeUpdate();
+            conn.commit();
+            if (eliminados > 0) {
+                System.out.println("🗑️ " + eliminados + " cambios antiguos eliminados del registro");
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo2.service;
+
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.models.Libro;
+import com.example.demo2.models.Prestamo;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Datos del dashboard (contadores y listas) leídos en una sola llamada a la base de datos.
+ *
+ * - Un bloque PL/SQL abre un REF CURSOR por cada lista; todo viaja en la respuesta de una
+ *   única ejecución en lugar de una consulta por widget (los contadores son el tamaño de cada lista).
+ * - El resultado se guarda como una foto inmutable que comparten todos los widgets y diálogos
+ *   del dashboard durante db.performance.dashboard_ttl segundos.
+ * - La foto se descarta antes de tiempo si otro equipo cambia préstamos o libros (ChangeLogService)
+ *   o si este mismo equipo registró algún cambio desde que se leyó.
+ */
+public class DashboardSnapshotService {
+    
+    public static final int DIAS_PROXIMIDAD = 3;
+    
+    private static final int FILAS_POR_LECTURA = 200;
+    
+    private static final String SQL_DASHBOARD = """
+        DECLARE
+            v_dias NUMBER := ?;
+        BEGIN
+            OPEN ? FOR
+                SELECT p.id, p.codigo_prestamo, p.fecha_devolucion_esperada, p.estado,
+                       p.fecha_prestamo, p.multa, p.multa_pagada,
+                       l.titulo, l.isbn,
+                       lec.codigo_lector, lec.nombre || ' ' || lec.apellido as lector_nombre,
+                       u1.nombre || ' ' || u1.apellido as bibliotecario_prestamo_nombre
+                FROM prestamos p
+                LEFT JOIN libros l ON p.libro_id = l.id
+                LEFT JOIN lectores lec ON p.lector_id = lec.id
+                LEFT JOIN usuarios u1 ON p.bibliotecario_prestamo_id = u1.id
+                WHERE p.estado = 'ACTIVO'
+                AND p.fecha_devolucion_esperada BETWEEN TRUNC(SYSDATE) AND (TRUNC(SYSDATE) + v_dias)
+                ORDER BY p.fecha_devolucion_esperada ASC;
+            
+            OPEN ? FOR
+                SELECT p.id, p.codigo_prestamo, p.fecha_devolucion_esperada, p.estado,
+                       p.fecha_prestamo, p.multa, p.multa_pagada,
+                       l.titulo, l.isbn,
+                       lec.codigo_lector, lec.nombre || ' ' || lec.apellido as lector_nombre,
+                       u1.nombre || ' ' || u1.apellido as bibliotecario_prestamo_nombre
+                FROM prestamos p
+                LEFT JOIN libros l ON p.libro_id = l.id
+                LEFT JOIN lectores lec ON p.lector_id = lec.id
+                LEFT JOIN usuarios u1 ON p.bibliotecario_prestamo_id = u1.id
+                WHERE p.estado IN ('ACTIVO', 'VENCIDO')
+                AND p.fecha_devolucion_esperada < TRUNC(SYSDATE)
+                ORDER BY p.fecha_devolucion_esperada ASC;
+            
+            OPEN ? FOR
+                SELECT l.*
+                FROM libros l
+                WHERE l.cantidad_total = 1
+                AND l.activo = 1
+                ORDER BY l.titulo ASC;
+        END;
+        """;
+    
+    private static DashboardSnapshotService instance;
+    
+    private final long ttlNanos;
+    private final Object lectura = new Object();
+    
+    private Snapshot actual;
+    private long venceEn;
+    private long cambiosLocalesAlLeer;
+    private long generacion = 0;            // Cambia en cada invalidación: descarta lecturas que empezaron antes
+    
+    private DashboardSnapshotService() {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ConfigManager.getInstance().getDashboardSnapshotTtl());
+        
+        ChangeLogService changeLog = ChangeLogService.getInstance();
+        changeLog.suscribir(ChangeLogService.PRESTAMO, cambio -> invalidar());
+        changeLog.suscribir(ChangeLogService.LIBRO, cambio -> invalidar());
+    }
+    
+    public static synchronized DashboardSnapshotService getInstance() {
+        if (instance == null) {
+            instance = new DashboardSnapshotService();
+        }
+        return instance;
+    }
+    
+    /**
+     * Foto de los datos del dashboard; las listas no se pueden modificar
+     */
+    public static final class Snapshot {
+        public final List<Prestamo> proximosAVencer;
+        public final List<Prestamo> conMulta;
+        public final List<Libro> librosUnaExistencia;
+        public final LocalDateTime generado;
+        
+        Snapshot(List<Prestamo> proximosAVencer, List<Prestamo> conMulta, List<Libro> librosUnaExistencia) {
+            this.proximosAVencer = Collections.unmodifiableList(proximosAVencer);
+            this.conMulta = Collections.unmodifiableList(conMulta);
+            this.librosUnaExistencia = Collections.unmodifiableList(librosUnaExistencia);
+            this.generado = LocalDateTime.now();
+        }
+    }
+    
+    /**
+     * Devuelve la foto vigente o lee una nueva. Los widgets que piden a la vez esperan
+     * a la misma lectura en lugar de lanzar una consulta cada uno.
+     */
+    public Snapshot obtener() throws SQLException {
+        synchronized (this) {
+            if (vigente()) {
+                return actual;
+            }
+        }
+        
+        synchronized (lectura) {
+            long generacionInicial;
+            synchronized (this) {
+                // Otro hilo pudo haber leído la foto mientras se esperaba
+                if (vigente()) {
+                    return actual;
+                }
+                generacionInicial = generacion;
+            }
+            
+            long cambiosLocales = ChangeLogService.getInstance().getCambiosLocales();
+            Snapshot snapshot = leer();
+            
+            synchronized (this) {
+                // Si hubo una invalidación durante la lectura, la foto puede ser anterior a ella
+                if (generacion == generacionInicial) {
+                    actual = snapshot;
+                    venceEn = System.nanoTime() + ttlNanos;
+                    cambiosLocalesAlLeer = cambiosLocales;
+                }
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Descarta la foto actual; la próxima llamada a obtener() vuelve a leer
+     */
+    public synchronized void invalidar() {
+        generacion++;
+        actual = null;
+    }
+    
+    /**
+     * Indica si la foto sigue siendo la actual y está vigente (sus datos se pueden mostrar sin volver a leer)
+     */
+    public synchronized boolean isVigente(Snapshot snapshot) {
+        return snapshot != null && snapshot == actual && vigente();
+    }
+    
+    private boolean vigente() {
+        // Un cambio registrado por este equipo no llega por el sondeo: se detecta con el contador local
+        return actual != null && System.nanoTime() - venceEn < 0
+            && cambiosLocalesAlLeer == ChangeLogService.getInstance().getCambiosLocales();
+    }
+    
+    private Snapshot leer() throws SQLException {
+        long inicio = System.currentTimeMillis();
+        PrestamoService prestamoService = PrestamoService.getInstance();
+        LibroService libroService = LibroService.getInstance();
+        
+        List<Prestamo> proximosAVencer = new ArrayList<>();
+        List<Prestamo> conMulta = new ArrayList<>();
+        List<Libro> librosUnaExistencia = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             CallableStatement cstmt = conn.prepareCall(SQL_DASHBOARD)) {
+            
+            cstmt.setInt(1, DIAS_PROXIMIDAD);
+            cstmt.registerOutParameter(2, Types.REF_CURSOR);
+            cstmt.registerOutParameter(3, Types.REF_CURSOR);
+            cstmt.registerOutParameter(4, Types.REF_CURSOR);
+            cstmt.execute();
+            
+            try (ResultSet rs = cstmt.getObject(2, ResultSet.class)) {
+                rs.setFetchSize(FILAS_POR_LECTURA);
+                while (rs.next()) {
+                    proximosAVencer.add(prestamoService.mapearPrestamoResumen(rs));
+                }
+            }
+            
+            try (ResultSet rs = cstmt.getObject(3, ResultSet.class)) {
+                rs.setFetchSize(FILAS_POR_LECTURA);
+                while (rs.next()) {
+                    Prestamo prestamo = prestamoService.mapearPrestamoConMulta(rs);
+                    if (prestamo != null) {
+                        conMulta.add(prestamo);
+                    }
+                }
+            }
+            
+            try (ResultSet rs = cstmt.getObject(4, ResultSet.class)) {
+                rs.setFetchSize(FILAS_POR_LECTURA);
+                while (rs.next()) {
+                    librosUnaExistencia.add(libroService.mapearResultSetALibro(rs));
+                }
+            }
+        }
+        
+        System.out.println("📊 Dashboard leído en " + (System.currentTimeMillis() - inicio) + " ms: " +
+                           proximosAVencer.size() + " próximos a vencer, " + conMulta.size() + " con multa, " +
+                           librosUnaExistencia.size() + " libros con una existencia");
+        
+        return new Snapshot(proximosAVencer, conMulta, librosUnaExistencia);
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.demo2.service;
+
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.ConsultaCancelable;
+import com.example.demo2.database.DatabaseManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación de préstamos, libros y lectores a archivos CSV o NDJSON comprimidos con gzip.
+ *
+ * Las filas se escriben a medida que llegan del ResultSet (de db.performance.fetch_size en
+ * fetch_size), sin armar listas de objetos: la memoria usada no depende del número de filas.
+ * - El progreso se informa cada cierto número de filas; el llamador decide en qué hilo mostrarlo.
+ * - Se cancela con ConsultaCancelable: detiene la consulta en el servidor o la lectura en curso.
+ * - Se escribe en un archivo temporal junto al destino y solo se renombra al terminar; si la
+ *   exportación falla o se cancela no queda un archivo a medias.
+ */
+public class DataExportService {
+    
+    public static final String PRESTAMOS = "PRESTAMOS";
+    public static final String LIBROS = "LIBROS";
+    public static final String LECTORES = "LECTORES";
+    
+    public static final String CSV = "CSV";
+    public static final String NDJSON = "NDJSON";
+    
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    
+    private static final String SQL_PRESTAMOS = """
+        SELECT p.id, p.codigo_prestamo, p.estado,
+               p.libro_id, l.isbn, l.titulo,
+               p.lector_id, lec.codigo_lector, lec.nombre || ' ' || lec.apellido AS lector,
+               p.fecha_prestamo, p.fecha_devolucion_esperada, p.fecha_devolucion_real,
+               p.condicion_prestamo, p.condicion_devolucion,
+               p.observaciones_prestamo, p.observaciones_devolucion,
+               p.multa, p.multa_pagada,
+               p.bibliotecario_prestamo_id, p.bibliotecario_devolucion_id
+        FROM prestamos p
+        LEFT JOIN libros l ON p.libro_id = l.id
+        LEFT JOIN lectores lec ON p.lector_id = lec.id
+        ORDER BY p.id
+        """;
+    private static final String SQL_LIBROS = """
+        SELECT id, isbn, titulo, autor, editorial, anio_publicacion, categoria,
+               cantidad_total, cantidad_disponible, descripcion, activo, fecha_registro
+        FROM libros
+        ORDER BY id
+        """;
+    private static final String SQL_LECTORES = """
+        SELECT id, codigo_lector, nombre, apellido, tipo_documento, numero_documento,
+               email, telefono, direccion, fecha_nacimiento, fecha_registro, fecha_vencimiento,
+               estado, observaciones
+        FROM lectores
+        ORDER BY id
+        """;
+    
+    /**
+     * Recibe el avance de la exportación
+     */
+    @FunctionalInterface
+    public interface Progreso {
+        /**
+         * @param filas filas escritas hasta ahora
+         * @param total filas que había al empezar (puede variar si hay cambios durante la exportación)
+         */
+        void avanzar(long filas, long total);
+    }
+    
+    /**
+     * Resultado de una exportación terminada
+     */
+    public static class Resultado {
+        public String entidad;
+        public String formato;
+        public Path archivo;
+        public long filas;
+        public long bytes;                  // Tamaño del archivo comprimido
+        public long duracionMs;
+    }
+    
+    private static DataExportService instance;
+    
+    private DataExportService() {}
+    
+    public static synchronized DataExportService getInstance() {
+        if (instance == null) {
+            instance = new DataExportService();
+        }
+        return instance;
+    }
+    
+    /**
+     * Nombre de archivo sugerido para una exportación (por ejemplo prestamos.csv.gz)
+     */
+    public static String nombreSugerido(String entidad, String formato) {
+        return entidad.toLowerCase() + (NDJSON.equals(formato) ? ".ndjson.gz" : ".csv.gz");
+    }
+    
+    /**
+     * Exporta todas las filas de la entidad al archivo destino
+     *
+     * @param progreso se llama desde el hilo que exporta (null = sin avisos)
+     * @param cancelacion permite detener la exportación desde otro hilo
+     * @throws SQLException si la consulta falla o la exportación fue cancelada
+     */
+    public Resultado exportar(String entidad, String formato, Path destino, Progreso progreso,
+                              ConsultaCancelable cancelacion) throws SQLException, IOException {
+        String sql = switch (entidad) {
+            case PRESTAMOS -> SQL_PRESTAMOS;
+            case LIBROS -> SQL_LIBROS;
+            case LECTORES -> SQL_LECTORES;
+            default -> throw new SQLException("Entidad no exportable: " + entidad);
+        };
+        if (!CSV.equals(formato) && !NDJSON.equals(formato)) {
+            throw new SQLException("Formato de exportación no soportado: " + formato);
+        }
+        
+        long inicio = System.currentTimeMillis();
+        int filasPorLectura = ConfigManager.getInstance().getFetchSize();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".parcial");
+        long filas = 0;
+        boolean completa = false;
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            long total = contar(conn, entidad, cancelacion);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(filasPorLectura);
+                cancelacion.registrar(pstmt);
+                
+                try (ResultSet rs = pstmt.executeQuery();
+                     Writer writer = abrir(temporal)) {
+                    
+                    Columnas columnas = new Columnas(rs.getMetaData());
+                    if (CSV.equals(formato)) {
+                        columnas.escribirEncabezadoCsv(writer);
+                    }
+                    
+                    while (rs.next()) {
+                        if (CSV.equals(formato)) {
+                            columnas.escribirCsv(rs, writer);
+                        } else {
+                            columnas.escribirJson(rs, writer);
+                        }
+                        filas++;
+                        
+                        // Una vez por lectura: el ResultSet trae las filas de fetch_size en fetch_size
+                        if (filas % filasPorLectura == 0) {
+                            if (cancelacion.isCancelada()) {
+                                throw new SQLException("Exportación cancelada");
+                            }
+                            if (progreso != null) {
+                                progreso.avanzar(filas, total);
+                            }
+                        }
+                    }
+                } finally {
+                    cancelacion.liberar();
+                }
+            }
+            
+            if (cancelacion.isCancelada()) {
+                throw new SQLException("Exportación cancelada");
+            }
+            if (progreso != null) {
+                progreso.avanzar(filas, Math.max(filas, total));
+            }
+            
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+            completa = true;
+        } finally {
+            if (!completa) {
+                Files.deleteIfExists(temporal);
+            }
+        }
+        
+        Resultado resultado = new Resultado();
+        resultado.entidad = entidad;
+        resultado.formato = formato;
+        resultado.archivo = destino;
+        resultado.filas = filas;
+        resultado.bytes = Files.size(destino);
+        resultado.duracionMs = System.currentTimeMillis() - inicio;
+        
+        System.out.println("📤 " + filas + " filas de " + entidad + " exportadas a " + destino.getFileName() +
+                           " (" + resultado.bytes / 1024 + " KB) en " + resultado.duracionMs + " ms");
+        return resultado;
+    }
+    
+    private static long contar(Connection conn, String entidad, ConsultaCancelable cancelacion) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM " + entidad.toLowerCase())) {
+            cancelacion.registrar(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            } finally {
+                cancelacion.liberar();
+            }
+        }
+    }
+    
+    private static Writer abrir(Path archivo) throws IOException {
+        OutputStream salida = new GZIPOutputStream(Files.newOutputStream(archivo), TAMANO_BUFFER);
+        return new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+    
+    /**
+     * Nombres y tipos de las columnas, leídos una vez de los metadatos: cada fila solo escribe valores
+     */
+    private static final class Columnas {
+        private static final int TEXTO = 0;
+        private static final int NUMERO = 1;
+        private static final int FECHA = 2;
+        
+        final String[] nombres;
+        final int[] tipos;
+        
+        Columnas(ResultSetMetaData metaData) throws SQLException {
+            int cantidad = metaData.getColumnCount();
+            nombres = new String[cantidad];
+            tipos = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                nombres[i] = metaData.getColumnLabel(i + 1).toLowerCase();
+                tipos[i] = switch (metaData.getColumnType(i + 1)) {
+                    case Types.NUMERIC, Types.DECIMAL, Types.INTEGER, Types.BIGINT, Types.SMALLINT,
+                         Types.DOUBLE, Types.FLOAT, Types.REAL -> NUMERO;
+                    case Types.DATE, Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> FECHA;
+                    default -> TEXTO;
+                };
+            }
+        }
+        
+        void escribirEncabezadoCsv(Writer writer) throws IOException {
+            for (int i = 0; i < nombres.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(nombres[i]);
+            }
+            writer.write("\r\n");
+        }
+        
+        void escribirCsv(ResultSet rs, Writer writer) throws SQLException, IOException {
+            for (int i = 0; i < nombres.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                String valor = leer(rs, i);
+                if (valor == null) {
+                    continue;
+                }
+                if (tipos[i] == TEXTO) {
+                    escribirCsvTexto(valor, writer);
+                } else {
+                    writer.write(valor);
+                }
+            }
+            writer.write("\r\n");
+        }
+        
+        void escribirJson(ResultSet rs, Writer writer) throws SQLException, IOException {
+            writer.write('{');
+            for (int i = 0; i < nombres.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write('"');
+                writer.write(nombres[i]);
+                writer.write("\":");
+                
+                String valor = leer(rs, i);
+                if (valor == null) {
+                    writer.write("null");
+                } else if (tipos[i] == NUMERO) {
+                    writer.write(valor);
+                } else {
+                    escribirJsonTexto(valor, writer);
+                }
+            }
+            writer.write("}\n");
+        }
+        
+        /**
+         * Valor de la columna como texto (números sin notación científica, fechas en ISO-8601), o null
+         */
+        private String leer(ResultSet rs, int i) throws SQLException {
+            switch (tipos[i]) {
+                case NUMERO -> {
+                    BigDecimal numero = rs.getBigDecimal(i + 1);
+                    return numero == null ? null : numero.toPlainString();
+                }
+                case FECHA -> {
+                    Timestamp fecha = rs.getTimestamp(i + 1);
+                    return fecha == null ? null : fecha.toLocalDateTime().toString();
+                }
+                default -> {
+                    return rs.getString(i + 1);
+                }
+            }
+        }
+        
+        private static void escribirCsvTexto(String valor, Writer writer) throws IOException {
+            boolean comillas = false;
+            for (int i = 0; i < valor.length() && !comillas; i++) {
+                char c = valor.charAt(i);
+                comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!comillas) {
+                writer.write(valor);
+                return;
+            }
+            writer.write('"');
+            writer.write(valor.replace("\"", "\"\""));
+            writer.write('"');
+        }
+        
+        private static void escribirJsonTexto(String valor, Writer writer) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < valor.length(); i++) {
+                char c = valor.charAt(i);
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                    }
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo2.service;
 
 import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.utils.TextNormalizer;
 
 import java.sql.Connection;
 import java.sql.Statement;
@@ -291,6 +292,7 @@ public class DatabaseInitService {
                 observaciones_devolucion VARCHAR2(500),
                 multa NUMBER(10,2) DEFAULT 0,
                 multa_pagada NUMBER(1) DEFAULT 0 CHECK (multa_pagada IN (0, 1)),
+                fecha_modificacion TIMESTAMP DEFAULT SYSTIMESTAMP,
                 CONSTRAINT fk_prestamo_libro FOREIGN KEY (libro_id) REFERENCES libros(id),
                 CONSTRAINT fk_prestamo_lector FOREIGN KEY (lector_id) REFERENCES lectores(id),
                 CONSTRAINT fk_prestamo_bibliotecario_p FOREIGN KEY (bibliotecario_prestamo_id) REFERENCES usuarios(id),
@@ -493,6 +495,20 @@ public class DatabaseInitService {
         }
     }
     
+    /**
+     * Aplica las actualizaciones de estructura (columnas, índices y tablas agregadas después de la
+     * creación inicial). Cada paso verifica lo que ya existe, así que se ejecuta en cada inicio,
+     * antes de habilitar el login: los servicios ya no comprueban si sus tablas existen.
+     */
+    public static void actualizarEsquema() {
+        actualizarEstructuraUsuarios();
+        actualizarEstructuraPrestamos();
+        actualizarIndices();
+        actualizarTablaCambios();
+        actualizarTablasMultas();
+        actualizarTablaMantenimiento();
+    }
+    
     /**
      * Actualiza la estructura de la tabla usuarios agregando campos faltantes
      */
@@ -584,12 +600,285 @@ public class DatabaseInitService {
                 System.out.println("✅ Estructura de PRESTAMOS verificada correctamente");
             }
             
+            // Marca de modificación para la actualización incremental de la tabla de préstamos
+            if (!verificarColumnaExiste(conn, "PRESTAMOS", "FECHA_MODIFICACION")) {
+                System.out.println("🔄 Agregando columna FECHA_MODIFICACION a PRESTAMOS...");
+                ejecutarSQL(conn, "ALTER TABLE prestamos ADD fecha_modificacion TIMESTAMP DEFAULT SYSTIMESTAMP");
+                System.out.println("✅ Columna FECHA_MODIFICACION agregada");
+            }
+            
         } catch (Exception e) {
             System.err.println("❌ Error actualizando estructura de prestamos: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
+    /**
+     * Índices que necesitan las consultas paginadas y la búsqueda de préstamos:
+     * {nombre, sentencia de creación}. Los de orden por texto usan NLSSORT binario, igual que
+     * el ORDER BY y el predicado de la consulta; los de búsqueda, UPPER(columna) para LIKE 'x%',
+     * o la expresión sin tildes de TextNormalizer.expresionSql para títulos y nombres.
+     */
+    private static final String[][] INDICES_CONSULTAS = {
+        {"IDX_PRESTAMOS_FECHA_ID",
+         "CREATE INDEX idx_prestamos_fecha_id ON prestamos(fecha_prestamo, id)"},
+        {"IDX_LIBROS_TITULO_BIN",
+         "CREATE INDEX idx_libros_titulo_bin ON libros(NLSSORT(titulo, 'NLS_SORT=BINARY'), id)"},
+        {"IDX_LECTORES_NOMBRE_BIN",
+         "CREATE INDEX idx_lectores_nombre_bin ON lectores(NLSSORT(apellido, 'NLS_SORT=BINARY'), " +
+         "NLSSORT(nombre, 'NLS_SORT=BINARY'), id)"},
+        {"IDX_PRESTAMOS_ESTADO_FECHA",
+         "CREATE INDEX idx_prestamos_estado_fecha ON prestamos(estado, fecha_prestamo, id)"},
+        {"IDX_PRESTAMOS_CODIGO_UP",
+         "CREATE INDEX idx_prestamos_codigo_up ON prestamos(UPPER(codigo_prestamo))"},
+        {"IDX_PRESTAMOS_FECHA_MOD",
+         "CREATE INDEX idx_prestamos_fecha_mod ON prestamos(fecha_modificacion)"},
+        {"IDX_LIBROS_TITULO_PL2",
+         "CREATE INDEX idx_libros_titulo_pl2 ON libros(" + TextNormalizer.expresionSql("titulo") + ")"},
+        {"IDX_LIBROS_ISBN_UP",
+         "CREATE INDEX idx_libros_isbn_up ON libros(UPPER(isbn))"},
+        {"IDX_LECTORES_NOMBRE_PL2",
+         "CREATE INDEX idx_lectores_nombre_pl2 ON lectores(" +
+         TextNormalizer.expresionSql("nombre || ' ' || apellido") + ")"},
+        {"IDX_LECTORES_APELLIDO_PL2",
+         "CREATE INDEX idx_lectores_apellido_pl2 ON lectores(" + TextNormalizer.expresionSql("apellido") + ")"}
+    };
+    
+    // Índices de búsqueda reemplazados por sus versiones sin tildes (los _PL, por la tabla de
+    // plegado anterior a la de TextNormalizer); se eliminan si existen
+    private static final String[] INDICES_OBSOLETOS = {
+        "IDX_LIBROS_TITULO_UP", "IDX_LECTORES_NOMBRE_UP", "IDX_LECTORES_APELLIDO_UP",
+        "IDX_LIBROS_TITULO_PL", "IDX_LECTORES_NOMBRE_PL", "IDX_LECTORES_APELLIDO_PL"
+    };
+    
+    /**
+     * Crea los índices de INDICES_CONSULTAS que todavía no existen y elimina los obsoletos
+     */
+    public static void actualizarIndices() {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            
+            for (String obsoleto : INDICES_OBSOLETOS) {
+                if (existeIndice(conn, obsoleto)) {
+                    try {
+                        ejecutarSQL(conn, "DROP INDEX " + obsoleto);
+                        System.out.println("🗑️ Índice obsoleto " + obsoleto + " eliminado");
+                    } catch (SQLException e) {
+                        System.err.println("⚠️ No se pudo eliminar el índice " + obsoleto + ": " + e.getMessage());
+                    }
+                }
+            }
+            
+            int creados = 0;
+            for (String[] indice : INDICES_CONSULTAS) {
+                if (!existeIndice(conn, indice[0])) {
+                    try {
+                        ejecutarSQL(conn, indice[1]);
+                        System.out.println("✅ Índice " + indice[0] + " creado");
+                        creados++;
+                    } catch (SQLException e) {
+                        System.err.println("⚠️ No se pudo crear el índice " + indice[0] + ": " + e.getMessage());
+                    }
+                }
+            }
+            
+            if (creados == 0) {
+                System.out.println("ℹ️ Los índices de consulta ya existen");
+            }
+            
+        } catch (Exception e) {
+            System.err.println("❌ Error actualizando índices: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Crea la tabla del registro de cambios entre equipos (ver ChangeLogService) si no existe
+     */
+    public static void actualizarTablaCambios() {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            
+            if (existeTabla(conn, "CAMBIOS_ENTIDADES")) {
+                System.out.println("✅ Tabla CAMBIOS_ENTIDADES ya existe");
+                return;
+            }
+            
+            ejecutarSQL(conn, """
+                CREATE TABLE cambios_entidades (
+                    id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    entidad VARCHAR2(30) NOT NULL,
+                    entidad_id VARCHAR2(100),
+                    operacion VARCHAR2(20) NOT NULL,
+                    origen VARCHAR2(36),
+                    fecha_cambio TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+                )""");
+            ejecutarSQL(conn, "CREATE INDEX idx_cambios_fecha ON cambios_entidades(fecha_cambio)");
+            System.out.println("✅ Tabla CAMBIOS_ENTIDADES creada");
+            
+        } catch (Exception e) {
+            System.err.println("❌ Error creando tabla de cambios: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Crea las tablas de tareas de mantenimiento (ver MaintenanceJobService) y de puntos de
+     * control de los procesos por rangos si no existen
+     */
+    public static void actualizarTablaMantenimiento() {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            
+            if (existeTabla(conn, "TAREAS_MANTENIMIENTO")) {
+                System.out.println("✅ Tabla TAREAS_MANTENIMIENTO ya existe");
+            } else {
+                ejecutarSQL(conn, """
+                    CREATE TABLE tareas_mantenimiento (
+                        nombre VARCHAR2(50) PRIMARY KEY,
+                        propietario VARCHAR2(36),
+                        lease_hasta TIMESTAMP,
+                        ultima_ejecucion TIMESTAMP,
+                        ultima_duracion_ms NUMBER,
+                        ultimas_filas NUMBER,
+                        ultimo_error VARCHAR2(500),
+                        ejecuciones NUMBER DEFAULT 0 NOT NULL
+                    )""");
+                System.out.println("✅ Tabla TAREAS_MANTENIMIENTO creada");
+            }
+            
+            if (existeTabla(conn, "PUNTOS_CONTROL")) {
+                System.out.println("✅ Tabla PUNTOS_CONTROL ya existe");
+            } else {
+                ejecutarSQL(conn, """
+                    CREATE TABLE puntos_control (
+                        proceso VARCHAR2(50) PRIMARY KEY,
+                        clave VARCHAR2(200),
+                        ultimo_id NUMBER,
+                        fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+                    )""");
+                System.out.println("✅ Tabla PUNTOS_CONTROL creada");
+            }
+            
+        } catch (Exception e) {
+            System.err.println("❌ Error creando tablas de mantenimiento: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Crea el libro mayor de multas y sus acumulados (ver FineLedgerService) si no existen.
+     * Las multas que ya tenían los préstamos se cargan como saldo inicial en una sola transacción
+     * que termina con la fila id = 1 de resumen_multas: mientras esa fila no exista la carga no se
+     * completó (FineLedgerService no puede registrar movimientos sin ella) y se vuelve a hacer.
+     */
+    public static void actualizarTablasMultas() {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            
+            if (!existeTabla(conn, "MOVIMIENTOS_MULTAS")) {
+                ejecutarSQL(conn, """
+                    CREATE TABLE movimientos_multas (
+                        id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        prestamo_id NUMBER NOT NULL,
+                        lector_id NUMBER NOT NULL,
+                        tipo VARCHAR2(20) NOT NULL CHECK (tipo IN ('CARGO', 'PAGO', 'CONDONACION')),
+                        monto NUMBER(10,2) NOT NULL,
+                        usuario_id NUMBER,
+                        observaciones VARCHAR2(500),
+                        fecha TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+                    )""");
+                System.out.println("✅ Tabla MOVIMIENTOS_MULTAS creada");
+            }
+            if (!existeIndice(conn, "IDX_MOV_MULTAS_PRESTAMO")) {
+                ejecutarSQL(conn, "CREATE INDEX idx_mov_multas_prestamo ON movimientos_multas(prestamo_id)");
+            }
+            if (!existeIndice(conn, "IDX_MOV_MULTAS_LECTOR")) {
+                ejecutarSQL(conn, "CREATE INDEX idx_mov_multas_lector ON movimientos_multas(lector_id, fecha)");
+            }
+            
+            if (!existeTabla(conn, "SALDOS_MULTAS")) {
+                ejecutarSQL(conn, """
+                    CREATE TABLE saldos_multas (
+                        lector_id NUMBER PRIMARY KEY,
+                        cargado NUMBER(12,2) DEFAULT 0 NOT NULL,
+                        pagado NUMBER(12,2) DEFAULT 0 NOT NULL,
+                        condonado NUMBER(12,2) DEFAULT 0 NOT NULL,
+                        movimientos NUMBER DEFAULT 0 NOT NULL,
+                        fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+                    )""");
+                System.out.println("✅ Tabla SALDOS_MULTAS creada");
+            }
+            
+            if (!existeTabla(conn, "RESUMEN_MULTAS")) {
+                ejecutarSQL(conn, """
+                    CREATE TABLE resumen_multas (
+                        id NUMBER PRIMARY KEY CHECK (id = 1),
+                        cargado NUMBER(14,2) DEFAULT 0 NOT NULL,
+                        pagado NUMBER(14,2) DEFAULT 0 NOT NULL,
+                        condonado NUMBER(14,2) DEFAULT 0 NOT NULL,
+                        movimientos NUMBER DEFAULT 0 NOT NULL,
+                        fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+                    )""");
+                System.out.println("✅ Tabla RESUMEN_MULTAS creada");
+            }
+            
+            if (existeResumenMultas(conn)) {
+                System.out.println("✅ Libro mayor de multas ya inicializado");
+                return;
+            }
+            
+            try {
+                // Restos de una carga anterior que no llegó a confirmarse
+                ejecutarSQL(conn, "DELETE FROM movimientos_multas");
+                ejecutarSQL(conn, "DELETE FROM saldos_multas");
+                
+                // Saldo inicial: las multas existentes como cargos y las marcadas como pagadas como pagos
+                ejecutarSQL(conn, """
+                    INSERT INTO movimientos_multas (prestamo_id, lector_id, tipo, monto, observaciones)
+                    SELECT id, lector_id, 'CARGO', multa, 'Saldo inicial' FROM prestamos WHERE multa > 0
+                    UNION ALL
+                    SELECT id, lector_id, 'PAGO', multa, 'Pago anterior al libro mayor' FROM prestamos
+                     WHERE multa > 0 AND multa_pagada = 1""");
+                ejecutarSQL(conn, """
+                    INSERT INTO saldos_multas (lector_id, cargado, pagado, condonado, movimientos)
+                    SELECT lector_id,
+                           SUM(CASE WHEN tipo = 'CARGO' THEN monto ELSE 0 END),
+                           SUM(CASE WHEN tipo = 'PAGO' THEN monto ELSE 0 END),
+                           SUM(CASE WHEN tipo = 'CONDONACION' THEN monto ELSE 0 END),
+                           COUNT(*)
+                    FROM movimientos_multas
+                    GROUP BY lector_id""");
+                ejecutarSQL(conn, """
+                    INSERT INTO resumen_multas (id, cargado, pagado, condonado, movimientos)
+                    SELECT 1,
+                           NVL(SUM(CASE WHEN tipo = 'CARGO' THEN monto END), 0),
+                           NVL(SUM(CASE WHEN tipo = 'PAGO' THEN monto END), 0),
+                           NVL(SUM(CASE WHEN tipo = 'CONDONACION' THEN monto END), 0),
+                           COUNT(*)
+                    FROM movimientos_multas""");
+                conn.commit();
+                System.out.println("✅ Libro mayor de multas creado con los saldos iniciales");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            
+        } catch (Exception e) {
+            System.err.println("❌ Error creando el libro mayor de multas: " + e.getMessage());
+        }
+    }
+    
+    private static boolean existeResumenMultas(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM resumen_multas WHERE id = 1")) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+    
+    private static boolean existeIndice(Connection conn, String nombreIndice) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM user_indexes WHERE index_name = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, nombreIndice.toUpperCase());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+    
     /**
      * Recrea la tabla prestamos con la estructura correcta
      */
@@ -0,0 +1,240 @@
+package com.example.demo2.service;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Caché de lectura de entidades por clave (libros, lectores y usuarios por ID o username).
+ *
+ * - obtener() devuelve la entidad en caché o la carga con el cargador y la guarda (read-through).
+ * - Tamaño máximo con desalojo según frecuencia: al llenarse se descarta, entre las
+ *   MUESTRA_DESALOJO entradas usadas hace más tiempo, la que tiene menos accesos. Los contadores
+ *   se reducen a la mitad periódicamente para que una entidad que fue popular deje de serlo.
+ * - Cada entrada vence ttl después de cargarse, lo que limita cuánto tarda en verse un cambio
+ *   hecho desde otro equipo.
+ * - Los servicios invalidan la entrada en sus propios métodos de alta, modificación y baja.
+ *
+ * Las entidades guardadas se comparten entre quienes las piden: si se modifican, hay que
+ * guardarlas con el servicio, que invalida la entrada aunque la actualización falle.
+ */
+public class EntityCache<K, V> {
+    
+    /**
+     * Lee la entidad de la base de datos cuando no está en caché (null = no existe, no se guarda)
+     */
+    @FunctionalInterface
+    public interface Cargador<K, V> {
+        V cargar(K clave) throws SQLException;
+    }
+    
+    private static final int MUESTRA_DESALOJO = 8;
+    private static final int FRECUENCIA_MAXIMA = 15;
+    
+    // Todas las cachés creadas, para el resumen de rendimiento
+    private static final List<EntityCache<?, ?>> REGISTRADAS = new CopyOnWriteArrayList<>();
+    
+    private final String nombre;
+    private final int maxEntradas;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private long generacion = 0;            // Cambia en cada invalidación: descarta cargas que empezaron antes
+    private int accesosSinEnvejecer = 0;
+    private long aciertos = 0;
+    private long fallos = 0;
+    private long desalojos = 0;
+    private long vencidas = 0;
+    
+    private static final class Entrada<V> {
+        final V valor;
+        final long venceEn;
+        int frecuencia = 1;
+        
+        Entrada(V valor, long venceEn) {
+            this.valor = valor;
+            this.venceEn = venceEn;
+        }
+    }
+    
+    /**
+     * @param nombre nombre para el resumen de rendimiento
+     * @param maxEntradas número máximo de entidades guardadas (0 = caché desactivada)
+     * @param ttlSegundos segundos que una entidad se considera vigente
+     */
+    public EntityCache(String nombre, int maxEntradas, int ttlSegundos) {
+        this.nombre = nombre;
+        this.maxEntradas = Math.max(0, maxEntradas);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSegundos));
+        REGISTRADAS.add(this);
+    }
+    
+    /**
+     * Devuelve la entidad de la caché si está vigente; si no, la carga y la guarda
+     */
+    public V obtener(K clave, Cargador<K, V> cargador) throws SQLException {
+        if (maxEntradas == 0 || clave == null) {
+            return cargador.cargar(clave);
+        }
+        
+        long generacionInicial;
+        synchronized (this) {
+            Entrada<V> entrada = entradas.get(clave);
+            if (entrada != null) {
+                if (System.nanoTime() - entrada.venceEn < 0) {
+                    aciertos++;
+                    if (entrada.frecuencia < FRECUENCIA_MAXIMA) {
+                        entrada.frecuencia++;
+                    }
+                    envejecer();
+                    return entrada.valor;
+                }
+                entradas.remove(clave);
+                vencidas++;
+            }
+            fallos++;
+            generacionInicial = generacion;
+        }
+        
+        // La consulta se hace fuera del bloqueo: otras claves se siguen sirviendo mientras tanto
+        V valor = cargador.cargar(clave);
+        if (valor != null) {
+            guardar(clave, valor, generacionInicial);
+        }
+        return valor;
+    }
+    
+    /**
+     * Lee siempre de la base de datos y deja el resultado en caché (datos que deben estar al día)
+     */
+    public V recargar(K clave, Cargador<K, V> cargador) throws SQLException {
+        long generacionInicial;
+        synchronized (this) {
+            entradas.remove(clave);
+            generacionInicial = generacion;
+        }
+        
+        V valor = cargador.cargar(clave);
+        if (valor != null && maxEntradas > 0) {
+            guardar(clave, valor, generacionInicial);
+        }
+        return valor;
+    }
+    
+    /**
+     * Quita una entidad de la caché (después de modificarla o eliminarla)
+     */
+    public synchronized void invalidar(K clave) {
+        generacion++;
+        entradas.remove(clave);
+    }
+    
+    /**
+     * Quita las entidades que cumplen la condición (por ejemplo, un usuario guardado por username)
+     */
+    public synchronized void invalidarSi(Predicate<V> condicion) {
+        generacion++;
+        entradas.values().removeIf(entrada -> condicion.test(entrada.valor));
+    }
+    
+    /**
+     * Vacía la caché (después de modificaciones masivas)
+     */
+    public synchronized void invalidarTodo() {
+        generacion++;
+        entradas.clear();
+    }
+    
+    private synchronized void guardar(K clave, V valor, long generacionInicial) {
+        // Si hubo una invalidación durante la carga, el valor leído puede ser anterior a ella
+        if (generacion != generacionInicial) {
+            return;
+        }
+        
+        entradas.put(clave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+        if (entradas.size() > maxEntradas) {
+            desalojar();
+        }
+    }
+    
+    /**
+     * Descarta la entrada con menos accesos entre las usadas hace más tiempo
+     */
+    private void desalojar() {
+        K candidata = null;
+        int menorFrecuencia = Integer.MAX_VALUE;
+        
+        Iterator<Map.Entry<K, Entrada<V>>> it = entradas.entrySet().iterator();
+        for (int i = 0; i < MUESTRA_DESALOJO && it.hasNext(); i++) {
+            Map.Entry<K, Entrada<V>> entrada = it.next();
+            if (entrada.getValue().frecuencia < menorFrecuencia) {
+                menorFrecuencia = entrada.getValue().frecuencia;
+                candidata = entrada.getKey();
+            }
+        }
+        
+        entradas.remove(candidata);
+        desalojos++;
+    }
+    
+    /**
+     * Cada 10 vueltas completas de la caché, reduce a la mitad la frecuencia de todas las entradas
+     */
+    private void envejecer() {
+        if (++accesosSinEnvejecer < maxEntradas * 10) {
+            return;
+        }
+        accesosSinEnvejecer = 0;
+        for (Entrada<V> entrada : entradas.values()) {
+            entrada.frecuencia = Math.max(1, entrada.frecuencia / 2);
+        }
+    }
+    
+    public synchronized Estadisticas getEstadisticas() {
+        Estadisticas estadisticas = new Estadisticas();
+        estadisticas.nombre = nombre;
+        estadisticas.entradas = entradas.size();
+        estadisticas.maxEntradas = maxEntradas;
+        estadisticas.aciertos = aciertos;
+        estadisticas.fallos = fallos;
+        estadisticas.desalojos = desalojos;
+        estadisticas.vencidas = vencidas;
+        return estadisticas;
+    }
+    
+    /**
+     * Resumen de todas las cachés de entidades para la información de rendimiento
+     */
+    public static String getResumen() {
+        StringBuilder resumen = new StringBuilder("\n🗃️ CACHÉ DE ENTIDADES:");
+        for (EntityCache<?, ?> cache : REGISTRADAS) {
+            Estadisticas e = cache.getEstadisticas();
+            resumen.append(String.format("\n   %s: %d/%d entradas, %d aciertos / %d fallos (%.1f%%), %d desalojos, %d vencidas",
+                e.nombre, e.entradas, e.maxEntradas, e.aciertos, e.fallos, e.getTasaAciertos(), e.desalojos, e.vencidas));
+        }
+        return resumen.toString();
+    }
+    
+    /**
+     * Contadores de una caché
+     */
+    public static class Estadisticas {
+        public String nombre;
+        public int entradas;
+        public int maxEntradas;
+        public long aciertos;
+        public long fallos;
+        public long desalojos;
+        public long vencidas;
+        
+        public double getTasaAciertos() {
+            long total = aciertos + fallos;
+            return total > 0 ? aciertos * 100.0 / total : 0.0;
+        }
+    }
+}
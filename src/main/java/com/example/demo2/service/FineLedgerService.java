@@ -0,0 +1,329 @@
+package com.example.demo2.service;
+
+import com.example.demo2.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libro mayor de multas: cada cargo, pago y condonación queda como un movimiento que no se
+ * modifica ni se borra (movimientos_multas), lo que permite auditar la historia de cada multa.
+ *
+ * Junto con cada movimiento, en la misma transacción, se actualizan los acumulados:
+ * - saldos_multas: una fila por lector con lo cargado, pagado y condonado.
+ * - resumen_multas: una sola fila con los totales del sistema.
+ * Así los totales, el saldo pendiente y el saldo de un lector se leen de una fila en lugar de
+ * recorrer todos los préstamos con multa.
+ *
+ * Los cargos pueden ser negativos (ajuste a la baja al recalcular); pagos y condonaciones son positivos.
+ */
+public class FineLedgerService {
+    
+    public static final String CARGO = "CARGO";
+    public static final String PAGO = "PAGO";
+    public static final String CONDONACION = "CONDONACION";
+    
+    // Diferencias menores se consideran saldo cero (montos con 2 decimales)
+    private static final double CENTAVO = 0.005;
+    
+    private static final String SQL_INSERTAR = """
+        INSERT INTO movimientos_multas (prestamo_id, lector_id, tipo, monto, usuario_id, observaciones)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+    private static final String SQL_SALDO_LECTOR = """
+        MERGE INTO saldos_multas s
+        USING (SELECT ? AS lector_id FROM dual) n
+        ON (s.lector_id = n.lector_id)
+        WHEN MATCHED THEN UPDATE SET cargado = cargado + ?, pagado = pagado + ?, condonado = condonado + ?,
+                                     movimientos = movimientos + ?, fecha_actualizacion = SYSTIMESTAMP
+        WHEN NOT MATCHED THEN INSERT (lector_id, cargado, pagado, condonado, movimientos)
+                              VALUES (n.lector_id, ?, ?, ?, ?)
+        """;
+    private static final String SQL_RESUMEN = """
+        UPDATE resumen_multas
+           SET cargado = cargado + ?, pagado = pagado + ?, condonado = condonado + ?,
+               movimientos = movimientos + ?, fecha_actualizacion = SYSTIMESTAMP
+         WHERE id = 1
+        """;
+    
+    private static FineLedgerService instance;
+    
+    private FineLedgerService() {}
+    
+    public static synchronized FineLedgerService getInstance() {
+        if (instance == null) {
+            instance = new FineLedgerService();
+        }
+        return instance;
+    }
+    
+    /**
+     * Movimiento del libro mayor
+     */
+    public static class Movimiento {
+        public long id;
+        public long prestamoId;
+        public long lectorId;
+        public String tipo;
+        public double monto;
+        public Long usuarioId;              // null = proceso automático
+        public String observaciones;
+        public Timestamp fecha;
+        
+        public Movimiento() {}
+        
+        public Movimiento(long prestamoId, long lectorId, String tipo, double monto, Long usuarioId, String observaciones) {
+            this.prestamoId = prestamoId;
+            this.lectorId = lectorId;
+            this.tipo = tipo;
+            this.monto = monto;
+            this.usuarioId = usuarioId;
+            this.observaciones = observaciones;
+        }
+    }
+    
+    /**
+     * Acumulados de multas (de un lector o de todo el sistema)
+     */
+    public static class Saldo {
+        public double cargado;
+        public double pagado;
+        public double condonado;
+        public long movimientos;
+        
+        public double getPendiente() {
+            return cargado - pagado - condonado;
+        }
+    }
+    
+    /**
+     * Registra los movimientos y actualiza los acumulados en la transacción de conn (antes de su commit)
+     */
+    public void registrar(Connection conn, List<Movimiento> movimientos) throws SQLException {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+        
+        Map<Long, Saldo> porLector = new HashMap<>();
+        Saldo total = new Saldo();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR)) {
+            for (Movimiento m : movimientos) {
+                pstmt.setLong(1, m.prestamoId);
+                pstmt.setLong(2, m.lectorId);
+                pstmt.setString(3, m.tipo);
+                pstmt.setDouble(4, m.monto);
+                if (m.usuarioId != null) {
+                    pstmt.setLong(5, m.usuarioId);
+                } else {
+                    pstmt.setNull(5, Types.BIGINT);
+                }
+                pstmt.setString(6, m.observaciones);
+                pstmt.addBatch();
+                
+                acumular(porLector.computeIfAbsent(m.lectorId, id -> new Saldo()), m);
+                acumular(total, m);
+            }
+            pstmt.executeBatch();
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_SALDO_LECTOR)) {
+            for (Map.Entry<Long, Saldo> entrada : porLector.entrySet()) {
+                Saldo s = entrada.getValue();
+                pstmt.setLong(1, entrada.getKey());
+                asignarSaldo(pstmt, 2, s);
+                asignarSaldo(pstmt, 6, s);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_RESUMEN)) {
+            asignarSaldo(pstmt, 1, total);
+            if (pstmt.executeUpdate() != 1) {
+                // Sin la fila de totales el libro mayor no terminó de inicializarse (ver actualizarTablasMultas)
+                throw new SQLException("El libro mayor de multas no está inicializado (falta resumen_multas id = 1)");
+            }
+        }
+    }
+    
+    private static void acumular(Saldo saldo, Movimiento m) {
+        switch (m.tipo) {
+            case CARGO -> saldo.cargado += m.monto;
+            case PAGO -> saldo.pagado += m.monto;
+            case CONDONACION -> saldo.condonado += m.monto;
+            default -> throw new IllegalArgumentException("Tipo de movimiento no soportado: " + m.tipo);
+        }
+        saldo.movimientos++;
+    }
+    
+    private static void asignarSaldo(PreparedStatement pstmt, int i, Saldo s) throws SQLException {
+        pstmt.setDouble(i, s.cargado);
+        pstmt.setDouble(i + 1, s.pagado);
+        pstmt.setDouble(i + 2, s.condonado);
+        pstmt.setLong(i + 3, s.movimientos);
+    }
+    
+    /**
+     * Registra un pago de la multa de un préstamo
+     */
+    public void registrarPago(Long prestamoId, double monto, Long usuarioId, String observaciones) throws SQLException {
+        registrarAbono(prestamoId, PAGO, monto, usuarioId, observaciones);
+    }
+    
+    /**
+     * Condona (perdona) parte o toda la multa de un préstamo
+     */
+    public void condonar(Long prestamoId, double monto, Long usuarioId, String motivo) throws SQLException {
+        registrarAbono(prestamoId, CONDONACION, monto, usuarioId, motivo);
+    }
+    
+    /**
+     * Pago o condonación: no puede superar el saldo del préstamo; al saldarlo se marca multa_pagada
+     */
+    private void registrarAbono(Long prestamoId, String tipo, double monto, Long usuarioId, String observaciones) throws SQLException {
+        if (monto <= 0) {
+            throw new SQLException("El monto debe ser mayor que cero");
+        }
+        
+        DatabaseManager.getInstance().executeInTransaction(conn -> {
+            long lectorId;
+            // Bloquea el préstamo: dos abonos simultáneos no pueden superar el saldo entre ambos
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT lector_id FROM prestamos WHERE id = ? FOR UPDATE")) {
+                pstmt.setLong(1, prestamoId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("No existe el préstamo con ID " + prestamoId);
+                    }
+                    lectorId = rs.getLong(1);
+                }
+            }
+            
+            double saldo = obtenerSaldoPrestamo(conn, prestamoId);
+            if (monto > saldo + CENTAVO) {
+                throw new SQLException(String.format("El monto ($%.2f) supera el saldo pendiente ($%.2f)", monto, saldo));
+            }
+            
+            registrar(conn, List.of(new Movimiento(prestamoId, lectorId, tipo, monto, usuarioId, observaciones)));
+            
+            if (saldo - monto <= CENTAVO) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE prestamos SET multa_pagada = 1, fecha_modificacion = SYSTIMESTAMP WHERE id = ?")) {
+                    pstmt.setLong(1, prestamoId);
+                    pstmt.executeUpdate();
+                }
+            }
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.PRESTAMO, prestamoId,
+                                                     ChangeLogService.MODIFICACION);
+            return null;
+        });
+        
+        System.out.println("💵 " + (PAGO.equals(tipo) ? "Pago" : "Condonación") + " de $" +
+                           String.format("%.2f", monto) + " registrado para el préstamo " + prestamoId);
+    }
+    
+    /**
+     * Saldo pendiente de la multa de un préstamo según el libro mayor
+     */
+    public double obtenerSaldoPrestamo(Connection conn, Long prestamoId) throws SQLException {
+        String sql = """
+            SELECT NVL(SUM(CASE WHEN tipo = 'CARGO' THEN monto ELSE -monto END), 0)
+            FROM movimientos_multas
+            WHERE prestamo_id = ?
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, prestamoId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        }
+    }
+    
+    /**
+     * Saldo pendiente de la multa de un préstamo, en su propia conexión
+     */
+    public double obtenerSaldoPrestamo(Long prestamoId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            return obtenerSaldoPrestamo(conn, prestamoId);
+        }
+    }
+    
+    /**
+     * Acumulados de un lector (todo en cero si nunca tuvo multas)
+     */
+    public Saldo obtenerSaldoLector(long lectorId) throws SQLException {
+        String sql = "SELECT cargado, pagado, condonado, movimientos FROM saldos_multas WHERE lector_id = ?";
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, lectorId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapearSaldo(rs) : new Saldo();
+            }
+        }
+    }
+    
+    /**
+     * Totales de multas del sistema
+     */
+    public Saldo obtenerResumen() throws SQLException {
+        String sql = "SELECT cargado, pagado, condonado, movimientos FROM resumen_multas WHERE id = 1";
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? mapearSaldo(rs) : new Saldo();
+        }
+    }
+    
+    /**
+     * Historial de movimientos de un préstamo, del más antiguo al más reciente
+     */
+    public List<Movimiento> obtenerHistorial(Long prestamoId) throws SQLException {
+        String sql = """
+            SELECT id, prestamo_id, lector_id, tipo, monto, usuario_id, observaciones, fecha
+            FROM movimientos_multas
+            WHERE prestamo_id = ?
+            ORDER BY fecha, id
+            """;
+        List<Movimiento> historial = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, prestamoId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Movimiento m = new Movimiento();
+                    m.id = rs.getLong("id");
+                    m.prestamoId = rs.getLong("prestamo_id");
+                    m.lectorId = rs.getLong("lector_id");
+                    m.tipo = rs.getString("tipo");
+                    m.monto = rs.getDouble("monto");
+                    long usuarioId = rs.getLong("usuario_id");
+                    m.usuarioId = rs.wasNull() ? null : usuarioId;
+                    m.observaciones = rs.getString("observaciones");
+                    m.fecha = rs.getTimestamp("fecha");
+                    historial.add(m);
+                }
+            }
+        }
+        return historial;
+    }
+    
+    private static Saldo mapearSaldo(ResultSet rs) throws SQLException {
+        Saldo saldo = new Saldo();
+        saldo.cargado = rs.getDouble("cargado");
+        saldo.pagado = rs.getDouble("pagado");
+        saldo.condonado = rs.getDouble("condonado");
+        saldo.movimientos = rs.getLong("movimientos");
+        return saldo;
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.demo2.service;
+
+import com.example.demo2.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulador del impacto de cambiar la política de multas (días de gracia, monto diario y máximo)
+ * antes de guardarla.
+ *
+ * - cargarInstantanea() lee una sola vez los préstamos abiertos (ACTIVO y VENCIDO, los únicos que
+ *   calcularMultaIndividual cobra) en arreglos primitivos agrupados por lector.
+ * - simular() evalúa muchas políticas a la vez con fork/join sobre esos arreglos, sin volver a la
+ *   base de datos: cada política se divide por rangos de lectores y los resultados parciales se suman.
+ *
+ * La fórmula es la de PrestamoService.calcularMultaIndividual, con la fecha de la instantánea.
+ */
+public class FinePolicySimulator {
+    
+    // Lectores por tarea a partir de los cuales ya no se divide más
+    private static final int LECTORES_POR_TAREA = 2048;
+    private static final int FILAS_POR_LECTURA = 1000;
+    
+    /**
+     * Tramos de la distribución de lectores afectados, como fracción de la multa máxima de la política
+     * (el último tramo son lectores que superan el máximo por tener varios préstamos)
+     */
+    public static final double[] TRAMOS = {0.25, 0.5, 0.75, 1.0};
+    
+    private static FinePolicySimulator instance;
+    
+    private FinePolicySimulator() {}
+    
+    public static synchronized FinePolicySimulator getInstance() {
+        if (instance == null) {
+            instance = new FinePolicySimulator();
+        }
+        return instance;
+    }
+    
+    /**
+     * Política de multas a evaluar
+     */
+    public static final class Politica {
+        public final int diasGracia;
+        public final double multaPorDia;
+        public final double multaMaxima;
+        
+        public Politica(int diasGracia, double multaPorDia, double multaMaxima) {
+            this.diasGracia = diasGracia;
+            this.multaPorDia = multaPorDia;
+            this.multaMaxima = multaMaxima;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d días de gracia, $%.2f/día, máx. $%.2f", diasGracia, multaPorDia, multaMaxima);
+        }
+    }
+    
+    /**
+     * Préstamos abiertos en arreglos primitivos: los préstamos del lector i ocupan las posiciones
+     * inicioLector[i] a inicioLector[i + 1] - 1 de vencimientos y multasActuales
+     */
+    public static final class Instantanea {
+        public final long hoy;                     // Día epoch en que se tomó
+        public final int[] vencimientos;           // Día epoch de la fecha de devolución esperada
+        public final double[] multasActuales;      // Multa guardada hoy en cada préstamo
+        public final int[] inicioLector;
+        public final double totalMultasActuales;
+        
+        Instantanea(long hoy, int[] vencimientos, double[] multasActuales, int[] inicioLector) {
+            this.hoy = hoy;
+            this.vencimientos = vencimientos;
+            this.multasActuales = multasActuales;
+            this.inicioLector = inicioLector;
+            double total = 0;
+            for (double multa : multasActuales) {
+                total += multa;
+            }
+            this.totalMultasActuales = total;
+        }
+        
+        public int getPrestamos() {
+            return vencimientos.length;
+        }
+        
+        public int getLectores() {
+            return inicioLector.length - 1;
+        }
+    }
+    
+    /**
+     * Resultado de una política
+     */
+    public static class Resultado {
+        public Politica politica;
+        public double ingresos;                    // Suma de las multas que generaría
+        public int prestamosConMulta;
+        public int lectoresAfectados;
+        public double maximoPorLector;
+        public double diferencia;                  // Ingresos menos las multas guardadas hoy
+        public int[] distribucion = new int[TRAMOS.length + 1];
+        
+        public double getPromedioPorLector() {
+            return lectoresAfectados > 0 ? ingresos / lectoresAfectados : 0.0;
+        }
+        
+        void sumar(Resultado otro) {
+            ingresos += otro.ingresos;
+            prestamosConMulta += otro.prestamosConMulta;
+            lectoresAfectados += otro.lectoresAfectados;
+            maximoPorLector = Math.max(maximoPorLector, otro.maximoPorLector);
+            for (int i = 0; i < distribucion.length; i++) {
+                distribucion[i] += otro.distribucion[i];
+            }
+        }
+    }
+    
+    /**
+     * Lee los préstamos abiertos en una sola consulta
+     */
+    public Instantanea cargarInstantanea() throws SQLException {
+        String sql = """
+            SELECT lector_id, fecha_devolucion_esperada - DATE '1970-01-01' AS vencimiento, NVL(multa, 0) AS multa
+            FROM prestamos
+            WHERE estado IN ('ACTIVO', 'VENCIDO')
+            ORDER BY lector_id
+            """;
+        long inicio = System.currentTimeMillis();
+        
+        int[] vencimientos = new int[1024];
+        double[] multas = new double[1024];
+        int[] inicioLector = new int[256];
+        int prestamos = 0;
+        int lectores = 0;
+        long lectorAnterior = Long.MIN_VALUE;
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(FILAS_POR_LECTURA);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long lectorId = rs.getLong(1);
+                    if (lectorId != lectorAnterior) {
+                        if (lectores + 1 >= inicioLector.length) {
+                            inicioLector = Arrays.copyOf(inicioLector, inicioLector.length * 2);
+                        }
+                        inicioLector[lectores++] = prestamos;
+                        lectorAnterior = lectorId;
+                    }
+                    if (prestamos == vencimientos.length) {
+                        vencimientos = Arrays.copyOf(vencimientos, prestamos * 2);
+                        multas = Arrays.copyOf(multas, prestamos * 2);
+                    }
+                    // Las fechas con hora se truncan al día, como LocalDate en calcularMultaIndividual
+                    vencimientos[prestamos] = (int) Math.floor(rs.getDouble(2));
+                    multas[prestamos] = rs.getDouble(3);
+                    prestamos++;
+                }
+            }
+        }
+        inicioLector[lectores] = prestamos;
+        
+        Instantanea instantanea = new Instantanea(LocalDate.now().toEpochDay(),
+            Arrays.copyOf(vencimientos, prestamos), Arrays.copyOf(multas, prestamos),
+            Arrays.copyOf(inicioLector, lectores + 1));
+        
+        System.out.println("🧮 Instantánea de multas: " + prestamos + " préstamos abiertos de " + lectores +
+                           " lectores en " + (System.currentTimeMillis() - inicio) + " ms");
+        return instantanea;
+    }
+    
+    /**
+     * Evalúa las políticas en paralelo; devuelve un resultado por política, en el mismo orden
+     */
+    public List<Resultado> simular(Instantanea instantanea, List<Politica> politicas) {
+        long inicio = System.nanoTime();
+        
+        List<SimulacionLectores> tareas = new ArrayList<>();
+        for (Politica politica : politicas) {
+            tareas.add(new SimulacionLectores(instantanea, politica, 0, instantanea.getLectores()));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tareas);
+                return null;
+            }
+        });
+        
+        List<Resultado> resultados = new ArrayList<>();
+        for (SimulacionLectores tarea : tareas) {
+            Resultado resultado = tarea.join();
+            resultado.politica = tarea.politica;
+            resultado.diferencia = resultado.ingresos - instantanea.totalMultasActuales;
+            resultados.add(resultado);
+        }
+        
+        System.out.printf("🧮 %d políticas simuladas sobre %d préstamos en %.1f ms%n",
+            politicas.size(), instantanea.getPrestamos(), (System.nanoTime() - inicio) / 1_000_000.0);
+        return resultados;
+    }
+    
+    /**
+     * Calcula una política para un rango de lectores, dividiéndolo mientras sea grande
+     */
+    private static final class SimulacionLectores extends RecursiveTask<Resultado> {
+        private final Instantanea instantanea;
+        private final Politica politica;
+        private final int desde;
+        private final int hasta;
+        
+        SimulacionLectores(Instantanea instantanea, Politica politica, int desde, int hasta) {
+            this.instantanea = instantanea;
+            this.politica = politica;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        protected Resultado compute() {
+            if (hasta - desde > LECTORES_POR_TAREA) {
+                int medio = (desde + hasta) >>> 1;
+                SimulacionLectores izquierda = new SimulacionLectores(instantanea, politica, desde, medio);
+                izquierda.fork();
+                Resultado resultado = new SimulacionLectores(instantanea, politica, medio, hasta).compute();
+                resultado.sumar(izquierda.join());
+                return resultado;
+            }
+            
+            Resultado resultado = new Resultado();
+            int[] vencimientos = instantanea.vencimientos;
+            int[] inicioLector = instantanea.inicioLector;
+            // A partir de este día de vencimiento ya no hay días de retraso cobrables
+            long limite = instantanea.hoy - politica.diasGracia;
+            
+            for (int lector = desde; lector < hasta; lector++) {
+                double totalLector = 0;
+                for (int i = inicioLector[lector]; i < inicioLector[lector + 1]; i++) {
+                    long diasRetraso = limite - vencimientos[i];
+                    if (diasRetraso > 0) {
+                        double multa = Math.min(diasRetraso * politica.multaPorDia, politica.multaMaxima);
+                        totalLector += multa;
+                        resultado.prestamosConMulta++;
+                    }
+                }
+                
+                if (totalLector > 0) {
+                    resultado.ingresos += totalLector;
+                    resultado.lectoresAfectados++;
+                    resultado.maximoPorLector = Math.max(resultado.maximoPorLector, totalLector);
+                    resultado.distribucion[tramo(totalLector, politica.multaMaxima)]++;
+                }
+            }
+            return resultado;
+        }
+    }
+    
+    private static int tramo(double total, double multaMaxima) {
+        for (int i = 0; i < TRAMOS.length; i++) {
+            if (total <= TRAMOS[i] * multaMaxima) {
+                return i;
+            }
+        }
+        return TRAMOS.length;
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.demo2.service;
 
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.BatchSupport;
+import com.example.demo2.database.ConsultaCancelable;
+import com.example.demo2.database.CursorPagina;
 import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.database.Pagina;
+import com.example.demo2.database.SequenceBlockAllocator;
 import com.example.demo2.models.Lector;
+import com.example.demo2.utils.TextNormalizer;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio para gestionar operaciones CRUD de lectores
@@ -15,7 +23,25 @@ public class LectorService {
     
     private static LectorService instance;
     
-    private LectorService() {}
+    // Códigos LEC-xxxxxx desde la secuencia seq_codigo_lector, reservados por bloques
+    private final SequenceBlockAllocator codigoAllocator = new SequenceBlockAllocator(
+        "seq_codigo_lector",
+        ConfigManager.getInstance().getCodeBlockSize(),
+        "SELECT NVL(MAX(TO_NUMBER(SUBSTR(codigo_lector, 5))), 0) + 1 " +
+        "FROM lectores WHERE REGEXP_LIKE(codigo_lector, '^LEC-[0-9]+$')");
+    
+    private static final String SQL_INSERTAR_LECTOR =
+        "INSERT INTO lectores (codigo_lector, nombre, apellido, tipo_documento, " +
+        "numero_documento, email, telefono, direccion, fecha_nacimiento, " +
+        "fecha_vencimiento, estado, foto_url, observaciones, creado_por) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final EntityCache<Integer, Lector> cachePorId = new EntityCache<>("lectores",
+        ConfigManager.getInstance().getEntityCacheSize(), ConfigManager.getInstance().getEntityCacheTtl());
+    
+    private LectorService() {
+        ChangeLogService.getInstance().suscribir(ChangeLogService.LECTOR, this::aplicarCambioExterno);
+    }
     
     public static LectorService getInstance() {
         if (instance == null) {
@@ -28,28 +54,10 @@ public class LectorService {
      * Crea un nuevo lector en la base de datos
      */
     public Lector crear(Lector lector) throws SQLException {
-        String sql = "INSERT INTO lectores (codigo_lector, nombre, apellido, tipo_documento, " +
-                    "numero_documento, email, telefono, direccion, fecha_nacimiento, " +
-                    "fecha_vencimiento, estado, foto_url, observaciones, creado_por) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
         try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, new String[]{"ID"})) {
-            
-            pstmt.setString(1, lector.getCodigoLector());
-            pstmt.setString(2, lector.getNombre());
-            pstmt.setString(3, lector.getApellido());
-            pstmt.setString(4, lector.getTipoDocumento());
-            pstmt.setString(5, lector.getNumeroDocumento());
-            pstmt.setString(6, lector.getEmail());
-            pstmt.setString(7, lector.getTelefono());
-            pstmt.setString(8, lector.getDireccion());
-            pstmt.setDate(9, Date.valueOf(lector.getFechaNacimiento()));
-            pstmt.setDate(10, Date.valueOf(lector.getFechaVencimiento()));
-            pstmt.setString(11, lector.getEstado());
-            pstmt.setString(12, lector.getFotoUrl());
-            pstmt.setString(13, lector.getObservaciones());
-            pstmt.setInt(14, lector.getCreadoPor());
+             PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR_LECTOR, new String[]{"ID"})) {
+            
+            asignarParametrosAlta(pstmt, lector);
             
             int affectedRows = pstmt.executeUpdate();
             
@@ -59,6 +67,8 @@ public class LectorService {
                         lector.setId(generatedKeys.getInt(1));
                     }
                 }
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LECTOR, lector.getId(),
+                                                         ChangeLogService.ALTA);
                 conn.commit(); // Confirmar la transacción
             }
             
@@ -66,6 +76,63 @@ public class LectorService {
         }
     }
     
+    /**
+     * Crea varios lectores en una sola transacción, en tandas de db.performance.batch_size,
+     * y asigna los IDs generados (buscados por código de lector)
+     */
+    public List<Lector> crearLote(List<Lector> lectores) throws SQLException {
+        if (lectores.isEmpty()) {
+            return lectores;
+        }
+        
+        for (Lector lector : lectores) {
+            if (lector.getCodigoLector() == null || lector.getCodigoLector().isBlank()) {
+                lector.setCodigoLector(generarCodigoLector());
+            }
+        }
+        int batchSize = ConfigManager.getInstance().getBatchSize();
+        
+        return DatabaseManager.getInstance().executeInTransaction(conn -> {
+            BatchSupport.executeInChunks(conn, SQL_INSERTAR_LECTOR, lectores, batchSize, this::asignarParametrosAlta);
+            
+            List<String> codigos = new ArrayList<>();
+            for (Lector lector : lectores) {
+                codigos.add(lector.getCodigoLector());
+            }
+            Map<String, Long> ids = BatchSupport.findIdsByKey(conn, "lectores", "codigo_lector", codigos, batchSize);
+            for (Lector lector : lectores) {
+                Long id = ids.get(lector.getCodigoLector());
+                if (id == null) {
+                    // Sin ID el lector no podría registrarse en el registro de cambios
+                    throw new SQLException("No se encontró el ID del lector creado con código " + lector.getCodigoLector());
+                }
+                lector.setId(id.intValue());
+            }
+            ChangeLogService.getInstance().registrarLote(conn, ChangeLogService.LECTOR,
+                new ArrayList<>(ids.values()), ChangeLogService.ALTA);
+            
+            System.out.println("✅ Lote de " + lectores.size() + " lectores creado");
+            return lectores;
+        });
+    }
+    
+    private void asignarParametrosAlta(PreparedStatement pstmt, Lector lector) throws SQLException {
+        pstmt.setString(1, lector.getCodigoLector());
+        pstmt.setString(2, lector.getNombre());
+        pstmt.setString(3, lector.getApellido());
+        pstmt.setString(4, lector.getTipoDocumento());
+        pstmt.setString(5, lector.getNumeroDocumento());
+        pstmt.setString(6, lector.getEmail());
+        pstmt.setString(7, lector.getTelefono());
+        pstmt.setString(8, lector.getDireccion());
+        pstmt.setDate(9, Date.valueOf(lector.getFechaNacimiento()));
+        pstmt.setDate(10, Date.valueOf(lector.getFechaVencimiento()));
+        pstmt.setString(11, lector.getEstado());
+        pstmt.setString(12, lector.getFotoUrl());
+        pstmt.setString(13, lector.getObservaciones());
+        pstmt.setInt(14, lector.getCreadoPor());
+    }
+    
     /**
      * Actualiza un lector existente
      */
@@ -96,9 +163,14 @@ public class LectorService {
             
             int result = pstmt.executeUpdate();
             if (result > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LECTOR, lector.getId(),
+                                                         ChangeLogService.MODIFICACION);
                 conn.commit(); // Confirmar la transacción
             }
             return result > 0;
+        } finally {
+            // También si falla: la instancia pudo modificarse antes de intentar guardarla
+            cachePorId.invalidar(lector.getId());
         }
     }
     
@@ -114,16 +186,33 @@ public class LectorService {
             pstmt.setInt(1, id);
             int result = pstmt.executeUpdate();
             if (result > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LECTOR, id, ChangeLogService.BAJA);
                 conn.commit(); // Confirmar la transacción
+                cachePorId.invalidar(id);
             }
             return result > 0;
         }
     }
     
     /**
-     * Busca un lector por ID
+     * Aplica un cambio hecho desde otro equipo a la caché de lectores
+     */
+    private void aplicarCambioExterno(ChangeLogService.Cambio cambio) {
+        if (cambio.entidadId == null) {
+            cachePorId.invalidarTodo();
+        } else {
+            cachePorId.invalidar(Integer.valueOf(cambio.entidadId));
+        }
+    }
+    
+    /**
+     * Busca un lector por ID (desde la caché de entidades si se leyó hace poco)
      */
     public Lector buscarPorId(int id) throws SQLException {
+        return cachePorId.obtener(id, this::leerPorId);
+    }
+    
+    private Lector leerPorId(int id) throws SQLException {
         String sql = "SELECT * FROM lectores WHERE id = ?";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
@@ -198,6 +287,116 @@ public class LectorService {
         return lectores;
     }
     
+    /**
+     * Busca lectores por texto y estado, en el mismo orden que obtenerTodos.
+     * El texto se busca dentro del código, nombre completo, documento y email, sin distinguir
+     * mayúsculas ni tildes (igual que TextNormalizer.coincide). La consulta se registra en
+     * la cancelación para poder interrumpirla si el usuario sigue escribiendo.
+     *
+     * @param texto texto a buscar (null o vacío = sin filtro)
+     * @param estado estado del lector (null = todos)
+     * @param cancelacion permite cancelar la consulta desde otro hilo
+     */
+    public List<Lector> buscar(String texto, String estado, ConsultaCancelable cancelacion) throws SQLException {
+        List<String> condiciones = new ArrayList<>();
+        List<String> parametros = new ArrayList<>();
+        
+        if (texto != null && !texto.isBlank()) {
+            String patron = "%" + TextNormalizer.escaparLike(TextNormalizer.plegarParaSql(texto.trim())) + "%";
+            condiciones.add("(" +
+                TextNormalizer.expresionSql("nombre || ' ' || apellido") + " LIKE ? ESCAPE '\\' OR " +
+                TextNormalizer.expresionSql("codigo_lector") + " LIKE ? ESCAPE '\\' OR " +
+                TextNormalizer.expresionSql("numero_documento") + " LIKE ? ESCAPE '\\' OR " +
+                TextNormalizer.expresionSql("email") + " LIKE ? ESCAPE '\\')");
+            for (int i = 0; i < 4; i++) {
+                parametros.add(patron);
+            }
+        }
+        
+        if (estado != null) {
+            condiciones.add("estado = ?");
+            parametros.add(estado);
+        }
+        
+        String sql = "SELECT * FROM lectores " +
+                    (condiciones.isEmpty() ? "" : "WHERE " + String.join(" AND ", condiciones) + " ") +
+                    "ORDER BY apellido, nombre";
+        
+        List<Lector> lectores = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < parametros.size(); i++) {
+                pstmt.setString(i + 1, parametros.get(i));
+            }
+            
+            cancelacion.registrar(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lectores.add(mapearLector(rs));
+                }
+            } finally {
+                cancelacion.liberar();
+            }
+        }
+        return lectores;
+    }
+    
+    /**
+     * Obtiene una página de lectores ordenados por apellido y nombre
+     * (paginación por clave apellido, nombre, id)
+     *
+     * @param token token de continuación de la página anterior, o null para la primera página
+     * @param tamanoPagina número máximo de lectores de la página
+     */
+    public Pagina<Lector> obtenerPagina(String token, int tamanoPagina) throws SQLException {
+        String[] clave = token != null ? CursorPagina.decodificar(token, 3) : null;
+        String apellido = CursorPagina.ordenBinario("apellido");
+        String nombre = CursorPagina.ordenBinario("nombre");
+        String parametro = CursorPagina.ordenBinario("?");
+        
+        String sql = "SELECT * FROM lectores " +
+                    (clave != null
+                        ? "WHERE " + apellido + " >= " + parametro +
+                          " AND (" + apellido + " > " + parametro +
+                          " OR " + nombre + " > " + parametro +
+                          " OR (" + nombre + " = " + parametro + " AND id > ?)) "
+                        : "") +
+                    "ORDER BY " + apellido + ", " + nombre + ", id FETCH FIRST ? ROWS ONLY";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int i = 1;
+            if (clave != null) {
+                pstmt.setString(i++, clave[0]);
+                pstmt.setString(i++, clave[0]);
+                pstmt.setString(i++, clave[1]);
+                pstmt.setString(i++, clave[1]);
+                pstmt.setLong(i++, Long.parseLong(clave[2]));
+            }
+            // Una fila extra indica si hay página siguiente
+            pstmt.setInt(i, tamanoPagina + 1);
+            pstmt.setFetchSize(tamanoPagina + 1);
+            
+            List<Lector> lectores = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lectores.add(mapearLector(rs));
+                }
+            }
+            
+            if (lectores.size() <= tamanoPagina) {
+                return new Pagina<>(lectores, null);
+            }
+            
+            lectores.remove(tamanoPagina);
+            Lector ultimo = lectores.get(tamanoPagina - 1);
+            return new Pagina<>(lectores,
+                CursorPagina.codificar(ultimo.getApellido(), ultimo.getNombre(), ultimo.getId()));
+        }
+    }
+    
     /**
      * Obtiene lectores por estado
      */
@@ -319,19 +518,7 @@ public class LectorService {
      * Genera un nuevo código de lector
      */
     public String generarCodigoLector() throws SQLException {
-        String sql = "SELECT NVL(MAX(TO_NUMBER(SUBSTR(codigo_lector, 5))), 0) + 1 " +
-                    "FROM lectores WHERE REGEXP_LIKE(codigo_lector, '^LEC-[0-9]+$')";
-        
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            if (rs.next()) {
-                int siguiente = rs.getInt(1);
-                return String.format("LEC-%06d", siguiente);
-            }
-        }
-        return "LEC-000001";
+        return String.format("LEC-%06d", codigoAllocator.next());
     }
     
     /**
@@ -346,7 +533,11 @@ public class LectorService {
             
             int result = stmt.executeUpdate(sql);
             if (result > 0) {
+                // Cambio masivo: los demás equipos vacían su caché de lectores
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LECTOR, null,
+                                                         ChangeLogService.MODIFICACION);
                 conn.commit(); // Confirmar la transacción
+                cachePorId.invalidarTodo();
             }
             return result;
         }
@@ -499,8 +690,8 @@ public class LectorService {
             lectoresPrueba.add(lector5);
             
             // Crear todos los lectores
+            crearLote(lectoresPrueba);
             for (Lector lector : lectoresPrueba) {
-                crear(lector);
                 System.out.println("✅ Lector creado: " + lector.getNombreCompleto() + 
                                  " (" + lector.getCodigoLector() + ")");
             }
@@ -0,0 +1,331 @@
+package com.example.demo2.service;
+
+import com.example.demo2.models.Libro;
+import com.example.demo2.utils.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de búsqueda en memoria del catálogo de libros, por trigramas.
+ *
+ * Cada libro se indexa por los trigramas (subcadenas de 3 caracteres) de su título,
+ * autor, ISBN, editorial y categoría, plegados con TextNormalizer ("garcia" encuentra "García"). Una búsqueda intersecta las listas de los
+ * trigramas del texto (empezando por la más corta), confirma los candidatos con
+ * contains() y ordena por relevancia: coincidencia exacta, prefijo del campo, prefijo
+ * de palabra o subcadena, ponderado por campo (el título pesa más que la categoría);
+ * los libros dados de baja van después de todos los activos.
+ * Los textos de menos de 3 caracteres se resuelven recorriendo las claves precalculadas.
+ *
+ * Solo guarda las claves de búsqueda; los datos de cada libro (stock, estado) se leen
+ * de la base de datos al mostrar los resultados (ver LibroService.buscarEnIndice).
+ */
+public class LibroSearchIndex {
+    
+    // Campos indexados, en el orden de Documento.campos
+    private static final String[] CAMPOS = {"titulo", "autor", "isbn", "editorial", "categoria"};
+    private static final double[] PESOS = {5.0, 4.0, 3.0, 2.0, 1.0};
+    
+    private static LibroSearchIndex instance;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Documento> documentos = new HashMap<>();
+    private Map<String, Set<Long>> trigramas = new HashMap<>();
+    private boolean construido = false;
+    
+    private LibroSearchIndex() {}
+    
+    public static synchronized LibroSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new LibroSearchIndex();
+        }
+        return instance;
+    }
+    
+    /**
+     * Claves de búsqueda de un libro
+     */
+    private static final class Documento {
+        final long id;
+        final String[] campos;
+        final boolean activo;
+        
+        Documento(Libro libro) {
+            this.id = libro.getId();
+            this.campos = new String[] {
+                normalizar(libro.getTitulo()),
+                normalizar(libro.getAutor()),
+                normalizar(libro.getIsbn()),
+                normalizar(libro.getEditorial()),
+                normalizar(libro.getCategoria())
+            };
+            this.activo = libro.isActivo();
+        }
+        
+        Documento(Documento original, boolean activo) {
+            this.id = original.id;
+            this.campos = original.campos;
+            this.activo = activo;
+        }
+    }
+    
+    private static final class Resultado {
+        final Documento documento;
+        final double puntaje;
+        
+        Resultado(Documento documento, double puntaje) {
+            this.documento = documento;
+            this.puntaje = puntaje;
+        }
+    }
+    
+    /**
+     * Reemplaza el contenido del índice con el catálogo completo
+     */
+    public void reconstruir(Collection<Libro> libros) {
+        long inicio = System.nanoTime();
+        Map<Long, Documento> nuevosDocumentos = new HashMap<>();
+        Map<String, Set<Long>> nuevosTrigramas = new HashMap<>();
+        
+        for (Libro libro : libros) {
+            if (libro.getId() != null) {
+                Documento documento = new Documento(libro);
+                nuevosDocumentos.put(documento.id, documento);
+                indexar(nuevosTrigramas, documento);
+            }
+        }
+        
+        lock.writeLock().lock();
+        try {
+            documentos = nuevosDocumentos;
+            trigramas = nuevosTrigramas;
+            construido = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        
+        System.out.printf("🔎 Índice de libros construido: %d libros, %d trigramas en %.1f ms%n",
+                         nuevosDocumentos.size(), nuevosTrigramas.size(), (System.nanoTime() - inicio) / 1_000_000.0);
+    }
+    
+    /**
+     * Indica si el índice ya se cargó con el catálogo
+     */
+    public boolean isConstruido() {
+        lock.readLock().lock();
+        try {
+            return construido;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Agrega o reemplaza las claves de un libro (después de crearlo o actualizarlo)
+     */
+    public void actualizar(Libro libro) {
+        if (libro.getId() == null) {
+            return;
+        }
+        Documento documento = new Documento(libro);
+        
+        lock.writeLock().lock();
+        try {
+            Documento anterior = documentos.put(documento.id, documento);
+            if (anterior != null) {
+                desindexar(anterior);
+            }
+            indexar(trigramas, documento);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Marca un libro como dado de baja: sigue apareciendo, después de los activos
+     */
+    public void desactivar(Long id) {
+        lock.writeLock().lock();
+        try {
+            documentos.computeIfPresent(id, (clave, documento) -> new Documento(documento, false));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Quita un libro del índice
+     */
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            Documento anterior = documentos.remove(id);
+            if (anterior != null) {
+                desindexar(anterior);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Busca libros cuyo campo contenga el texto (sin distinguir mayúsculas ni tildes)
+     *
+     * @param texto texto a buscar
+     * @param campo titulo, autor, isbn, editorial o categoria; null para buscar en todos
+     * @param limite número máximo de resultados
+     * @return IDs de los libros encontrados, del más relevante al menos relevante
+     */
+    public List<Long> buscar(String texto, String campo, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty()) {
+            return List.of();
+        }
+        int indiceCampo = campo == null ? -1 : indiceDeCampo(campo);
+        
+        List<Resultado> resultados = new ArrayList<>();
+        
+        lock.readLock().lock();
+        try {
+            for (Documento documento : candidatos(consulta)) {
+                double puntaje = puntuar(documento, consulta, indiceCampo);
+                if (puntaje > 0) {
+                    resultados.add(new Resultado(documento, puntaje));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        // Los dados de baja van al final aunque coincidan mejor que algún activo
+        resultados.sort(Comparator
+            .comparing((Resultado r) -> !r.documento.activo)
+            .thenComparingDouble(r -> -r.puntaje)
+            .thenComparing(r -> r.documento.campos[0]));
+        
+        List<Long> ids = new ArrayList<>(Math.min(limite, resultados.size()));
+        for (int i = 0; i < resultados.size() && i < limite; i++) {
+            ids.add(resultados.get(i).documento.id);
+        }
+        return ids;
+    }
+    
+    /**
+     * Documentos que pueden contener la consulta (hay que confirmarlos con puntuar)
+     */
+    private Collection<Documento> candidatos(String consulta) {
+        if (consulta.length() < 3) {
+            return documentos.values();
+        }
+        
+        // Listas de cada trigrama de la consulta, de la más corta a la más larga
+        List<Set<Long>> listas = new ArrayList<>();
+        for (int i = 0; i + 3 <= consulta.length(); i++) {
+            Set<Long> lista = trigramas.get(consulta.substring(i, i + 3));
+            if (lista == null) {
+                return List.of();
+            }
+            listas.add(lista);
+        }
+        listas.sort(Comparator.comparingInt(Set::size));
+        
+        List<Documento> candidatos = new ArrayList<>();
+        for (Long id : listas.get(0)) {
+            boolean enTodas = true;
+            for (int i = 1; i < listas.size() && enTodas; i++) {
+                enTodas = listas.get(i).contains(id);
+            }
+            if (enTodas) {
+                candidatos.add(documentos.get(id));
+            }
+        }
+        return candidatos;
+    }
+    
+    private static double puntuar(Documento documento, String consulta, int indiceCampo) {
+        double mejor = 0;
+        for (int i = 0; i < CAMPOS.length; i++) {
+            if (indiceCampo >= 0 && i != indiceCampo) {
+                continue;
+            }
+            String valor = documento.campos[i];
+            int posicion = valor.indexOf(consulta);
+            if (posicion < 0) {
+                continue;
+            }
+            
+            double tipo;
+            if (valor.length() == consulta.length()) {
+                tipo = 4;       // Coincidencia exacta
+            } else if (posicion == 0) {
+                tipo = 3;       // Prefijo del campo
+            } else if (empiezaPalabra(valor, consulta, posicion)) {
+                tipo = 2;       // Prefijo de una palabra
+            } else {
+                tipo = 1;       // Subcadena
+            }
+            mejor = Math.max(mejor, tipo * PESOS[i]);
+        }
+        return mejor;
+    }
+    
+    /**
+     * Indica si alguna aparición de la consulta empieza una palabra del valor
+     */
+    private static boolean empiezaPalabra(String valor, String consulta, int desde) {
+        for (int posicion = desde; posicion >= 0; posicion = valor.indexOf(consulta, posicion + 1)) {
+            if (posicion == 0 || !Character.isLetterOrDigit(valor.charAt(posicion - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static void indexar(Map<String, Set<Long>> destino, Documento documento) {
+        for (String trigrama : trigramasDe(documento)) {
+            destino.computeIfAbsent(trigrama, t -> new HashSet<>()).add(documento.id);
+        }
+    }
+    
+    private void desindexar(Documento documento) {
+        for (String trigrama : trigramasDe(documento)) {
+            Set<Long> lista = trigramas.get(trigrama);
+            if (lista != null) {
+                lista.remove(documento.id);
+                if (lista.isEmpty()) {
+                    trigramas.remove(trigrama);
+                }
+            }
+        }
+    }
+    
+    private static Set<String> trigramasDe(Documento documento) {
+        Set<String> resultado = new HashSet<>();
+        for (String valor : documento.campos) {
+            for (int i = 0; i + 3 <= valor.length(); i++) {
+                resultado.add(valor.substring(i, i + 3));
+            }
+        }
+        return resultado;
+    }
+    
+    private static int indiceDeCampo(String campo) {
+        for (int i = 0; i < CAMPOS.length; i++) {
+            if (CAMPOS[i].equalsIgnoreCase(campo)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Campo de búsqueda no soportado: " + campo);
+    }
+    
+    private static String normalizar(String texto) {
+        return TextNormalizer.plegar(texto == null ? null : texto.trim());
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.demo2.service;
 
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.BatchSupport;
+import com.example.demo2.database.ConsultaCancelable;
+import com.example.demo2.database.CursorPagina;
 import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.database.Pagina;
 import com.example.demo2.models.Libro;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -8,6 +13,8 @@ import javafx.collections.ObservableList;
 import java.sql.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Servicio para gestión de libros en el sistema BiblioSystem
@@ -15,9 +22,22 @@ import java.util.ArrayList;
 public class LibroService {
     private static LibroService instance;
     private DatabaseManager databaseManager;
+    private LibroSearchIndex indiceBusqueda;
+    private final EntityCache<Long, Libro> cachePorId = new EntityCache<>("libros",
+        ConfigManager.getInstance().getEntityCacheSize(), ConfigManager.getInstance().getEntityCacheTtl());
+    
+    // Máximo de resultados de una búsqueda en el índice (también respeta el límite de 1000 del IN de Oracle)
+    private static final int LIMITE_RESULTADOS_BUSQUEDA = 500;
+    
+    private static final String SQL_INSERTAR_LIBRO =
+        "INSERT INTO libros (isbn, titulo, autor, editorial, anio_publicacion, categoria, " +
+        "cantidad_total, cantidad_disponible, descripcion, activo, fecha_registro) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
     
     private LibroService() {
         this.databaseManager = DatabaseManager.getInstance();
+        this.indiceBusqueda = LibroSearchIndex.getInstance();
+        ChangeLogService.getInstance().suscribir(ChangeLogService.LIBRO, this::aplicarCambioExterno);
     }
     
     public static LibroService getInstance() {
@@ -53,39 +73,163 @@ public class LibroService {
         return libros;
     }
     
+    /**
+     * Obtiene una página de libros ordenados por título (paginación por clave titulo, id).
+     *
+     * @param token token de continuación de la página anterior, o null para la primera página
+     * @param tamanoPagina número máximo de libros de la página
+     */
+    public Pagina<Libro> obtenerPaginaLibros(String token, int tamanoPagina) {
+        String[] clave = token != null ? CursorPagina.decodificar(token, 2) : null;
+        String titulo = CursorPagina.ordenBinario("titulo");
+        String parametro = CursorPagina.ordenBinario("?");
+        
+        String sql = "SELECT * FROM libros " +
+                    (clave != null
+                        ? "WHERE " + titulo + " >= " + parametro +
+                          " AND (" + titulo + " > " + parametro + " OR id > ?) "
+                        : "") +
+                    "ORDER BY " + titulo + ", id FETCH FIRST ? ROWS ONLY";
+        
+        List<Libro> libros = new ArrayList<>();
+        
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int i = 1;
+            if (clave != null) {
+                stmt.setString(i++, clave[0]);
+                stmt.setString(i++, clave[0]);
+                stmt.setLong(i++, Long.parseLong(clave[1]));
+            }
+            // Una fila extra indica si hay página siguiente
+            stmt.setInt(i, tamanoPagina + 1);
+            stmt.setFetchSize(tamanoPagina + 1);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    libros.add(mapearResultSetALibro(rs));
+                }
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("❌ Error obteniendo página de libros: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        if (libros.size() <= tamanoPagina) {
+            return new Pagina<>(libros, null);
+        }
+        
+        libros.remove(tamanoPagina);
+        Libro ultimo = libros.get(tamanoPagina - 1);
+        return new Pagina<>(libros, CursorPagina.codificar(ultimo.getTitulo(), ultimo.getId()));
+    }
+    
     /**
      * Busca libros por criterio
      */
     public ObservableList<Libro> buscarLibros(String criterio, String valor) {
-        ObservableList<Libro> libros = FXCollections.observableArrayList();
-        String sql = "SELECT * FROM libros WHERE UPPER(" + criterio + ") LIKE UPPER(?) ORDER BY titulo ASC";
+        ObservableList<Libro> libros = FXCollections.observableArrayList(
+            buscarEnIndice(valor, criterio, LIMITE_RESULTADOS_BUSQUEDA));
+        
+        System.out.println("🔍 Encontrados " + libros.size() + " libros con " + criterio + " = " + valor);
+        return libros;
+    }
+    
+    /**
+     * Busca en el índice de trigramas del catálogo y devuelve los libros ordenados por relevancia.
+     * El índice se construye la primera vez si todavía no se cargó; los datos de los libros
+     * encontrados se leen de la base de datos con una sola consulta por ID.
+     *
+     * @param criterio titulo, autor, isbn, editorial o categoria; null para buscar en todos
+     */
+    public List<Libro> buscarEnIndice(String texto, String criterio, int limite) {
+        return buscarEnIndice(texto, criterio, limite, ConsultaCancelable.NINGUNA);
+    }
+    
+    /**
+     * Igual que buscarEnIndice(texto, criterio, limite), registrando la lectura de los libros
+     * en la cancelación para poder interrumpirla desde otro hilo (ver SearchPipeline)
+     */
+    public List<Libro> buscarEnIndice(String texto, String criterio, int limite, ConsultaCancelable cancelacion) {
+        if (!indiceBusqueda.isConstruido()) {
+            construirIndiceBusqueda();
+        }
+        
+        List<Long> ids = indiceBusqueda.buscar(texto, criterio, Math.min(limite, LIMITE_RESULTADOS_BUSQUEDA));
+        return obtenerLibrosPorIds(ids, cancelacion);
+    }
+    
+    /**
+     * Carga el índice de búsqueda con el catálogo completo
+     */
+    public void construirIndiceBusqueda() {
+        indiceBusqueda.reconstruir(obtenerTodosLosLibros());
+    }
+    
+    /**
+     * Obtiene los libros con los IDs dados, en el mismo orden
+     */
+    private List<Libro> obtenerLibrosPorIds(List<Long> ids, ConsultaCancelable cancelacion) {
+        List<Libro> libros = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return libros;
+        }
+        
+        String sql = "SELECT * FROM libros WHERE id IN (" + "?, ".repeat(ids.size() - 1) + "?)";
+        Map<Long, Libro> porId = new HashMap<>();
         
         try (Connection conn = databaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, "%" + valor + "%");
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(i + 1, ids.get(i));
+            }
             
+            cancelacion.registrar(stmt);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     Libro libro = mapearResultSetALibro(rs);
-                    libros.add(libro);
+                    porId.put(libro.getId(), libro);
                 }
+            } finally {
+                cancelacion.liberar();
             }
             
-            System.out.println("🔍 Encontrados " + libros.size() + " libros con " + criterio + " = " + valor);
-            
         } catch (SQLException e) {
-            System.err.println("❌ Error buscando libros: " + e.getMessage());
+            // Una búsqueda reemplazada por otra no es un error
+            if (cancelacion.isCancelada()) {
+                return libros;
+            }
+            System.err.println("❌ Error obteniendo libros por ID: " + e.getMessage());
             e.printStackTrace();
         }
         
+        for (Long id : ids) {
+            Libro libro = porId.get(id);
+            if (libro != null) {
+                libros.add(libro);
+            }
+        }
         return libros;
     }
     
     /**
-     * Obtiene un libro por su ID
+     * Obtiene un libro por su ID (desde la caché de entidades si se leyó hace poco)
      */
     public Libro obtenerLibroPorId(Long id) {
+        try {
+            return cachePorId.obtener(id, this::leerLibroPorId);
+        } catch (SQLException e) {
+            System.err.println("❌ Error obteniendo libro por ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    private Libro leerLibroPorId(Long id) throws SQLException {
         String sql = "SELECT * FROM libros WHERE id = ?";
         
         try (Connection conn = databaseManager.getConnection();
@@ -98,15 +242,46 @@ public class LibroService {
                     return mapearResultSetALibro(rs);
                 }
             }
-            
-        } catch (SQLException e) {
-            System.err.println("❌ Error obteniendo libro por ID: " + e.getMessage());
-            e.printStackTrace();
         }
-        
         return null;
     }
     
+    /**
+     * Descarta el libro de la caché de entidades; lo usan también los servicios que
+     * modifican su stock (préstamos y devoluciones)
+     */
+    public void invalidarCache(Long id) {
+        cachePorId.invalidar(id);
+    }
+    
+    /**
+     * Aplica un cambio hecho desde otro equipo: descarta el libro de la caché y, salvo que
+     * solo haya cambiado el stock, actualiza sus claves en el índice de búsqueda
+     */
+    private void aplicarCambioExterno(ChangeLogService.Cambio cambio) {
+        Long id = cambio.getIdLong();
+        if (id == null) {
+            cachePorId.invalidarTodo();
+            return;
+        }
+        
+        cachePorId.invalidar(id);
+        if (ChangeLogService.STOCK.equals(cambio.operacion) || !indiceBusqueda.isConstruido()) {
+            return;
+        }
+        
+        try {
+            Libro libro = cachePorId.obtener(id, this::leerLibroPorId);
+            if (libro != null) {
+                indiceBusqueda.actualizar(libro);
+            } else {
+                indiceBusqueda.eliminar(id);
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ No se pudo actualizar el índice con el libro " + id + ": " + e.getMessage());
+        }
+    }
+    
     /**
      * Busca un libro por ISBN
      */
@@ -136,32 +311,24 @@ public class LibroService {
      * Crea un nuevo libro
      */
     public boolean crearLibro(Libro libro) {
-        String sql = "INSERT INTO libros (isbn, titulo, autor, editorial, anio_publicacion, categoria, " +
-                    "cantidad_total, cantidad_disponible, descripcion, activo, fecha_registro) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
-        
         try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERTAR_LIBRO)) {
             
-            stmt.setString(1, libro.getIsbn());
-            stmt.setString(2, libro.getTitulo());
-            stmt.setString(3, libro.getAutor());
-            stmt.setString(4, libro.getEditorial());
-            stmt.setInt(5, libro.getAnioPublicacion());
-            stmt.setString(6, libro.getCategoria());
-            stmt.setInt(7, libro.getCantidadTotal());
-            stmt.setInt(8, libro.getCantidadDisponible());
-            stmt.setString(9, libro.getDescripcion());
-            stmt.setBoolean(10, libro.isActivo());
+            asignarParametrosAlta(stmt, libro);
             
             int filasAfectadas = stmt.executeUpdate();
             
             if (filasAfectadas > 0) {
-                conn.commit(); // Confirmar la transacción
                 // Para Oracle, buscar el libro recién creado por ISBN para obtener el ID
-                Libro libroCreado = obtenerLibroPorIsbn(libro.getIsbn());
-                if (libroCreado != null) {
-                    libro.setId(libroCreado.getId());
+                Long id = BatchSupport.findIdsByKey(conn, "libros", "isbn", List.of(libro.getIsbn()), 1)
+                    .get(libro.getIsbn());
+                if (id != null) {
+                    ChangeLogService.getInstance().registrar(conn, ChangeLogService.LIBRO, id, ChangeLogService.ALTA);
+                }
+                conn.commit(); // Confirmar la transacción
+                if (id != null) {
+                    libro.setId(id);
+                    indiceBusqueda.actualizar(libro);
                 }
                 
                 System.out.println("✅ Libro creado exitosamente: " + libro.getTitulo());
@@ -176,6 +343,59 @@ public class LibroService {
         return false;
     }
     
+    /**
+     * Crea varios libros en una sola transacción, en tandas de db.performance.batch_size,
+     * y asigna los IDs generados (buscados por ISBN). Devuelve los mismos libros con su ID.
+     */
+    public List<Libro> crearLote(List<Libro> libros) throws SQLException {
+        if (libros.isEmpty()) {
+            return libros;
+        }
+        
+        int batchSize = ConfigManager.getInstance().getBatchSize();
+        
+        List<Libro> creados = databaseManager.executeInTransaction(conn -> {
+            BatchSupport.executeInChunks(conn, SQL_INSERTAR_LIBRO, libros, batchSize, this::asignarParametrosAlta);
+            
+            List<String> isbns = new ArrayList<>();
+            for (Libro libro : libros) {
+                isbns.add(libro.getIsbn());
+            }
+            Map<String, Long> ids = BatchSupport.findIdsByKey(conn, "libros", "isbn", isbns, batchSize);
+            for (Libro libro : libros) {
+                Long id = ids.get(libro.getIsbn());
+                if (id == null) {
+                    // Sin ID el libro no podría indexarse ni registrarse en el registro de cambios
+                    throw new SQLException("No se encontró el ID del libro creado con ISBN " + libro.getIsbn());
+                }
+                libro.setId(id);
+            }
+            ChangeLogService.getInstance().registrarLote(conn, ChangeLogService.LIBRO,
+                new ArrayList<>(ids.values()), ChangeLogService.ALTA);
+            return libros;
+        });
+        
+        // Como en crearLibro, el índice se actualiza solo después del commit
+        for (Libro libro : creados) {
+            indiceBusqueda.actualizar(libro);
+        }
+        System.out.println("✅ Lote de " + creados.size() + " libros creado exitosamente");
+        return creados;
+    }
+    
+    private void asignarParametrosAlta(PreparedStatement stmt, Libro libro) throws SQLException {
+        stmt.setString(1, libro.getIsbn());
+        stmt.setString(2, libro.getTitulo());
+        stmt.setString(3, libro.getAutor());
+        stmt.setString(4, libro.getEditorial());
+        stmt.setInt(5, libro.getAnioPublicacion());
+        stmt.setString(6, libro.getCategoria());
+        stmt.setInt(7, libro.getCantidadTotal());
+        stmt.setInt(8, libro.getCantidadDisponible());
+        stmt.setString(9, libro.getDescripcion());
+        stmt.setBoolean(10, libro.isActivo());
+    }
+    
     /**
      * Actualiza un libro existente
      */
@@ -202,7 +422,10 @@ public class LibroService {
             int filasAfectadas = stmt.executeUpdate();
             
             if (filasAfectadas > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LIBRO, libro.getId(),
+                                                         ChangeLogService.MODIFICACION);
                 conn.commit(); // Confirmar la transacción
+                indiceBusqueda.actualizar(libro);
                 System.out.println("✅ Libro actualizado exitosamente: " + libro.getTitulo());
                 return true;
             }
@@ -210,6 +433,9 @@ public class LibroService {
         } catch (SQLException e) {
             System.err.println("❌ Error actualizando libro: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // También si falla: la instancia pudo modificarse antes de intentar guardarla
+            cachePorId.invalidar(libro.getId());
         }
         
         return false;
@@ -229,7 +455,10 @@ public class LibroService {
             int filasAfectadas = stmt.executeUpdate();
             
             if (filasAfectadas > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.LIBRO, id, ChangeLogService.BAJA);
                 conn.commit(); // Confirmar la transacción
+                cachePorId.invalidar(id);
+                indiceBusqueda.desactivar(id);
                 System.out.println("✅ Libro desactivado exitosamente");
                 return true;
             }
@@ -500,9 +729,9 @@ public class LibroService {
     }
     
     /**
-     * Mapea un ResultSet a un objeto Libro
+     * Mapea un ResultSet a un objeto Libro (también lo usa DashboardSnapshotService)
      */
-    private Libro mapearResultSetALibro(ResultSet rs) throws SQLException {
+    Libro mapearResultSetALibro(ResultSet rs) throws SQLException {
         Libro libro = new Libro();
         libro.setId(rs.getLong("id"));
         libro.setIsbn(rs.getString("isbn"));
@@ -552,8 +781,8 @@ public class LibroService {
             for (Libro libro : librosEjemplo) {
                 libro.setDescripcion("Libro destacado de la biblioteca - " + libro.getCategoria());
                 libro.setCantidadDisponible(libro.getCantidadTotal());
-                crearLibro(libro);
             }
+            crearLote(List.of(librosEjemplo));
             
             System.out.println("✅ Libros de ejemplo creados exitosamente");
             
@@ -647,6 +876,37 @@ public class LibroService {
         return stats;
     }
     
+    /**
+     * Obtiene los totales del catálogo con una sola consulta agregada
+     */
+    public ResumenCatalogo obtenerResumenCatalogo() {
+        ResumenCatalogo resumen = new ResumenCatalogo();
+        String sql = """
+            SELECT COUNT(*) AS total,
+                   SUM(CASE WHEN activo = 1 THEN 1 ELSE 0 END) AS activos,
+                   SUM(CASE WHEN cantidad_disponible > 0 THEN 1 ELSE 0 END) AS disponibles,
+                   SUM(cantidad_total - cantidad_disponible) AS prestados
+            FROM libros
+            """;
+        
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            if (rs.next()) {
+                resumen.total = rs.getInt("total");
+                resumen.activos = rs.getInt("activos");
+                resumen.disponibles = rs.getInt("disponibles");
+                resumen.prestados = rs.getInt("prestados");
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("❌ Error calculando resumen del catálogo: " + e.getMessage());
+        }
+        
+        return resumen;
+    }
+    
     /**
      * Clase interna para estadísticas rápidas de libros
      */
@@ -654,4 +914,14 @@ public class LibroService {
         public int librosUnaExistencia = 0;
         public int librosSinDisponibilidad = 0;
     }
+    
+    /**
+     * Totales del catálogo para la pantalla de gestión de libros
+     */
+    public static class ResumenCatalogo {
+        public int total = 0;
+        public int activos = 0;
+        public int disponibles = 0;
+        public int prestados = 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.example.demo2.service;
+
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tareas de mantenimiento que antes solo se ejecutaban desde un botón de la interfaz
+ * (préstamos vencidos, multas y lectores vencidos).
+ *
+ * - Cada equipo revisa las tareas cada db.performance.maintenance_check_interval segundos,
+ *   con un desfase aleatorio para que los equipos que arrancan a la vez no consulten juntos.
+ * - La tabla tareas_mantenimiento guarda una fila por tarea con su última ejecución y un
+ *   "lease": un equipo solo ejecuta la tarea si logra tomar la fila con un UPDATE condicionado
+ *   (lease libre o vencido y tarea pendiente según db.performance.maintenance_interval).
+ *   Así solo un equipo ejecuta cada tarea y las demás ven su última ejecución.
+ * - Todas las fechas son de la base de datos: los relojes de los equipos no intervienen.
+ * - Se registran la duración y las filas afectadas de cada ejecución.
+ */
+public class MaintenanceJobService {
+    
+    public static final String PRESTAMOS_VENCIDOS = "PRESTAMOS_VENCIDOS";
+    public static final String MULTAS = "MULTAS";
+    public static final String LECTORES_VENCIDOS = "LECTORES_VENCIDOS";
+    
+    // Tiempo máximo que un equipo retiene una tarea; si se cae, otro la toma al vencer
+    private static final int LEASE_SEGUNDOS = 600;
+    private static final int LARGO_ERROR = 500;
+    
+    private static final String SQL_CREAR_FILA = """
+        MERGE INTO tareas_mantenimiento t
+        USING (SELECT ? AS nombre FROM dual) s
+        ON (t.nombre = s.nombre)
+        WHEN NOT MATCHED THEN INSERT (nombre) VALUES (s.nombre)
+        """;
+    private static final String SQL_TOMAR = """
+        UPDATE tareas_mantenimiento
+           SET propietario = ?, lease_hasta = SYSTIMESTAMP + NUMTODSINTERVAL(?, 'SECOND')
+         WHERE nombre = ?
+           AND (lease_hasta IS NULL OR lease_hasta < SYSTIMESTAMP)
+           AND (ultima_ejecucion IS NULL OR ultima_ejecucion <= SYSTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND'))
+        """;
+    private static final String SQL_TERMINAR = """
+        UPDATE tareas_mantenimiento
+           SET ultima_ejecucion = SYSTIMESTAMP, ultima_duracion_ms = ?, ultimas_filas = ?,
+               ultimo_error = NULL, ejecuciones = ejecuciones + 1,
+               propietario = NULL, lease_hasta = NULL
+         WHERE nombre = ? AND propietario = ?
+        """;
+    private static final String SQL_FALLAR = """
+        UPDATE tareas_mantenimiento
+           SET ultimo_error = ?, propietario = NULL, lease_hasta = NULL
+         WHERE nombre = ? AND propietario = ?
+        """;
+    
+    /**
+     * Trabajo de una tarea; devuelve el número de filas afectadas
+     */
+    @FunctionalInterface
+    public interface Trabajo {
+        int ejecutar() throws SQLException;
+    }
+    
+    private static MaintenanceJobService instance;
+    
+    private final List<Tarea> tareas = new ArrayList<>();
+    private ScheduledExecutorService programador;
+    
+    private MaintenanceJobService() {
+        PrestamoService prestamoService = PrestamoService.getInstance();
+        LectorService lectorService = LectorService.getInstance();
+        
+        // Primero los vencidos: las multas se calculan sobre el estado ya actualizado
+        tareas.add(new Tarea(PRESTAMOS_VENCIDOS, prestamoService::actualizarPrestamosVencidos));
+        tareas.add(new Tarea(MULTAS, prestamoService::calcularMultasConConfiguracion));
+        tareas.add(new Tarea(LECTORES_VENCIDOS, lectorService::actualizarLectoresVencidos));
+    }
+    
+    public static synchronized MaintenanceJobService getInstance() {
+        if (instance == null) {
+            instance = new MaintenanceJobService();
+        }
+        return instance;
+    }
+    
+    private static final class Tarea {
+        final String nombre;
+        final Trabajo trabajo;
+        final Estadisticas estadisticas = new Estadisticas();
+        
+        Tarea(String nombre, Trabajo trabajo) {
+            this.nombre = nombre;
+            this.trabajo = trabajo;
+            this.estadisticas.nombre = nombre;
+        }
+    }
+    
+    /**
+     * Inicia la revisión periódica de tareas (db.performance.maintenance_check_interval; 0 = desactivada)
+     */
+    public synchronized void iniciar() {
+        int intervalo = ConfigManager.getInstance().getMaintenanceCheckInterval();
+        if (programador != null || intervalo <= 0) {
+            return;
+        }
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_CREAR_FILA)) {
+            for (Tarea tarea : tareas) {
+                pstmt.setString(1, tarea.nombre);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("❌ No se pudieron iniciar las tareas de mantenimiento: " + e.getMessage());
+            return;
+        }
+        
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "maintenance-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // La primera revisión también se desfasa: los equipos suelen arrancar a la misma hora
+        programarRevision(ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(intervalo)));
+        System.out.println("🛠️ Tareas de mantenimiento revisadas cada " + intervalo + " s");
+    }
+    
+    /**
+     * Detiene la revisión periódica de tareas
+     */
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+    
+    private synchronized void programarRevision(long esperaMs) {
+        if (programador != null) {
+            programador.schedule(this::revisarTareas, esperaMs, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Ejecuta las tareas pendientes que este equipo logre tomar y programa la próxima revisión
+     */
+    private void revisarTareas() {
+        int frecuencia = ConfigManager.getInstance().getMaintenanceJobInterval();
+        
+        for (Tarea tarea : tareas) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                if (tomar(tarea, frecuencia)) {
+                    ejecutar(tarea);
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Error revisando la tarea " + tarea.nombre + ": " + e.getMessage());
+            }
+        }
+        
+        // Desfase de hasta un 20% del intervalo en cada revisión
+        long intervaloMs = TimeUnit.SECONDS.toMillis(ConfigManager.getInstance().getMaintenanceCheckInterval());
+        programarRevision(intervaloMs + ThreadLocalRandom.current().nextLong(intervaloMs / 5 + 1));
+    }
+    
+    private boolean tomar(Tarea tarea, int frecuencia) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_TOMAR)) {
+            pstmt.setString(1, ChangeLogService.getInstance().getOrigen());
+            pstmt.setInt(2, LEASE_SEGUNDOS);
+            pstmt.setString(3, tarea.nombre);
+            pstmt.setInt(4, frecuencia);
+            
+            boolean tomada = pstmt.executeUpdate() == 1;
+            conn.commit();
+            return tomada;
+        }
+    }
+    
+    private void ejecutar(Tarea tarea) throws SQLException {
+        String origen = ChangeLogService.getInstance().getOrigen();
+        long inicio = System.currentTimeMillis();
+        
+        try {
+            int filas = tarea.trabajo.ejecutar();
+            long duracion = System.currentTimeMillis() - inicio;
+            
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(SQL_TERMINAR)) {
+                pstmt.setLong(1, duracion);
+                pstmt.setInt(2, filas);
+                pstmt.setString(3, tarea.nombre);
+                pstmt.setString(4, origen);
+                pstmt.executeUpdate();
+                conn.commit();
+            }
+            
+            synchronized (tarea.estadisticas) {
+                tarea.estadisticas.ejecuciones++;
+                tarea.estadisticas.ultimasFilas = filas;
+                tarea.estadisticas.ultimaDuracionMs = duracion;
+                tarea.estadisticas.ultimaEjecucion = new Timestamp(System.currentTimeMillis());
+                tarea.estadisticas.ultimoError = null;
+            }
+            System.out.println("🛠️ Tarea " + tarea.nombre + ": " + filas + " filas en " + duracion + " ms");
+            
+        } catch (SQLException | RuntimeException e) {
+            String mensaje = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            System.err.println("❌ Error en la tarea " + tarea.nombre + ": " + mensaje);
+            
+            synchronized (tarea.estadisticas) {
+                tarea.estadisticas.errores++;
+                tarea.estadisticas.ultimoError = mensaje;
+            }
+            
+            // Libera la tarea sin marcarla como ejecutada: se reintenta en la próxima revisión
+            try (Connection conn = DatabaseManager.getInstance().getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(SQL_FALLAR)) {
+                pstmt.setString(1, mensaje.length() > LARGO_ERROR ? mensaje.substring(0, LARGO_ERROR) : mensaje);
+                pstmt.setString(2, tarea.nombre);
+                pstmt.setString(3, origen);
+                pstmt.executeUpdate();
+                conn.commit();
+            }
+        }
+    }
+    
+    /**
+     * Resumen de las tareas ejecutadas por este equipo para la información de rendimiento
+     */
+    public String getResumen() {
+        StringBuilder resumen = new StringBuilder("\n🛠️ TAREAS DE MANTENIMIENTO:");
+        for (Tarea tarea : tareas) {
+            synchronized (tarea.estadisticas) {
+                Estadisticas e = tarea.estadisticas;
+                if (e.ejecuciones == 0 && e.errores == 0) {
+                    resumen.append(String.format("\n   %s: sin ejecuciones en este equipo", e.nombre));
+                } else {
+                    resumen.append(String.format("\n   %s: %d ejecuciones, %d errores, última: %d filas en %d ms%s",
+                        e.nombre, e.ejecuciones, e.errores, e.ultimasFilas, e.ultimaDuracionMs,
+                        e.ultimoError != null ? " (error: " + e.ultimoError + ")" : ""));
+                }
+            }
+        }
+        return resumen.toString();
+    }
+    
+    /**
+     * Contadores de una tarea en este equipo
+     */
+    public static class Estadisticas {
+        public String nombre;
+        public int ejecuciones;
+        public int errores;
+        public int ultimasFilas;
+        public long ultimaDuracionMs;
+        public Timestamp ultimaEjecucion;
+        public String ultimoError;
+    }
+}
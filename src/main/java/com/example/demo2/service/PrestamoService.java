@@ -1,15 +1,27 @@
 package com.example.demo2.service;
 
+import com.example.demo2.config.ConfigManager;
+import com.example.demo2.database.BatchSupport;
+import com.example.demo2.database.ConsultaCancelable;
+import com.example.demo2.database.CursorPagina;
 import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.database.Pagina;
+import com.example.demo2.database.SequenceBlockAllocator;
 import com.example.demo2.models.Prestamo;
 import com.example.demo2.models.Libro;
 import com.example.demo2.models.Lector;
+import com.example.demo2.utils.TextNormalizer;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Servicio para gestionar operaciones CRUD de préstamos
@@ -18,6 +30,34 @@ public class PrestamoService {
     
     private static PrestamoService instance;
     
+    // Códigos PRES-xxxxxx desde la secuencia seq_codigo_prestamo, reservados por bloques
+    private final SequenceBlockAllocator codigoAllocator = new SequenceBlockAllocator(
+        "seq_codigo_prestamo",
+        ConfigManager.getInstance().getCodeBlockSize(),
+        "SELECT NVL(MAX(TO_NUMBER(SUBSTR(codigo_prestamo, 6))), 0) + 1 " +
+        "FROM prestamos WHERE REGEXP_LIKE(codigo_prestamo, '^PRES-[0-9]+$')");
+    
+    private static final String SQL_INSERTAR_PRESTAMO =
+        "INSERT INTO prestamos (codigo_prestamo, libro_id, lector_id, " +
+        "bibliotecario_prestamo_id, fecha_devolucion_esperada, estado, " +
+        "condicion_prestamo, observaciones_prestamo) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    // Nombre del recálculo de multas en puntos_control
+    private static final String PROCESO_MULTAS = "MULTAS";
+    
+    /**
+     * Orden de obtenerPagina y buscar (ORDER BY fecha_prestamo DESC, id DESC; Oracle pone
+     * los NULL primero en DESC), para ubicar en memoria las filas de una actualización incremental
+     */
+    public static final Comparator<Prestamo> ORDEN_PAGINAS = Comparator
+        .comparing(Prestamo::getFechaPrestamo, Comparator.nullsFirst(Comparator.<Timestamp>reverseOrder()))
+        .thenComparing(Prestamo::getId, Comparator.reverseOrder());
+    
+    // Segundos que se vuelven a leer en cada actualización incremental: cubre las transacciones
+    // que se confirmaron después de marcar fecha_modificacion
+    private static final int MARGEN_SINCRONIZACION_SEGUNDOS = 60;
+    
     private PrestamoService() {}
     
     public static PrestamoService getInstance() {
@@ -28,25 +68,138 @@ public class PrestamoService {
     }
     
     /**
-     * Crea un nuevo préstamo en la base de datos
+     * Crea un nuevo préstamo en la base de datos.
+     * Primero reserva un ejemplar con un UPDATE condicional: si otro bibliotecario se llevó
+     * el último ejemplar, no se actualiza ninguna fila y el préstamo se rechaza sin sobreventa.
+     * La reserva y el alta se confirman juntas en una sola transacción.
      */
     public Prestamo crear(Prestamo prestamo) throws SQLException {
-        String sql = "INSERT INTO prestamos (codigo_prestamo, libro_id, lector_id, " +
-                    "bibliotecario_prestamo_id, fecha_devolucion_esperada, estado, " +
-                    "condicion_prestamo, observaciones_prestamo) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        DatabaseManager.getInstance().executeInTransaction(conn -> {
+            if (!reservarEjemplar(conn, prestamo.getLibroId())) {
+                throw new SQLException("El libro seleccionado no tiene ejemplares disponibles para préstamo");
+            }
+            insertarPrestamo(conn, prestamo);
+            registrarCambios(conn, List.of(prestamo.getId()), ChangeLogService.ALTA, List.of(prestamo.getLibroId()));
+            return prestamo;
+        });
         
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, new String[]{"ID"})) {
+        // El stock del libro cambió: la copia en caché ya no sirve
+        LibroService.getInstance().invalidarCache(prestamo.getLibroId());
+        return prestamo;
+    }
+    
+    /**
+     * Descuenta un ejemplar solo si queda alguno; el número de filas actualizadas decide la reserva.
+     * Se ejecuta dentro de la transacción en curso (ver DatabaseManager.executeInTransaction).
+     */
+    public boolean reservarEjemplar(Connection conn, Long libroId) throws SQLException {
+        String sql = "UPDATE libros SET cantidad_disponible = cantidad_disponible - 1 " +
+                    "WHERE id = ? AND activo = 1 AND cantidad_disponible > 0";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, libroId);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+    
+    /**
+     * Crea varios préstamos en una sola transacción usando sentencias en lote.
+     * Los ejemplares se reservan agrupados por libro (un UPDATE por libro, en orden de ID
+     * para que dos lotes concurrentes bloqueen las filas en el mismo orden); si algún libro
+     * no tiene ejemplares suficientes se rechaza el lote completo sin sobreventa.
+     * Las altas se envían en tandas de db.performance.batch_size y se asignan los IDs generados.
+     */
+    public List<Prestamo> crearLote(List<Prestamo> prestamos) throws SQLException {
+        if (prestamos.isEmpty()) {
+            return prestamos;
+        }
+        
+        for (Prestamo prestamo : prestamos) {
+            if (prestamo.getCodigoPrestamo() == null || prestamo.getCodigoPrestamo().isBlank()) {
+                prestamo.setCodigoPrestamo(generarCodigoPrestamo());
+            }
+        }
+        
+        // Ejemplares pedidos por libro
+        Map<Long, Integer> ejemplaresPorLibro = new TreeMap<>();
+        for (Prestamo prestamo : prestamos) {
+            ejemplaresPorLibro.merge(prestamo.getLibroId(), 1, Integer::sum);
+        }
+        List<Map.Entry<Long, Integer>> reservas = new ArrayList<>(ejemplaresPorLibro.entrySet());
+        int batchSize = ConfigManager.getInstance().getBatchSize();
+        
+        List<Prestamo> creados = DatabaseManager.getInstance().executeInTransaction(conn -> {
+            String sqlReserva = "UPDATE libros SET cantidad_disponible = cantidad_disponible - ? " +
+                               "WHERE id = ? AND activo = 1 AND cantidad_disponible >= ?";
+            
+            int[] reservados = BatchSupport.executeInChunks(conn, sqlReserva, reservas, batchSize, (pstmt, reserva) -> {
+                pstmt.setInt(1, reserva.getValue());
+                pstmt.setLong(2, reserva.getKey());
+                pstmt.setInt(3, reserva.getValue());
+            });
             
-            pstmt.setString(1, prestamo.getCodigoPrestamo());
-            pstmt.setLong(2, prestamo.getLibroId());
-            pstmt.setLong(3, prestamo.getLectorId());
-            pstmt.setLong(4, prestamo.getBibliotecarioPrestamoId());
-            pstmt.setDate(5, Date.valueOf(prestamo.getFechaDevolucionEsperada()));
-            pstmt.setString(6, prestamo.getEstado());
-            pstmt.setString(7, prestamo.getCondicionPrestamo());
-            pstmt.setString(8, prestamo.getObservacionesPrestamo());
+            List<Long> sinStock = new ArrayList<>();
+            for (int i = 0; i < reservados.length; i++) {
+                if (reservados[i] == 0) {
+                    sinStock.add(reservas.get(i).getKey());
+                }
+            }
+            if (!sinStock.isEmpty()) {
+                throw new SQLException("No hay ejemplares suficientes para los libros con ID " + sinStock);
+            }
+            
+            BatchSupport.executeInChunks(conn, SQL_INSERTAR_PRESTAMO, prestamos, batchSize, this::asignarParametrosAlta);
+            
+            List<String> codigos = new ArrayList<>();
+            for (Prestamo prestamo : prestamos) {
+                codigos.add(prestamo.getCodigoPrestamo());
+            }
+            Map<String, Long> ids = BatchSupport.findIdsByKey(conn, "prestamos", "codigo_prestamo", codigos, batchSize);
+            for (Prestamo prestamo : prestamos) {
+                prestamo.setId(ids.get(prestamo.getCodigoPrestamo()));
+            }
+            registrarCambios(conn, new ArrayList<>(ids.values()), ChangeLogService.ALTA,
+                             new ArrayList<>(ejemplaresPorLibro.keySet()));
+            
+            System.out.println("✅ Lote de " + prestamos.size() + " préstamos creado (" + reservas.size() + " libros)");
+            return prestamos;
+        });
+        
+        for (Long libroId : ejemplaresPorLibro.keySet()) {
+            LibroService.getInstance().invalidarCache(libroId);
+        }
+        return creados;
+    }
+    
+    /**
+     * Registra los préstamos modificados y el cambio de stock de sus libros, para que
+     * los demás equipos descarten esos libros de su caché
+     */
+    private void registrarCambios(Connection conn, List<Long> prestamoIds, String operacion,
+                                  List<Long> libroIds) {
+        ChangeLogService changeLog = ChangeLogService.getInstance();
+        changeLog.registrarLote(conn, ChangeLogService.PRESTAMO, prestamoIds, operacion);
+        changeLog.registrarLote(conn, ChangeLogService.LIBRO, libroIds, ChangeLogService.STOCK);
+    }
+    
+    private void asignarParametrosAlta(PreparedStatement pstmt, Prestamo prestamo) throws SQLException {
+        pstmt.setString(1, prestamo.getCodigoPrestamo());
+        pstmt.setLong(2, prestamo.getLibroId());
+        pstmt.setLong(3, prestamo.getLectorId());
+        pstmt.setLong(4, prestamo.getBibliotecarioPrestamoId());
+        pstmt.setDate(5, Date.valueOf(prestamo.getFechaDevolucionEsperada()));
+        pstmt.setString(6, prestamo.getEstado());
+        pstmt.setString(7, prestamo.getCondicionPrestamo());
+        pstmt.setString(8, prestamo.getObservacionesPrestamo());
+    }
+    
+    /**
+     * Inserta el préstamo y asigna el ID generado
+     */
+    private boolean insertarPrestamo(Connection conn, Prestamo prestamo) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERTAR_PRESTAMO, new String[]{"ID"})) {
+            
+            asignarParametrosAlta(pstmt, prestamo);
             
             int affectedRows = pstmt.executeUpdate();
             
@@ -56,13 +209,9 @@ public class PrestamoService {
                         prestamo.setId(generatedKeys.getLong(1));
                     }
                 }
-                
-                // Actualizar cantidad disponible del libro
-                actualizarCantidadDisponible(prestamo.getLibroId(), -1);
-                conn.commit(); // Confirmar la transacción
             }
             
-            return prestamo;
+            return affectedRows > 0;
         }
     }
     
@@ -72,12 +221,14 @@ public class PrestamoService {
     public boolean actualizar(Prestamo prestamo) throws SQLException {
         String sql = "UPDATE prestamos SET estado = ?, fecha_devolucion_real = ?, " +
                     "bibliotecario_devolucion_id = ?, condicion_devolucion = ?, " +
-                    "observaciones_devolucion = ?, multa = ?, multa_pagada = ? " +
-                    "WHERE id = ?";
+                    "observaciones_devolucion = ?, multa = ?, multa_pagada = ?, " +
+                    "fecha_modificacion = SYSTIMESTAMP WHERE id = ?";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
+            List<FineLedgerService.Movimiento> movimientos = movimientosPorEdicion(conn, prestamo);
+            
             pstmt.setString(1, prestamo.getEstado());
             
             if (prestamo.getFechaDevolucionReal() != null) {
@@ -100,6 +251,9 @@ public class PrestamoService {
             
             int result = pstmt.executeUpdate();
             if (result > 0) {
+                FineLedgerService.getInstance().registrar(conn, movimientos);
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.PRESTAMO, prestamo.getId(),
+                                                         ChangeLogService.MODIFICACION);
                 conn.commit(); // Confirmar la transacción
             }
             return result > 0;
@@ -107,49 +261,64 @@ public class PrestamoService {
     }
     
     /**
-     * Registra la devolución de un libro
+     * Registra la devolución de un libro.
+     * Un solo bloque PL/SQL marca el préstamo como devuelto, obtiene su libro_id con
+     * RETURNING INTO y repone el stock, todo en un viaje a la base de datos y un commit.
      */
     public boolean registrarDevolucion(Long prestamoId, Long bibliotecarioId, 
                                      String condicionDevolucion, String observaciones) throws SQLException {
-        String sql = "UPDATE prestamos SET estado = 'DEVUELTO', fecha_devolucion_real = SYSTIMESTAMP, " +
-                    "bibliotecario_devolucion_id = ?, condicion_devolucion = ?, " +
-                    "observaciones_devolucion = ? WHERE id = ? AND estado = 'ACTIVO'";
+        String sql = """
+            DECLARE
+                v_libro_id prestamos.libro_id%TYPE;
+            BEGIN
+                UPDATE prestamos SET estado = 'DEVUELTO', fecha_devolucion_real = SYSTIMESTAMP,
+                       bibliotecario_devolucion_id = ?, condicion_devolucion = ?,
+                       observaciones_devolucion = ?, fecha_modificacion = SYSTIMESTAMP
+                 WHERE id = ? AND estado IN ('ACTIVO', 'VENCIDO')
+                RETURNING libro_id INTO v_libro_id;
+                
+                IF SQL%ROWCOUNT > 0 THEN
+                    UPDATE libros SET cantidad_disponible = cantidad_disponible + 1 WHERE id = v_libro_id;
+                END IF;
+                
+                ? := v_libro_id;
+            END;
+            """;
         
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setLong(1, bibliotecarioId);
-            pstmt.setString(2, condicionDevolucion);
-            pstmt.setString(3, observaciones);
-            pstmt.setLong(4, prestamoId);
-            
-            int rowsUpdated = pstmt.executeUpdate();
-            
-            if (rowsUpdated > 0) {
-                // Obtener el libro_id del préstamo para actualizar cantidad
-                Prestamo prestamo = buscarPorId(prestamoId);
-                if (prestamo != null) {
-                    actualizarCantidadDisponible(prestamo.getLibroId(), 1);
+        Long libroId = DatabaseManager.getInstance().executeInTransaction(conn -> {
+            try (CallableStatement cstmt = conn.prepareCall(sql)) {
+                
+                cstmt.setLong(1, bibliotecarioId);
+                cstmt.setString(2, condicionDevolucion);
+                cstmt.setString(3, observaciones);
+                cstmt.setLong(4, prestamoId);
+                cstmt.registerOutParameter(5, Types.NUMERIC);
+                
+                cstmt.execute();
+                
+                long id = cstmt.getLong(5);
+                if (cstmt.wasNull()) {
+                    return null;
                 }
-                conn.commit(); // Confirmar la transacción
-                return true;
+                registrarCambios(conn, List.of(prestamoId), ChangeLogService.MODIFICACION, List.of(id));
+                return id;
             }
-            
+        });
+        
+        // Sin libro_id devuelto: el préstamo no existía o no estaba activo
+        if (libroId == null) {
             return false;
         }
+        LibroService.getInstance().invalidarCache(libroId);
+        return true;
     }
     
     /**
-     * Elimina un préstamo por ID (solo si no está activo)
+     * Elimina un préstamo por ID (solo si no está activo ni vencido: el libro sigue prestado).
+     * El estado se comprueba en el mismo DELETE para que no cambie entre la consulta y el borrado.
      */
     public boolean eliminar(Long id) throws SQLException {
-        // Primero verificar si el préstamo está activo
-        Prestamo prestamo = buscarPorId(id);
-        if (prestamo != null && prestamo.isActivo()) {
-            throw new SQLException("No se puede eliminar un préstamo activo. Debe devolverse primero.");
-        }
-        
-        String sql = "DELETE FROM prestamos WHERE id = ?";
+        String sql = "DELETE FROM prestamos WHERE id = ? AND estado NOT IN ('ACTIVO', 'VENCIDO')";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -157,12 +326,62 @@ public class PrestamoService {
             pstmt.setLong(1, id);
             int result = pstmt.executeUpdate();
             if (result > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.PRESTAMO, id, ChangeLogService.BAJA);
                 conn.commit(); // Confirmar la transacción
+                return true;
             }
-            return result > 0;
+            
+            // No se borró nada: distinguir un préstamo inexistente de uno que sigue pendiente de devolución
+            try (PreparedStatement check = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM prestamos WHERE id = ? AND estado IN ('ACTIVO', 'VENCIDO')")) {
+                check.setLong(1, id);
+                try (ResultSet rs = check.executeQuery()) {
+                    if (rs.next() && rs.getInt(1) > 0) {
+                        throw new SQLException("No se puede eliminar un préstamo activo o vencido. Debe devolverse primero.");
+                    }
+                }
+            }
+            return false;
         }
     }
     
+    /**
+     * Movimientos del libro mayor que corresponden a editar la multa de un préstamo: el cambio de
+     * monto es un cargo y marcarla como pagada es un pago del saldo. Bloquea la fila hasta el commit.
+     */
+    private List<FineLedgerService.Movimiento> movimientosPorEdicion(Connection conn, Prestamo prestamo) throws SQLException {
+        List<FineLedgerService.Movimiento> movimientos = new ArrayList<>();
+        FineLedgerService ledger = FineLedgerService.getInstance();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT lector_id, NVL(multa, 0) AS multa, multa_pagada FROM prestamos WHERE id = ? FOR UPDATE")) {
+            pstmt.setLong(1, prestamo.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return movimientos;
+                }
+                
+                long lectorId = rs.getLong("lector_id");
+                double multaAnterior = rs.getDouble("multa");
+                boolean pagadaAnterior = rs.getBoolean("multa_pagada");
+                double multaNueva = Math.round(prestamo.getMulta() * 100) / 100.0;
+                
+                if (multaNueva != multaAnterior) {
+                    movimientos.add(new FineLedgerService.Movimiento(prestamo.getId(), lectorId,
+                        FineLedgerService.CARGO, multaNueva - multaAnterior, null, "Multa modificada"));
+                }
+                if (prestamo.isMultaPagada() && !pagadaAnterior) {
+                    double saldo = ledger.obtenerSaldoPrestamo(conn, prestamo.getId()) + multaNueva - multaAnterior;
+                    if (saldo > 0) {
+                        movimientos.add(new FineLedgerService.Movimiento(prestamo.getId(), lectorId,
+                            FineLedgerService.PAGO, saldo, null, "Multa marcada como pagada"));
+                    }
+                }
+            }
+        }
+        return movimientos;
+    }
+    
     /**
      * Busca un préstamo por ID con información completa
      */
@@ -254,6 +473,248 @@ public class PrestamoService {
         return prestamos;
     }
     
+    /**
+     * Obtiene una página de préstamos con información completa, del más reciente al más antiguo.
+     * Paginación por clave (fecha_prestamo, id) sobre idx_prestamos_fecha_id: cada página cuesta
+     * lo mismo sin importar el tamaño del historial ni cuántas páginas se hayan leído antes.
+     *
+     * @param token token de continuación de la página anterior, o null para la primera página
+     * @param tamanoPagina número máximo de préstamos de la página
+     */
+    public Pagina<Prestamo> obtenerPagina(String token, int tamanoPagina) throws SQLException {
+        return buscar(new CriteriosBusqueda(null, null), token, tamanoPagina);
+    }
+    
+    /**
+     * Busca préstamos en la base de datos y devuelve solo la página pedida, en el mismo orden
+     * que obtenerPagina. El texto se compara como prefijo (sin distinguir mayúsculas) contra
+     * el código del préstamo, el título y el ISBN del libro y el nombre o apellido del lector;
+     * título y nombres se comparan además sin tildes (TextNormalizer.expresionSql). Cada
+     * comparación usa su índice por función (ver DatabaseInitService.actualizarIndices),
+     * así el costo no depende del tamaño del historial.
+     *
+     * @param criterios texto y estado a filtrar (null o vacío = sin filtro)
+     * @param token token de continuación de la página anterior, o null para la primera página
+     * @param tamanoPagina número máximo de préstamos de la página
+     */
+    public Pagina<Prestamo> buscar(CriteriosBusqueda criterios, String token, int tamanoPagina) throws SQLException {
+        return buscar(criterios, token, tamanoPagina, ConsultaCancelable.NINGUNA);
+    }
+    
+    /**
+     * Igual que buscar(criterios, token, tamanoPagina), registrando la consulta en la
+     * cancelación para poder interrumpirla desde otro hilo (ver SearchPipeline)
+     */
+    public Pagina<Prestamo> buscar(CriteriosBusqueda criterios, String token, int tamanoPagina,
+                                   ConsultaCancelable cancelacion) throws SQLException {
+        String[] clave = token != null ? CursorPagina.decodificar(token, 2) : null;
+        List<String> condiciones = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        agregarCondicionesBusqueda(criterios, condiciones, parametros);
+        
+        if (clave != null) {
+            // Oracle ordena los NULL primero en DESC: tras ellos vienen todas las fechas
+            if (clave[0] != null) {
+                Timestamp fecha = Timestamp.valueOf(clave[0]);
+                condiciones.add("p.fecha_prestamo <= ? AND (p.fecha_prestamo < ? OR p.id < ?)");
+                parametros.add(fecha);
+                parametros.add(fecha);
+            } else {
+                condiciones.add("((p.fecha_prestamo IS NULL AND p.id < ?) OR p.fecha_prestamo IS NOT NULL)");
+            }
+            parametros.add(Long.parseLong(clave[1]));
+        }
+        
+        String sql = """
+            SELECT p.*, l.titulo, l.isbn, l.autor,
+                   lec.codigo_lector, lec.nombre || ' ' || lec.apellido AS lector_nombre,
+                   bp.nombre || ' ' || bp.apellido AS bibliotecario_prestamo_nombre,
+                   bd.nombre || ' ' || bd.apellido AS bibliotecario_devolucion_nombre
+            FROM prestamos p
+            JOIN libros l ON p.libro_id = l.id
+            JOIN lectores lec ON p.lector_id = lec.id
+            JOIN usuarios bp ON p.bibliotecario_prestamo_id = bp.id
+            LEFT JOIN usuarios bd ON p.bibliotecario_devolucion_id = bd.id
+            """ +
+            (condiciones.isEmpty() ? "" : "WHERE " + String.join("\nAND ", condiciones) + "\n") +
+            """
+            ORDER BY p.fecha_prestamo DESC, p.id DESC
+            FETCH FIRST ? ROWS ONLY
+            """;
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int i = 1;
+            for (Object parametro : parametros) {
+                pstmt.setObject(i++, parametro);
+            }
+            // Una fila extra indica si hay página siguiente
+            pstmt.setInt(i, tamanoPagina + 1);
+            pstmt.setFetchSize(tamanoPagina + 1);
+            
+            List<Prestamo> prestamos = new ArrayList<>();
+            cancelacion.registrar(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    prestamos.add(mapearPrestamoCompleto(rs));
+                }
+            } finally {
+                cancelacion.liberar();
+            }
+            
+            if (prestamos.size() <= tamanoPagina) {
+                return new Pagina<>(prestamos, null);
+            }
+            
+            prestamos.remove(tamanoPagina);
+            Prestamo ultimo = prestamos.get(tamanoPagina - 1);
+            return new Pagina<>(prestamos, CursorPagina.codificar(ultimo.getFechaPrestamo(), ultimo.getId()));
+        }
+    }
+    
+    /**
+     * Agrega las condiciones SQL (sobre el alias p) y sus parámetros para los criterios de búsqueda
+     */
+    private static void agregarCondicionesBusqueda(CriteriosBusqueda criterios, List<String> condiciones,
+                                                   List<Object> parametros) {
+        if (criterios.tieneTexto()) {
+            String prefijo = prefijoLike(criterios.getTexto().trim().toUpperCase());
+            String prefijoPlegado = prefijoLike(TextNormalizer.plegarParaSql(criterios.getTexto().trim()));
+            condiciones.add("""
+                p.id IN (
+                    SELECT id FROM prestamos WHERE UPPER(codigo_prestamo) LIKE ? ESCAPE '\\'
+                    UNION ALL
+                    SELECT pl.id FROM prestamos pl JOIN libros lb ON pl.libro_id = lb.id
+                    WHERE %s LIKE ? ESCAPE '\\' OR UPPER(lb.isbn) LIKE ? ESCAPE '\\'
+                    UNION ALL
+                    SELECT pr.id FROM prestamos pr JOIN lectores lr ON pr.lector_id = lr.id
+                    WHERE %s LIKE ? ESCAPE '\\'
+                       OR %s LIKE ? ESCAPE '\\'
+                )""".formatted(
+                    TextNormalizer.expresionSql("lb.titulo"),
+                    TextNormalizer.expresionSql("lr.nombre || ' ' || lr.apellido"),
+                    TextNormalizer.expresionSql("lr.apellido")));
+            parametros.add(prefijo);
+            parametros.add(prefijoPlegado);
+            parametros.add(prefijo);
+            parametros.add(prefijoPlegado);
+            parametros.add(prefijoPlegado);
+        }
+        
+        if (criterios.tieneEstado()) {
+            condiciones.add("p.estado = ?");
+            parametros.add(criterios.getEstado());
+        }
+    }
+    
+    /**
+     * Obtiene los préstamos creados o modificados desde la marca de la sincronización anterior
+     * y los eliminados desde entonces (según el registro de cambios), para actualizar una lista
+     * ya cargada sin volver a leerla completa. Cada fila modificada se clasifica con el mismo
+     * filtro de buscar: si lo cumple va en actualizados, si no (por ejemplo, un préstamo devuelto
+     * en una lista de activos) su ID va en quitados.
+     *
+     * @param criterios criterios con los que se cargó la lista
+     * @param desde marca devuelta por obtenerMarcaSincronizacion o por la sincronización anterior
+     */
+    public CambiosPrestamos obtenerCambios(CriteriosBusqueda criterios, Timestamp desde,
+                                           ConsultaCancelable cancelacion) throws SQLException {
+        List<String> condiciones = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        agregarCondicionesBusqueda(criterios, condiciones, parametros);
+        String coincide = condiciones.isEmpty()
+            ? "1"
+            : "CASE WHEN " + String.join("\nAND ", condiciones) + " THEN 1 ELSE 0 END";
+        
+        String sql = """
+            SELECT p.*, l.titulo, l.isbn, l.autor,
+                   lec.codigo_lector, lec.nombre || ' ' || lec.apellido AS lector_nombre,
+                   bp.nombre || ' ' || bp.apellido AS bibliotecario_prestamo_nombre,
+                   bd.nombre || ' ' || bd.apellido AS bibliotecario_devolucion_nombre,
+                   %s AS coincide_filtro
+            FROM prestamos p
+            JOIN libros l ON p.libro_id = l.id
+            JOIN lectores lec ON p.lector_id = lec.id
+            JOIN usuarios bp ON p.bibliotecario_prestamo_id = bp.id
+            LEFT JOIN usuarios bd ON p.bibliotecario_devolucion_id = bd.id
+            WHERE p.fecha_modificacion >= ?
+            """.formatted(coincide);
+        
+        String sqlEliminados = "SELECT entidad_id FROM cambios_entidades " +
+                              "WHERE entidad = ? AND operacion = ? AND fecha_cambio >= ?";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            CambiosPrestamos cambios = new CambiosPrestamos();
+            // La marca se toma antes de consultar: lo que cambie durante la consulta entra en la próxima
+            cambios.marca = marcaSincronizacion(conn);
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                for (Object parametro : parametros) {
+                    pstmt.setObject(i++, parametro);
+                }
+                pstmt.setTimestamp(i, desde);
+                
+                cancelacion.registrar(pstmt);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (rs.getInt("coincide_filtro") == 1) {
+                            cambios.actualizados.add(mapearPrestamoCompleto(rs));
+                        } else {
+                            cambios.quitados.add(rs.getLong("id"));
+                        }
+                    }
+                } finally {
+                    cancelacion.liberar();
+                }
+            }
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlEliminados)) {
+                pstmt.setString(1, ChangeLogService.PRESTAMO);
+                pstmt.setString(2, ChangeLogService.BAJA);
+                pstmt.setTimestamp(3, desde);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        cambios.quitados.add(Long.valueOf(rs.getString(1)));
+                    }
+                }
+            }
+            
+            return cambios;
+        }
+    }
+    
+    /**
+     * Marca desde la que obtenerCambios debe leer para actualizar una lista que se empieza a cargar ahora
+     */
+    public Timestamp obtenerMarcaSincronizacion() throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+            return marcaSincronizacion(conn);
+        }
+    }
+    
+    /**
+     * Hora de la base de datos (el mismo reloj que fecha_modificacion) menos el margen de sincronización
+     */
+    private static Timestamp marcaSincronizacion(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT CAST(SYSTIMESTAMP AS TIMESTAMP) - NUMTODSINTERVAL(?, 'SECOND') FROM dual")) {
+            pstmt.setInt(1, MARGEN_SINCRONIZACION_SEGUNDOS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getTimestamp(1);
+            }
+        }
+    }
+    
+    /**
+     * Convierte el texto buscado (ya en mayúsculas) en un patrón LIKE de prefijo, escapando los comodines
+     */
+    private static String prefijoLike(String texto) {
+        return TextNormalizer.escaparLike(texto) + "%";
+    }
+    
     /**
      * Obtiene préstamos por estado
      */
@@ -309,7 +770,7 @@ public class PrestamoService {
             JOIN lectores lec ON p.lector_id = lec.id
             JOIN usuarios bp ON p.bibliotecario_prestamo_id = bp.id
             LEFT JOIN usuarios bd ON p.bibliotecario_devolucion_id = bd.id
-            WHERE p.estado = 'ACTIVO' AND p.fecha_devolucion_esperada < TRUNC(SYSDATE)
+            WHERE p.estado IN ('ACTIVO', 'VENCIDO') AND p.fecha_devolucion_esperada < TRUNC(SYSDATE)
             ORDER BY p.fecha_devolucion_esperada ASC
             """;
         
@@ -378,7 +839,8 @@ public class PrestamoService {
     }
     
     /**
-     * Verifica si un libro está disponible para préstamo
+     * Verifica si un libro está disponible para préstamo.
+     * Es solo orientativo para la interfaz: la reserva real la decide crear().
      */
     public boolean libroDisponible(Long libroId) throws SQLException {
         String sql = "SELECT cantidad_disponible FROM libros WHERE id = ? AND activo = 1";
@@ -401,7 +863,7 @@ public class PrestamoService {
      * Verifica si un lector tiene préstamos activos pendientes
      */
     public boolean lectorTienePrestamosActivos(Long lectorId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM prestamos WHERE lector_id = ? AND estado = 'ACTIVO'";
+        String sql = "SELECT COUNT(*) FROM prestamos WHERE lector_id = ? AND estado IN ('ACTIVO', 'VENCIDO')";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -418,40 +880,19 @@ public class PrestamoService {
     }
     
     /**
-     * Genera un nuevo código de préstamo
+     * Genera un nuevo código de préstamo.
+     * Viene de una secuencia reservada por bloques: no se repite entre hilos ni instancias,
+     * así que no hace falta comprobar si ya existe.
      */
     public String generarCodigoPrestamo() throws SQLException {
-        String sql = "SELECT NVL(MAX(TO_NUMBER(SUBSTR(codigo_prestamo, 5))), 0) + 1 " +
-                    "FROM prestamos WHERE REGEXP_LIKE(codigo_prestamo, '^PRES-[0-9]+$')";
-        
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            if (rs.next()) {
-                int siguiente = rs.getInt(1);
-                String codigo = String.format("PRES-%06d", siguiente);
-                
-                // Verificar si el código generado ya existe (por si acaso)
-                if (existeCodigo(codigo)) {
-                    // Si existe, incrementar hasta encontrar uno disponible
-                    while (existeCodigo(codigo)) {
-                        siguiente++;
-                        codigo = String.format("PRES-%06d", siguiente);
-                    }
-                }
-                
-                return codigo;
-            }
-        }
-        return "PRES-000001";
+        return String.format("PRES-%06d", codigoAllocator.next());
     }
     
     /**
      * Actualiza estados de préstamos vencidos
      */
     public int actualizarPrestamosVencidos() throws SQLException {
-        String sql = "UPDATE prestamos SET estado = 'VENCIDO' " +
+        String sql = "UPDATE prestamos SET estado = 'VENCIDO', fecha_modificacion = SYSTIMESTAMP " +
                     "WHERE estado = 'ACTIVO' AND fecha_devolucion_esperada < TRUNC(SYSDATE)";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
@@ -459,6 +900,8 @@ public class PrestamoService {
             
             int result = stmt.executeUpdate(sql);
             if (result > 0) {
+                ChangeLogService.getInstance().registrar(conn, ChangeLogService.PRESTAMO, null,
+                                                         ChangeLogService.MODIFICACION);
                 conn.commit(); // Confirmar la transacción
             }
             return result;
@@ -481,43 +924,192 @@ public class PrestamoService {
     }
     
     /**
-     * Calcula y actualiza multas para préstamos vencidos con parámetros personalizados
+     * Calcula y actualiza multas para préstamos vencidos con parámetros personalizados.
+     *
+     * Recorre los préstamos vencidos por rangos de ID de db.performance.fine_chunk_size filas y
+     * confirma cada rango por separado, así nunca retiene muchas filas bloqueadas a la vez.
+     * Solo se actualizan (y bloquean) los préstamos cuya multa calculada cambió; la diferencia
+     * queda como cargo en el libro mayor de multas (FineLedgerService) en la misma transacción.
+     * El último ID procesado se guarda en puntos_control junto con cada rango: si el proceso se
+     * interrumpe, la siguiente llamada con los mismos parámetros y el mismo día continúa desde ahí.
      */
     public int calcularMultasPersonalizadas(int diasGracia, double multaPorDia, double multaMaxima) throws SQLException {
-        String sql = """
+        // Mismos predicados en la selección del rango y en su UPDATE; la multa usa la fecha fijada al inicio
+        // y se redondea como la columna NUMBER(10,2) para que una multa sin cambios no vuelva a escribirse
+        String condiciones = """
+            estado IN ('ACTIVO', 'VENCIDO')
+            AND fecha_devolucion_esperada < ? - ?
+            AND NVL(multa, 0) <> ROUND(LEAST(GREATEST(0, (? - fecha_devolucion_esperada - ?)) * ?, ?), 2)
+            """;
+        String sqlRango = "SELECT id FROM prestamos WHERE id > ? AND " + condiciones +
+                          " ORDER BY id FETCH FIRST ? ROWS ONLY";
+        String sqlBloquear = """
+            SELECT id, lector_id, NVL(multa, 0) AS multa_actual,
+                   ROUND(LEAST(GREATEST(0, (? - fecha_devolucion_esperada - ?)) * ?, ?), 2) AS multa_nueva
+            FROM prestamos
+            WHERE id BETWEEN ? AND ? AND 
+            """ + condiciones + " FOR UPDATE";
+        // Si la multa sube, lo pagado ya no la cubre
+        String sqlActualizar = """
             UPDATE prestamos 
-            SET multa = LEAST(
-                GREATEST(0, (TRUNC(SYSDATE) - fecha_devolucion_esperada - ?)) * ?,
-                ?
-            )
-            WHERE estado IN ('ACTIVO', 'VENCIDO') 
-            AND fecha_devolucion_esperada < TRUNC(SYSDATE) - ?
+            SET multa = ?, multa_pagada = CASE WHEN ? = 1 THEN 0 ELSE multa_pagada END,
+                fecha_modificacion = SYSTIMESTAMP
+            WHERE id = ?
             """;
         
+        int tamanoRango = ConfigManager.getInstance().getFineChunkSize();
+        int prestamosActualizados = 0;
+        int rangos = 0;
+        long inicio = System.currentTimeMillis();
+        
         try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmtRango = conn.prepareStatement(sqlRango);
+             PreparedStatement pstmtBloquear = conn.prepareStatement(sqlBloquear);
+             PreparedStatement pstmtActualizar = conn.prepareStatement(sqlActualizar)) {
             
-            pstmt.setInt(1, diasGracia);           // Días de gracia
-            pstmt.setDouble(2, multaPorDia);       // Monto por día
-            pstmt.setDouble(3, multaMaxima);       // Monto máximo
-            pstmt.setInt(4, diasGracia);           // Días de gracia para WHERE
-            
-            int prestamosActualizados = pstmt.executeUpdate();
+            Date hoy = fechaBaseDatos(conn);
+            String clave = hoy + "|" + diasGracia + "|" + multaPorDia + "|" + multaMaxima;
+            long ultimoId = leerPuntoControl(conn, PROCESO_MULTAS, clave);
+            if (ultimoId > 0) {
+                System.out.println("🔁 Recálculo de multas reanudado desde el préstamo " + ultimoId);
+            }
             
-            if (prestamosActualizados > 0) {
-                conn.commit(); // Confirmar la transacción
+            while (true) {
+                List<Long> ids = new ArrayList<>();
+                pstmtRango.setLong(1, ultimoId);
+                int i = asignarCondicionesMulta(pstmtRango, 2, hoy, diasGracia, multaPorDia, multaMaxima);
+                pstmtRango.setInt(i, tamanoRango);
+                try (ResultSet rs = pstmtRango.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                    }
+                }
+                
+                if (ids.isEmpty()) {
+                    break;
+                }
+                
+                long desde = ids.get(0);
+                long hasta = ids.get(ids.size() - 1);
+                
+                // Bloquea el rango y lee la multa anterior y la nueva de cada préstamo
+                List<Long> actualizadosIds = new ArrayList<>();
+                List<FineLedgerService.Movimiento> cargos = new ArrayList<>();
+                pstmtBloquear.setDate(1, hoy);
+                pstmtBloquear.setInt(2, diasGracia);
+                pstmtBloquear.setDouble(3, multaPorDia);
+                pstmtBloquear.setDouble(4, multaMaxima);
+                pstmtBloquear.setLong(5, desde);
+                pstmtBloquear.setLong(6, hasta);
+                asignarCondicionesMulta(pstmtBloquear, 7, hoy, diasGracia, multaPorDia, multaMaxima);
+                try (ResultSet rs = pstmtBloquear.executeQuery()) {
+                    while (rs.next()) {
+                        long id = rs.getLong("id");
+                        double actual = rs.getDouble("multa_actual");
+                        double nueva = rs.getDouble("multa_nueva");
+                        
+                        pstmtActualizar.setDouble(1, nueva);
+                        pstmtActualizar.setInt(2, nueva > actual ? 1 : 0);
+                        pstmtActualizar.setLong(3, id);
+                        pstmtActualizar.addBatch();
+                        
+                        actualizadosIds.add(id);
+                        cargos.add(new FineLedgerService.Movimiento(id, rs.getLong("lector_id"),
+                            FineLedgerService.CARGO, nueva - actual, null, "Recálculo de multa"));
+                    }
+                }
+                
+                int actualizados = actualizadosIds.size();
+                if (actualizados > 0) {
+                    pstmtActualizar.executeBatch();
+                    FineLedgerService.getInstance().registrar(conn, cargos);
+                    ChangeLogService.getInstance().registrarLote(conn, ChangeLogService.PRESTAMO, actualizadosIds,
+                                                                 ChangeLogService.MODIFICACION);
+                }
+                guardarPuntoControl(conn, PROCESO_MULTAS, clave, hasta);
+                conn.commit(); // Cada rango se confirma junto con su punto de control
+                
+                prestamosActualizados += actualizados;
+                rangos++;
+                ultimoId = hasta;
+                
+                if (ids.size() < tamanoRango) {
+                    break;
+                }
             }
             
+            borrarPuntoControl(conn, PROCESO_MULTAS);
+            conn.commit();
+            
             System.out.println("💰 Multas calculadas automáticamente:");
             System.out.println("   - Días de gracia: " + diasGracia);
             System.out.println("   - Multa por día: $" + multaPorDia);
             System.out.println("   - Multa máxima: $" + multaMaxima);
-            System.out.println("   - Préstamos actualizados: " + prestamosActualizados);
+            System.out.println("   - Préstamos actualizados: " + prestamosActualizados + " en " + rangos +
+                               " rangos (" + (System.currentTimeMillis() - inicio) + " ms)");
             
             return prestamosActualizados;
         }
     }
     
+    private static int asignarCondicionesMulta(PreparedStatement pstmt, int i, Date hoy, int diasGracia,
+                                               double multaPorDia, double multaMaxima) throws SQLException {
+        pstmt.setDate(i++, hoy);
+        pstmt.setInt(i++, diasGracia);           // Días de gracia para WHERE
+        pstmt.setDate(i++, hoy);
+        pstmt.setInt(i++, diasGracia);           // Días de gracia
+        pstmt.setDouble(i++, multaPorDia);       // Monto por día
+        pstmt.setDouble(i++, multaMaxima);       // Monto máximo
+        return i;
+    }
+    
+    private static Date fechaBaseDatos(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT TRUNC(SYSDATE) FROM dual");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getDate(1);
+        }
+    }
+    
+    /**
+     * Último ID procesado por una ejecución interrumpida con la misma clave (0 = empezar de cero)
+     */
+    private static long leerPuntoControl(Connection conn, String proceso, String clave) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT ultimo_id FROM puntos_control WHERE proceso = ? AND clave = ?")) {
+            pstmt.setString(1, proceso);
+            pstmt.setString(2, clave);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    private static void guardarPuntoControl(Connection conn, String proceso, String clave, long ultimoId) throws SQLException {
+        String sql = """
+            MERGE INTO puntos_control pc
+            USING (SELECT ? AS proceso FROM dual) s
+            ON (pc.proceso = s.proceso)
+            WHEN MATCHED THEN UPDATE SET clave = ?, ultimo_id = ?, fecha_actualizacion = SYSTIMESTAMP
+            WHEN NOT MATCHED THEN INSERT (proceso, clave, ultimo_id) VALUES (s.proceso, ?, ?)
+            """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, proceso);
+            pstmt.setString(2, clave);
+            pstmt.setLong(3, ultimoId);
+            pstmt.setString(4, clave);
+            pstmt.setLong(5, ultimoId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    private static void borrarPuntoControl(Connection conn, String proceso) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM puntos_control WHERE proceso = ?")) {
+            pstmt.setString(1, proceso);
+            pstmt.executeUpdate();
+        }
+    }
+    
     /**
      * Calcula multa individual para un préstamo específico
      */
@@ -551,30 +1143,6 @@ public class PrestamoService {
         return Math.min(multaCalculada, multaMaxima);
     }
     
-    /**
-     * Calcula y actualiza multas para préstamos vencidos (método legacy)
-     */
-    public int calcularMultas(double multaPorDia) throws SQLException {
-        String sql = """
-            UPDATE prestamos 
-            SET multa = (TRUNC(SYSDATE) - fecha_devolucion_esperada) * ?
-            WHERE estado IN ('ACTIVO', 'VENCIDO') 
-            AND fecha_devolucion_esperada < TRUNC(SYSDATE)
-            AND multa = 0
-            """;
-        
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setDouble(1, multaPorDia);
-            int result = pstmt.executeUpdate();
-            if (result > 0) {
-                conn.commit(); // Confirmar la transacción
-            }
-            return result;
-        }
-    }
-    
     /**
      * Obtiene información detallada sobre configuración de multas
      */
@@ -600,58 +1168,20 @@ public class PrestamoService {
     }
     
     /**
-     * Obtiene estadísticas de multas del sistema
+     * Obtiene estadísticas de multas del sistema (de los acumulados del libro mayor)
      */
     public String obtenerEstadisticasMultas() throws SQLException {
-        String sql = """
-            SELECT 
-                COUNT(*) as total_multas,
-                SUM(multa) as total_monto,
-                AVG(multa) as promedio_multa,
-                MAX(multa) as multa_maxima,
-                COUNT(CASE WHEN multa_pagada = 1 THEN 1 END) as multas_pagadas,
-                COUNT(CASE WHEN multa_pagada = 0 AND multa > 0 THEN 1 END) as multas_pendientes
-            FROM prestamos 
-            WHERE multa > 0
-            """;
-        
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            if (rs.next()) {
-                StringBuilder stats = new StringBuilder();
-                stats.append("📈 ESTADÍSTICAS DE MULTAS:\n");
-                stats.append("   • Total de multas: ").append(rs.getInt("total_multas")).append("\n");
-                stats.append("   • Monto total: $").append(String.format("%.2f", rs.getDouble("total_monto"))).append("\n");
-                stats.append("   • Promedio por multa: $").append(String.format("%.2f", rs.getDouble("promedio_multa"))).append("\n");
-                stats.append("   • Multa más alta: $").append(String.format("%.2f", rs.getDouble("multa_maxima"))).append("\n");
-                stats.append("   • Multas pagadas: ").append(rs.getInt("multas_pagadas")).append("\n");
-                stats.append("   • Multas pendientes: ").append(rs.getInt("multas_pendientes"));
-                
-                return stats.toString();
-            }
-        }
+        FineLedgerService.Saldo resumen = FineLedgerService.getInstance().obtenerResumen();
         
-        return "No hay datos de multas disponibles";
-    }
-    
-    /**
-     * Actualiza la cantidad disponible de un libro
-     */
-    private void actualizarCantidadDisponible(Long libroId, int cambio) throws SQLException {
-        String sql = "UPDATE libros SET cantidad_disponible = cantidad_disponible + ? WHERE id = ?";
+        StringBuilder stats = new StringBuilder();
+        stats.append("📈 ESTADÍSTICAS DE MULTAS:\n");
+        stats.append("   • Monto total cargado: $").append(String.format("%.2f", resumen.cargado)).append("\n");
+        stats.append("   • Monto pagado: $").append(String.format("%.2f", resumen.pagado)).append("\n");
+        stats.append("   • Monto condonado: $").append(String.format("%.2f", resumen.condonado)).append("\n");
+        stats.append("   • Monto pendiente: $").append(String.format("%.2f", resumen.getPendiente())).append("\n");
+        stats.append("   • Movimientos registrados: ").append(resumen.movimientos);
         
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, cambio);
-            pstmt.setLong(2, libroId);
-            int result = pstmt.executeUpdate();
-            if (result > 0) {
-                conn.commit(); // Confirmar la transacción
-            }
-        }
+        return stats.toString();
     }
     
     /**
@@ -779,8 +1309,8 @@ public class PrestamoService {
             }
             
             // Crear todos los préstamos
+            crearLote(prestamosPrueba);
             for (Prestamo prestamo : prestamosPrueba) {
-                crear(prestamo);
                 System.out.println("✅ Préstamo creado: " + prestamo.getCodigoPrestamo() + 
                                  " - Estado: " + prestamo.getEstado());
             }
@@ -828,19 +1358,7 @@ public class PrestamoService {
                 
                 try (ResultSet rs = stmt.executeQuery()) {
                     while (rs.next()) {
-                        Prestamo prestamo = new Prestamo();
-                        prestamo.setId(rs.getLong("id"));
-                        prestamo.setCodigoPrestamo(rs.getString("codigo_prestamo"));
-                        prestamo.setFechaDevolucionEsperada(rs.getDate("fecha_devolucion_esperada").toLocalDate());
-                        prestamo.setEstado(rs.getString("estado"));
-                        prestamo.setFechaPrestamo(rs.getTimestamp("fecha_prestamo"));
-                        prestamo.setMulta(rs.getDouble("multa"));
-                        prestamo.setMultaPagada(rs.getBoolean("multa_pagada"));
-                        prestamo.setLibroTitulo(rs.getString("titulo"));
-                        prestamo.setLibroIsbn(rs.getString("isbn"));
-                        prestamo.setLectorCodigo(rs.getString("codigo_lector"));
-                        prestamo.setLectorNombre(rs.getString("lector_nombre"));
-                        prestamo.setBibliotecarioPrestamoNombre(rs.getString("bibliotecario_prestamo_nombre"));
+                        Prestamo prestamo = mapearPrestamoResumen(rs);
                         prestamosProximosAVencer.add(prestamo);
                         
                         System.out.println("✅ Préstamo encontrado: " + prestamo.getCodigoPrestamo() + 
@@ -877,7 +1395,7 @@ public class PrestamoService {
                 LEFT JOIN libros l ON p.libro_id = l.id
                 LEFT JOIN lectores lec ON p.lector_id = lec.id
                 LEFT JOIN usuarios u1 ON p.bibliotecario_prestamo_id = u1.id
-                WHERE p.estado = 'ACTIVO' 
+                WHERE p.estado IN ('ACTIVO', 'VENCIDO') 
                 AND p.fecha_devolucion_esperada < TRUNC(SYSDATE)
                 AND (p.multa > 0 OR p.fecha_devolucion_esperada < TRUNC(SYSDATE))
                 ORDER BY p.fecha_devolucion_esperada ASC
@@ -887,26 +1405,8 @@ public class PrestamoService {
                  ResultSet rs = stmt.executeQuery()) {
                 
                 while (rs.next()) {
-                    Prestamo prestamo = new Prestamo();
-                    prestamo.setId(rs.getLong("id"));
-                    prestamo.setCodigoPrestamo(rs.getString("codigo_prestamo"));
-                    prestamo.setFechaDevolucionEsperada(rs.getDate("fecha_devolucion_esperada").toLocalDate());
-                    prestamo.setEstado(rs.getString("estado"));
-                    prestamo.setFechaPrestamo(rs.getTimestamp("fecha_prestamo"));
-                    prestamo.setMulta(rs.getDouble("multa"));
-                    prestamo.setMultaPagada(rs.getBoolean("multa_pagada"));
-                    prestamo.setLibroTitulo(rs.getString("titulo"));
-                    prestamo.setLibroIsbn(rs.getString("isbn"));
-                    prestamo.setLectorCodigo(rs.getString("codigo_lector"));
-                    prestamo.setLectorNombre(rs.getString("lector_nombre"));
-                    prestamo.setBibliotecarioPrestamoNombre(rs.getString("bibliotecario_prestamo_nombre"));
-                    
-                    if (prestamo.getMulta() <= 0 && prestamo.isVencido()) {
-                        double multaCalculada = calcularMultaIndividual(prestamo);
-                        prestamo.setMulta(multaCalculada);
-                    }
-                    
-                    if (prestamo.getMulta() > 0) {
+                    Prestamo prestamo = mapearPrestamoConMulta(rs);
+                    if (prestamo != null) {
                         prestamosConMulta.add(prestamo);
                     }
                 }
@@ -921,6 +1421,42 @@ public class PrestamoService {
         return prestamosConMulta;
     }
     
+    /**
+     * Mapea las columnas de las listas del dashboard (préstamo con título, lector y bibliotecario);
+     * también lo usa DashboardSnapshotService
+     */
+    Prestamo mapearPrestamoResumen(ResultSet rs) throws SQLException {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(rs.getLong("id"));
+        prestamo.setCodigoPrestamo(rs.getString("codigo_prestamo"));
+        prestamo.setFechaDevolucionEsperada(rs.getDate("fecha_devolucion_esperada").toLocalDate());
+        prestamo.setEstado(rs.getString("estado"));
+        prestamo.setFechaPrestamo(rs.getTimestamp("fecha_prestamo"));
+        prestamo.setMulta(rs.getDouble("multa"));
+        prestamo.setMultaPagada(rs.getBoolean("multa_pagada"));
+        prestamo.setLibroTitulo(rs.getString("titulo"));
+        prestamo.setLibroIsbn(rs.getString("isbn"));
+        prestamo.setLectorCodigo(rs.getString("codigo_lector"));
+        prestamo.setLectorNombre(rs.getString("lector_nombre"));
+        prestamo.setBibliotecarioPrestamoNombre(rs.getString("bibliotecario_prestamo_nombre"));
+        return prestamo;
+    }
+    
+    /**
+     * Mapea un préstamo vencido y completa su multa si aún no se calculó;
+     * devuelve null si no corresponde multa (por ejemplo, dentro de los días de gracia)
+     */
+    Prestamo mapearPrestamoConMulta(ResultSet rs) throws SQLException {
+        Prestamo prestamo = mapearPrestamoResumen(rs);
+        
+        if (prestamo.getMulta() <= 0 && prestamo.isVencido()) {
+            double multaCalculada = calcularMultaIndividual(prestamo);
+            prestamo.setMulta(multaCalculada);
+        }
+        
+        return prestamo.getMulta() > 0 ? prestamo : null;
+    }
+    
     /**
      * Obtiene estadísticas rápidas para el dashboard
      */
@@ -947,7 +1483,7 @@ public class PrestamoService {
             String sqlMultas = """
                 SELECT COUNT(*) as total
                 FROM prestamos 
-                WHERE estado = 'ACTIVO' 
+                WHERE estado IN ('ACTIVO', 'VENCIDO') 
                 AND fecha_devolucion_esperada < TRUNC(SYSDATE)
                 """;
             
@@ -975,7 +1511,7 @@ public class PrestamoService {
             SELECT 
                 COUNT(*) as total_prestamos,
                 COUNT(CASE WHEN estado = 'ACTIVO' THEN 1 END) as prestamos_activos,
-                COUNT(CASE WHEN estado = 'ACTIVO' AND fecha_devolucion_esperada < TRUNC(SYSDATE) THEN 1 END) as prestamos_vencidos,
+                COUNT(CASE WHEN estado IN ('ACTIVO', 'VENCIDO') AND fecha_devolucion_esperada < TRUNC(SYSDATE) THEN 1 END) as prestamos_vencidos,
                 COUNT(CASE WHEN estado = 'DEVUELTO' THEN 1 END) as prestamos_devueltos,
                 COUNT(CASE WHEN estado = 'ACTIVO' AND fecha_devolucion_esperada BETWEEN TRUNC(SYSDATE) AND (TRUNC(SYSDATE) + 3) THEN 1 END) as prestamos_proximos_vencer
             FROM prestamos
@@ -1017,4 +1553,50 @@ public class PrestamoService {
         public int prestamosDevueltos = 0;
         public int prestamosProximosVencer = 0;
     }
+    
+    /**
+     * Resultado de una actualización incremental (ver obtenerCambios)
+     */
+    public static class CambiosPrestamos {
+        public List<Prestamo> actualizados = new ArrayList<>();    // Nuevos o modificados que cumplen el filtro
+        public Set<Long> quitados = new HashSet<>();               // Eliminados o que ya no cumplen el filtro
+        public Timestamp marca;                                     // Desde dónde leer la próxima vez
+        
+        public boolean isVacio() {
+            return actualizados.isEmpty() && quitados.isEmpty();
+        }
+    }
+    
+    /**
+     * Criterios de búsqueda de préstamos (ver buscar)
+     */
+    public static class CriteriosBusqueda {
+        private final String texto;
+        private final String estado;
+        
+        /**
+         * @param texto prefijo de código, título, ISBN o lector (null o vacío = cualquiera)
+         * @param estado ACTIVO, VENCIDO, DEVUELTO o PERDIDO (null = todos)
+         */
+        public CriteriosBusqueda(String texto, String estado) {
+            this.texto = texto;
+            this.estado = estado;
+        }
+        
+        public String getTexto() {
+            return texto;
+        }
+        
+        public String getEstado() {
+            return estado;
+        }
+        
+        public boolean tieneTexto() {
+            return texto != null && !texto.isBlank();
+        }
+        
+        public boolean tieneEstado() {
+            return estado != null && !estado.isBlank();
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.example.demo2.service;
 
+// Configuración (tamaño y vigencia de la caché de entidades)
+import com.example.demo2.config.ConfigManager;
 // Gestor de conexiones a la base de datos Oracle Cloud
 import com.example.demo2.database.DatabaseManager;
 // Modelos de datos del sistema
@@ -78,7 +80,14 @@ public class UsuarioService {
     // === PATRÓN SINGLETON ===
     private static UsuarioService instance;        // Única instancia del servicio
     
+    // === CACHÉ DE LECTURA (por ID y por username) ===
+    private final EntityCache<Long, Usuario> cachePorId = new EntityCache<>("usuarios por ID",
+        ConfigManager.getInstance().getEntityCacheSize(), ConfigManager.getInstance().getEntityCacheTtl());
+    private final EntityCache<String, Usuario> cachePorUsername = new EntityCache<>("usuarios por username",
+        ConfigManager.getInstance().getEntityCacheSize(), ConfigManager.getInstance().getEntityCacheTtl());
+    
     private UsuarioService() {
+        ChangeLogService.getInstance().suscribir(ChangeLogService.USUARIO, this::aplicarCambioExterno);
     }
     
     public static UsuarioService getInstance() {
@@ -124,6 +133,8 @@ public class UsuarioService {
                     usuario.setId(rs.getLong(1));
                 }
             }
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuario.getId(),
+                                                     ChangeLogService.ALTA);
             
             // Confirmar la transacción
             conn.commit();
@@ -158,16 +169,53 @@ public class UsuarioService {
             stmt.setLong(10, usuario.getId());
             
             stmt.executeUpdate();
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuario.getId(),
+                                                     ChangeLogService.MODIFICACION);
             
             // Confirmar la transacción
             conn.commit();
+        } finally {
+            // También si falla: la instancia pudo modificarse antes de intentar guardarla
+            invalidarCache(usuario.getId());
+        }
+    }
+    
+    /**
+     * Aplica un cambio hecho desde otro equipo a las cachés de usuarios
+     */
+    private void aplicarCambioExterno(ChangeLogService.Cambio cambio) {
+        if (cambio.entidadId == null) {
+            cachePorId.invalidarTodo();
+            cachePorUsername.invalidarTodo();
+        } else {
+            invalidarCache(cambio.getIdLong());
         }
     }
     
     /**
-     * Busca un usuario por su username
+     * Descarta un usuario de las cachés por ID y por username
+     */
+    private void invalidarCache(Long usuarioId) {
+        cachePorId.invalidar(usuarioId);
+        cachePorUsername.invalidarSi(usuario -> usuarioId != null && usuarioId.equals(usuario.getId()));
+    }
+    
+    /**
+     * Busca un usuario por su username (desde la caché de entidades si se leyó hace poco)
      */
     public Usuario buscarPorUsername(String username) throws SQLException {
+        return cachePorUsername.obtener(username, this::leerPorUsername);
+    }
+    
+    /**
+     * Busca un usuario por su username leyendo siempre la base de datos, para validar
+     * credenciales y estado con los datos vigentes (el resultado queda en caché)
+     */
+    public Usuario buscarPorUsernameVigente(String username) throws SQLException {
+        return cachePorUsername.recargar(username, this::leerPorUsername);
+    }
+    
+    private Usuario leerPorUsername(String username) throws SQLException {
         String sql = "SELECT * FROM usuarios WHERE username = ?";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
@@ -185,9 +233,13 @@ public class UsuarioService {
     }
     
     /**
-     * Busca un usuario por su ID
+     * Busca un usuario por su ID (desde la caché de entidades si se leyó hace poco)
      */
     public Usuario buscarPorId(Long id) throws SQLException {
+        return cachePorId.obtener(id, this::leerPorId);
+    }
+    
+    private Usuario leerPorId(Long id) throws SQLException {
         String sql = "SELECT * FROM usuarios WHERE id = ?";
         
         try (Connection conn = DatabaseManager.getInstance().getConnection();
@@ -295,9 +347,11 @@ public class UsuarioService {
             
             stmt.setLong(1, usuarioId);
             stmt.executeUpdate();
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuarioId, ChangeLogService.BAJA);
             
             // Confirmar la transacción
             conn.commit();
+            invalidarCache(usuarioId);
         }
     }
     
@@ -331,9 +385,12 @@ public class UsuarioService {
             stmt.setLong(2, usuarioId);
             
             stmt.executeUpdate();
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuarioId,
+                                                     ChangeLogService.MODIFICACION);
             
             // Confirmar la transacción
             conn.commit();
+            invalidarCache(usuarioId);
         }
     }
     
@@ -348,9 +405,11 @@ public class UsuarioService {
             
             stmt.setLong(1, usuarioId);
             stmt.executeUpdate();
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuarioId, ChangeLogService.BAJA);
             
             // Confirmar la transacción
             conn.commit();
+            invalidarCache(usuarioId);
         }
     }
     
@@ -400,9 +459,12 @@ public class UsuarioService {
             stmt.setLong(2, usuarioId);
             
             int filasAfectadas = stmt.executeUpdate();
+            ChangeLogService.getInstance().registrar(conn, ChangeLogService.USUARIO, usuarioId,
+                                                     ChangeLogService.MODIFICACION);
             
             // Confirmar la transacción
             conn.commit();
+            invalidarCache(usuarioId);
             
             return filasAfectadas > 0;
             
@@ -489,6 +551,9 @@ public class UsuarioService {
         usuario.setActivo(rs.getInt("activo") == 1);
         usuario.setFechaCreacion(rs.getTimestamp("fecha_creacion"));
         usuario.setUltimoAcceso(rs.getTimestamp("ultimo_acceso"));
+        
+        // Clave de búsqueda precalculada una sola vez por fila
+        usuario.getClaveBusqueda();
         return usuario;
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.example.demo2.test;
+
+import com.example.demo2.database.DatabaseManager;
+import com.example.demo2.service.PrestamoService;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de estrés de la reserva de ejemplares
+ * Varios mostradores reservan a la vez el mismo libro hasta agotarlo y se comprueba
+ * que no hay sobreventa (reservas == stock inicial, stock final == 0)
+ * y cómo escala el throughput con el número de mostradores.
+ * Restaura las cantidades originales del libro al terminar.
+ */
+public class StockReservationStressTest {
+    
+    private static final int STOCK_INICIAL = 200;
+    private static final int[] MOSTRADORES = {1, 2, 4, 8};
+    
+    public static void main(String[] args) {
+        System.out.println("🧪 INICIANDO PRUEBA DE ESTRÉS DE RESERVA DE EJEMPLARES");
+        System.out.println("=".repeat(60));
+        
+        StockReservationStressTest test = new StockReservationStressTest();
+        
+        try {
+            long libroId = args.length > 0 ? Long.parseLong(args[0]) : test.buscarLibroActivo();
+            int totalOriginal = test.leerCantidad(libroId, "cantidad_total");
+            int stockOriginal = test.leerCantidad(libroId, "cantidad_disponible");
+            System.out.println("📖 Libro ID: " + libroId + " (stock original: " + stockOriginal + "/" + totalOriginal + ")");
+            
+            try {
+                for (int mostradores : MOSTRADORES) {
+                    test.testReservasConcurrentes(libroId, mostradores);
+                }
+            } finally {
+                test.fijarCantidades(libroId, totalOriginal, stockOriginal);
+                System.out.println("\n🔄 Stock original restaurado: " + stockOriginal + "/" + totalOriginal);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error en prueba de reservas: " + e.getMessage());
+        }
+        
+        System.out.println("\n✅ PRUEBAS COMPLETADAS");
+    }
+    
+    /**
+     * Agota el stock del libro con varios mostradores en paralelo
+     */
+    public void testReservasConcurrentes(long libroId, int mostradores) throws Exception {
+        System.out.println("\n🔄 " + mostradores + " mostrador(es), " + STOCK_INICIAL + " ejemplares");
+        System.out.println("-".repeat(50));
+        
+        // chk_cantidad exige cantidad_disponible <= cantidad_total
+        fijarCantidades(libroId, STOCK_INICIAL, STOCK_INICIAL);
+        
+        DatabaseManager db = DatabaseManager.getInstance();
+        PrestamoService prestamoService = PrestamoService.getInstance();
+        AtomicInteger reservas = new AtomicInteger();
+        AtomicInteger rechazos = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(mostradores);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        long startTime = System.currentTimeMillis();
+        
+        for (int i = 0; i < mostradores; i++) {
+            futures.add(executor.submit(() -> {
+                // Cada mostrador reserva hasta que la base de datos rechaza la reserva
+                while (db.executeInTransaction(conn -> prestamoService.reservarEjemplar(conn, libroId))) {
+                    reservas.incrementAndGet();
+                }
+                rechazos.incrementAndGet();
+                return null;
+            }));
+        }
+        
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        
+        long totalTime = Math.max(1, System.currentTimeMillis() - startTime);
+        int stockFinal = leerCantidad(libroId, "cantidad_disponible");
+        int sobreventa = reservas.get() - STOCK_INICIAL;
+        
+        System.out.printf("✓ Reservas: %d, rechazos finales: %d, stock final: %d\n",
+                         reservas.get(), rechazos.get(), stockFinal);
+        System.out.printf("%s Sobreventa: %d\n", sobreventa == 0 && stockFinal == 0 ? "✅" : "❌", sobreventa);
+        System.out.printf("⏱️  Tiempo total: %d ms\n", totalTime);
+        System.out.printf("🚀 Reservas por segundo: %.2f\n", (double) reservas.get() * 1000 / totalTime);
+    }
+    
+    private long buscarLibroActivo() throws SQLException {
+        String sql = "SELECT id FROM libros WHERE activo = 1 ORDER BY id FETCH FIRST 1 ROWS ONLY";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        throw new SQLException("No hay libros activos para la prueba");
+    }
+    
+    private int leerCantidad(long libroId, String columna) throws SQLException {
+        String sql = "SELECT " + columna + " FROM libros WHERE id = ?";
+        
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, libroId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    private void fijarCantidades(long libroId, int total, int disponible) throws SQLException {
+        String sql = "UPDATE libros SET cantidad_total = ?, cantidad_disponible = ? WHERE id = ?";
+        
+        DatabaseManager.getInstance().executeInTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, total);
+                stmt.setInt(2, disponible);
+                stmt.setLong(3, libroId);
+                return stmt.executeUpdate();
+            }
+        });
+    }
+}
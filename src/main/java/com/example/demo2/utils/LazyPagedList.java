@@ -0,0 +1,575 @@
+package com.example.demo2.utils;
+
+import com.example.demo2.database.Pagina;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Lista observable de solo lectura que carga sus filas por páginas a medida que
+ * la TableView las muestra.
+ *
+ * - Al crearse trae solo la primera página.
+ * - Cuando la tabla pide filas de la última página conocida, la siguiente se
+ *   precarga en segundo plano y se agrega al final (la barra de desplazamiento crece).
+ * - En memoria se mantienen como máximo maxPaginas páginas (las usadas más
+ *   recientemente); de las demás solo se guardan el token y las claves de sus filas.
+ * - Una página que salió de la ventana se vuelve a pedir en segundo plano: mientras llega
+ *   sus filas se entregan como null (la tabla las muestra vacías) y al llegar se avisa con
+ *   un cambio de reemplazo. Si ya no tiene las mismas filas que se esperaban, se vuelve a
+ *   cargar la lista completa; nunca se muestra una fila en lugar de otra.
+ * - fusionar() aplica una actualización incremental sobre la misma lista, así la tabla
+ *   conserva el desplazamiento; por eso las páginas pueden terminar con distinto tamaño.
+ *
+ * Cada página n abarca las filas que van después del borde de la página n - 1 y hasta su
+ * propio borde (la última fila que tenía al leerse, de la que sale el token de la página
+ * n + 1): fusionar() ubica las filas por esos bordes aunque la página no esté en memoria.
+ *
+ * Se usa desde el hilo de JavaFX. Las columnas de la tabla no deben ser ordenables:
+ * el orden lo define la consulta paginada.
+ */
+public class LazyPagedList<T> extends ObservableListBase<T> {
+    
+    /**
+     * Carga una página a partir del token de continuación (null = primera página)
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        Pagina<T> cargar(String token, int tamanoPagina) throws SQLException;
+    }
+    
+    // Un único hilo compartido por todas las listas: las precargas son consultas cortas
+    private static final ExecutorService PRECARGA = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "lazy-page-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final PageLoader<T> loader;
+    private final Function<T, ?> clave;
+    private final int tamanoPagina;
+    private final Executor segundoPlano;
+    private final Executor hiloInterfaz;
+    private final Map<Integer, List<T>> ventana;
+    private final Map<Integer, Set<Object>> clavesFuera = new HashMap<>(); // Claves de las páginas fuera de la ventana
+    private final Set<Integer> recargando = new HashSet<>();
+    private final List<String> tokens = new ArrayList<>();  // tokens.get(n) carga la página n
+    private final List<Integer> inicios = new ArrayList<>(); // inicios.get(n) = índice de la primera fila de la página n
+    private final List<T> bordes = new ArrayList<>();       // bordes.get(n) = última fila de la página n al leerla
+    
+    private String tokenSiguiente;      // Token de la página aún no cargada (null = no hay más)
+    private boolean precargando = false;
+    private boolean recargandoLista = false;
+    private int size = 0;
+    private int generacion = 0;         // Cambia al recargar la lista: descarta las páginas pedidas antes
+    private int fusiones = 0;           // Cambia en cada fusión: las páginas pedidas antes pueden tener otro tamaño
+    
+    /**
+     * Crea la lista cargando la primera página
+     *
+     * @param clave obtiene la clave única de una fila
+     */
+    public LazyPagedList(PageLoader<T> loader, Function<T, ?> clave, int tamanoPagina, int maxPaginas) throws SQLException {
+        this(loader, clave, loader.cargar(null, Math.max(1, tamanoPagina)), tamanoPagina, maxPaginas);
+    }
+    
+    /**
+     * Crea la lista a partir de una primera página ya consultada (por ejemplo en segundo plano)
+     */
+    public LazyPagedList(PageLoader<T> loader, Function<T, ?> clave, Pagina<T> primera, int tamanoPagina, int maxPaginas) {
+        this(loader, clave, primera, tamanoPagina, maxPaginas, PRECARGA, Platform::runLater);
+    }
+    
+    /**
+     * @param segundoPlano donde se consultan las páginas
+     * @param hiloInterfaz donde se aplican las páginas consultadas (el hilo que usa la lista)
+     */
+    LazyPagedList(PageLoader<T> loader, Function<T, ?> clave, Pagina<T> primera, int tamanoPagina, int maxPaginas,
+                  Executor segundoPlano, Executor hiloInterfaz) {
+        this.loader = loader;
+        this.clave = clave;
+        this.tamanoPagina = Math.max(1, tamanoPagina);
+        this.segundoPlano = segundoPlano;
+        this.hiloInterfaz = hiloInterfaz;
+        int limite = Math.max(2, maxPaginas);
+        this.ventana = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                if (size() <= limite) {
+                    return false;
+                }
+                clavesFuera.put(eldest.getKey(), clavesDe(eldest.getValue()));
+                return true;
+            }
+        };
+        
+        iniciar(primera);
+    }
+    
+    private void iniciar(Pagina<T> primera) {
+        tokens.add(null);
+        inicios.add(0);
+        bordes.add(primera.size() > 0 ? primera.getElementos().get(primera.size() - 1) : null);
+        ventana.put(0, primera.getElementos());
+        tokenSiguiente = primera.getTokenSiguiente();
+        size = primera.size();
+    }
+    
+    /**
+     * Fila en la posición dada, o null si su página se está volviendo a pedir
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + size + ")");
+        }
+        
+        int numero = paginaDe(index);
+        // Las últimas páginas pueden haber quedado vacías con fusionar: cuenta la última con filas
+        if (numero == paginaDe(size - 1)) {
+            precargarSiguiente();
+        }
+        
+        List<T> pagina = ventana.get(numero);
+        if (pagina == null) {
+            solicitarPagina(numero);
+            return null;
+        }
+        return pagina.get(index - inicios.get(numero));
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Indica si quedan filas por cargar después de las ya conocidas
+     */
+    public boolean hayMas() {
+        return tokenSiguiente != null;
+    }
+    
+    /**
+     * Número de la página que contiene la fila (la última de las que empiezan en o antes de index,
+     * así se saltan las páginas que quedaron vacías)
+     */
+    private int paginaDe(int index) {
+        int bajo = 0;
+        int alto = inicios.size() - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (inicios.get(medio) <= index) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return bajo;
+    }
+    
+    private int tamanoDe(int numero) {
+        int fin = numero + 1 < inicios.size() ? inicios.get(numero + 1) : size;
+        return fin - inicios.get(numero);
+    }
+    
+    private Set<Object> clavesDe(List<T> filas) {
+        Set<Object> claves = new HashSet<>();
+        for (T fila : filas) {
+            claves.add(clave.apply(fila));
+        }
+        return claves;
+    }
+    
+    /**
+     * Vuelve a leer en segundo plano una página que salió de la ventana, con el token guardado
+     * y el tamaño que tiene ahora (puede haber cambiado con fusionar)
+     */
+    private void solicitarPagina(int numero) {
+        if (recargandoLista || recargando.contains(numero)) {
+            return;
+        }
+        int tamano = tamanoDe(numero);
+        if (tamano == 0) {
+            // Quedó vacía con fusionar: no hay nada que consultar
+            clavesFuera.remove(numero);
+            ventana.put(numero, List.of());
+            return;
+        }
+        recargando.add(numero);
+        String token = tokens.get(numero);
+        int generacionPedida = generacion;
+        int fusionesPedidas = fusiones;
+        
+        segundoPlano.execute(() -> {
+            try {
+                Pagina<T> pagina = loader.cargar(token, tamano);
+                hiloInterfaz.execute(() -> aplicarPagina(numero, pagina, generacionPedida, fusionesPedidas));
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("❌ Error recargando página " + numero + ": " + e.getMessage());
+                hiloInterfaz.execute(() -> {
+                    // Se vuelve a intentar la próxima vez que la tabla pida sus filas
+                    if (generacionPedida == generacion) {
+                        recargando.remove(numero);
+                    }
+                });
+            }
+        });
+    }
+    
+    private void aplicarPagina(int numero, Pagina<T> pagina, int generacionPedida, int fusionesPedidas) {
+        if (generacionPedida != generacion) {
+            return;
+        }
+        recargando.remove(numero);
+        if (fusionesPedidas != fusiones) {
+            // Se pidió con el tamaño anterior a una fusión
+            solicitarPagina(numero);
+            return;
+        }
+        
+        Set<Object> esperadas = clavesFuera.get(numero);
+        if (esperadas == null || pagina.size() != esperadas.size() || !esperadas.equals(clavesDe(pagina.getElementos()))) {
+            System.err.println("⚠️ La página " + numero + " cambió desde la primera lectura; se vuelve a cargar la lista");
+            recargarLista();
+            return;
+        }
+        
+        clavesFuera.remove(numero);
+        ventana.put(numero, pagina.getElementos());
+        
+        int inicio = inicios.get(numero);
+        beginChange();
+        for (int i = 0; i < pagina.size(); i++) {
+            nextSet(inicio + i, null);
+        }
+        endChange();
+    }
+    
+    /**
+     * Vuelve a cargar la lista desde la primera página; al llegar reemplaza todo el contenido
+     */
+    private void recargarLista() {
+        if (recargandoLista) {
+            return;
+        }
+        recargandoLista = true;
+        precargando = false;
+        recargando.clear();
+        int generacionPedida = ++generacion;
+        
+        segundoPlano.execute(() -> {
+            try {
+                Pagina<T> primera = loader.cargar(null, tamanoPagina);
+                hiloInterfaz.execute(() -> reemplazarContenido(primera, generacionPedida));
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("❌ Error volviendo a cargar la lista: " + e.getMessage());
+                hiloInterfaz.execute(() -> {
+                    if (generacionPedida == generacion) {
+                        recargandoLista = false;
+                    }
+                });
+            }
+        });
+    }
+    
+    private void reemplazarContenido(Pagina<T> primera, int generacionPedida) {
+        if (generacionPedida != generacion) {
+            return;
+        }
+        
+        List<T> anteriores = new ArrayList<>(size);
+        for (int numero = 0; numero < tokens.size(); numero++) {
+            List<T> pagina = ventana.get(numero);
+            anteriores.addAll(pagina != null ? pagina : Collections.nCopies(tamanoDe(numero), null));
+        }
+        
+        ventana.clear();
+        clavesFuera.clear();
+        recargando.clear();
+        tokens.clear();
+        inicios.clear();
+        bordes.clear();
+        recargandoLista = false;
+        precargando = false;
+        iniciar(primera);
+        
+        beginChange();
+        if (!anteriores.isEmpty()) {
+            nextRemove(0, anteriores);
+        }
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+        endChange();
+    }
+    
+    /**
+     * Pide la página siguiente en segundo plano y la agrega al final en el hilo de JavaFX
+     */
+    private void precargarSiguiente() {
+        if (precargando || recargandoLista || tokenSiguiente == null) {
+            return;
+        }
+        precargando = true;
+        String token = tokenSiguiente;
+        int generacionPedida = generacion;
+        
+        segundoPlano.execute(() -> {
+            try {
+                Pagina<T> pagina = loader.cargar(token, tamanoPagina);
+                hiloInterfaz.execute(() -> agregarPagina(token, pagina, generacionPedida));
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("❌ Error precargando página: " + e.getMessage());
+                hiloInterfaz.execute(() -> {
+                    if (generacionPedida == generacion) {
+                        precargando = false;
+                    }
+                });
+            }
+        });
+    }
+    
+    private void agregarPagina(String token, Pagina<T> pagina, int generacionPedida) {
+        if (generacionPedida != generacion) {
+            return;
+        }
+        precargando = false;
+        
+        int numero = tokens.size();
+        tokens.add(token);
+        inicios.add(size);
+        bordes.add(pagina.size() > 0 ? pagina.getElementos().get(pagina.size() - 1) : bordes.get(numero - 1));
+        ventana.put(numero, pagina.getElementos());
+        tokenSiguiente = pagina.getTokenSiguiente();
+        
+        int desde = size;
+        size += pagina.size();
+        if (size > desde) {
+            beginChange();
+            nextAdd(desde, size);
+            endChange();
+        }
+    }
+    
+    /**
+     * Aplica una actualización incremental a las filas ya cargadas, sin reemplazar la lista.
+     * Cada fila nueva o modificada se ubica en la página que le corresponde según los bordes:
+     * - En una página en memoria, si mantiene su posición se reemplaza en su lugar; si no, se
+     *   quita y se vuelve a insertar según el orden, igual que las nuevas.
+     * - En una página fuera de la ventana solo se actualizan sus claves y su tamaño (los inicios
+     *   de las páginas siguientes se desplazan); sus filas se avisan como reemplazadas y se
+     *   vuelven a pedir cuando la tabla las muestre.
+     * Una fila nueva que va después de la última cargada se omite si quedan páginas: llegará con ellas.
+     *
+     * @param actualizados filas nuevas o modificadas que pertenecen a la lista
+     * @param quitados claves de las filas que ya no pertenecen a la lista
+     * @param orden el mismo orden de la consulta paginada
+     * @return false si la lista se está volviendo a cargar y hay que cargarla de nuevo con los cambios
+     */
+    public boolean fusionar(List<T> actualizados, Collection<?> quitados, Comparator<T> orden) {
+        if (actualizados.isEmpty() && quitados.isEmpty()) {
+            return true;
+        }
+        if (recargandoLista) {
+            return false;
+        }
+        
+        Map<Object, T> pendientes = new LinkedHashMap<>();
+        for (T fila : actualizados) {
+            pendientes.put(clave.apply(fila), fila);
+        }
+        Map<Object, Integer> destinos = new HashMap<>();
+        Map<Integer, List<T>> porPagina = new HashMap<>();
+        for (Map.Entry<Object, T> entrada : pendientes.entrySet()) {
+            int destino = paginaPara(entrada.getValue(), orden);
+            destinos.put(entrada.getKey(), destino);
+            if (destino >= 0) {
+                porPagina.computeIfAbsent(destino, n -> new ArrayList<>()).add(entrada.getValue());
+            }
+        }
+        
+        int[] tamanos = new int[tokens.size()];
+        for (int numero = 0; numero < tokens.size(); numero++) {
+            tamanos[numero] = tamanoDe(numero);
+        }
+        
+        fusiones++;
+        beginChange();
+        try {
+            int indice = 0;
+            for (int numero = 0; numero < tokens.size(); numero++) {
+                inicios.set(numero, indice);
+                List<T> altas = porPagina.getOrDefault(numero, List.of());
+                
+                if (ventana.containsKey(numero)) {
+                    indice = fusionarPagina(numero, altas, pendientes, quitados, orden);
+                } else {
+                    indice = fusionarPaginaFuera(numero, tamanos[numero], altas, pendientes, destinos, quitados);
+                }
+            }
+        } finally {
+            endChange();
+        }
+        
+        // Si la última página quedó vacía ninguna fila visible pedirá la siguiente
+        if (tamanoDe(tokens.size() - 1) == 0) {
+            precargarSiguiente();
+        }
+        return true;
+    }
+    
+    /**
+     * Fusiona una página en memoria; devuelve el índice donde empieza la siguiente
+     */
+    private int fusionarPagina(int numero, List<T> altas, Map<Object, T> pendientes,
+                               Collection<?> quitados, Comparator<T> orden) {
+        List<T> pagina = new ArrayList<>(ventana.get(numero));
+        int inicio = inicios.get(numero);
+        Set<Object> colocados = new HashSet<>();
+        
+        // Reemplazos y bajas
+        int indice = inicio;
+        for (int i = 0; i < pagina.size(); ) {
+            T actual = pagina.get(i);
+            Object k = clave.apply(actual);
+            T nuevo = pendientes.get(k);
+            
+            if (nuevo != null && orden.compare(actual, nuevo) == 0) {
+                pagina.set(i, nuevo);
+                colocados.add(k);
+                nextSet(indice, actual);
+                i++;
+                indice++;
+            } else if (nuevo != null || quitados.contains(k)) {
+                pagina.remove(i);
+                size--;
+                nextRemove(indice, actual);
+            } else {
+                i++;
+                indice++;
+            }
+        }
+        
+        // Altas y filas que cambiaron de posición
+        for (T nuevo : altas) {
+            if (colocados.contains(clave.apply(nuevo))) {
+                continue;
+            }
+            int posicion = posicionOrdenada(pagina, nuevo, orden);
+            pagina.add(posicion, nuevo);
+            size++;
+            nextAdd(inicio + posicion, inicio + posicion + 1);
+        }
+        
+        ventana.put(numero, pagina);
+        return inicio + pagina.size();
+    }
+    
+    /**
+     * Fusiona una página fuera de la ventana a partir de sus claves; devuelve el índice donde empieza la siguiente
+     */
+    private int fusionarPaginaFuera(int numero, int tamanoAnterior, List<T> altas, Map<Object, T> pendientes,
+                                    Map<Object, Integer> destinos, Collection<?> quitados) {
+        Set<Object> anteriores = clavesFuera.get(numero);
+        Set<Object> claves = new HashSet<>();
+        boolean cambio = false;
+        
+        for (Object k : anteriores) {
+            if (pendientes.containsKey(k)) {
+                cambio = true;
+                if (destinos.get(k) == numero) {
+                    claves.add(k);
+                }
+            } else if (quitados.contains(k)) {
+                cambio = true;
+            } else {
+                claves.add(k);
+            }
+        }
+        for (T nuevo : altas) {
+            cambio |= claves.add(clave.apply(nuevo));
+        }
+        
+        int inicio = inicios.get(numero);
+        if (cambio) {
+            clavesFuera.put(numero, claves);
+            size += claves.size() - tamanoAnterior;
+            nextReplace(inicio, inicio + claves.size(), Collections.nCopies(tamanoAnterior, null));
+        }
+        return inicio + claves.size();
+    }
+    
+    /**
+     * Página a la que pertenece la fila según los bordes, o -1 si va después de la última
+     * cargada y quedan páginas (llegará con ellas)
+     */
+    private int paginaPara(T fila, Comparator<T> orden) {
+        // La última página no tiene límite si ya no quedan más
+        int limite = hayMas() ? tokens.size() : tokens.size() - 1;
+        int bajo = 0;
+        int alto = limite;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            T borde = bordes.get(medio);
+            // Un borde null (páginas iniciales vacías) va antes de cualquier fila
+            if (borde != null && orden.compare(fila, borde) <= 0) {
+                alto = medio;
+            } else {
+                bajo = medio + 1;
+            }
+        }
+        return bajo < tokens.size() ? bajo : -1;
+    }
+    
+    /**
+     * Índice de la primera fila en memoria que cumple la condición, o -1 (no carga páginas)
+     */
+    public int indiceCargado(Predicate<T> condicion) {
+        for (int numero = 0; numero < tokens.size(); numero++) {
+            List<T> pagina = ventana.get(numero);
+            if (pagina == null) {
+                continue;
+            }
+            for (int i = 0; i < pagina.size(); i++) {
+                if (condicion.test(pagina.get(i))) {
+                    return inicios.get(numero) + i;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Posición dentro de la página de la primera fila que va después de la fila dada
+     */
+    private static <T> int posicionOrdenada(List<T> pagina, T fila, Comparator<T> orden) {
+        int bajo = 0;
+        int alto = pagina.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (orden.compare(pagina.get(medio), fila) <= 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo2.utils;
+
+import com.example.demo2.database.ConsultaCancelable;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Búsqueda asíncrona para los campos de filtro de las pantallas de gestión.
+ *
+ * - solicitar() espera a que el usuario deje de escribir (debounce) antes de consultar;
+ *   escribir un nombre completo genera una sola consulta.
+ * - La consulta corre fuera del hilo de JavaFX.
+ * - Una búsqueda nueva cancela la anterior, también en la base de datos
+ *   (ConsultaCancelable llama a Statement.cancel()).
+ * - Solo se publica el resultado de la última búsqueda pedida, en el hilo de JavaFX.
+ *
+ * Los métodos públicos se llaman desde el hilo de JavaFX.
+ */
+public class SearchPipeline<C, R> {
+    
+    /**
+     * Consulta a ejecutar con los criterios pedidos; debe registrar su Statement en la cancelación
+     */
+    @FunctionalInterface
+    public interface Consulta<C, R> {
+        R ejecutar(C criterios, ConsultaCancelable cancelacion) throws SQLException;
+    }
+    
+    public static final Duration ESPERA_POR_DEFECTO = Duration.millis(300);
+    
+    // Compartido por todas las pantallas; dos hilos para que una consulta cancelada no retrase la siguiente
+    private static final ExecutorService BUSQUEDAS = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "search-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final Consulta<C, R> consulta;
+    private final Consumer<R> alTerminar;
+    private final Consumer<SQLException> alFallar;
+    private final PauseTransition espera;
+    
+    private C criteriosPendientes;
+    private long generacion = 0;                // Número de la última búsqueda pedida
+    private ConsultaCancelable enCurso;
+    
+    public SearchPipeline(Duration espera, Consulta<C, R> consulta,
+                          Consumer<R> alTerminar, Consumer<SQLException> alFallar) {
+        this.consulta = consulta;
+        this.alTerminar = alTerminar;
+        this.alFallar = alFallar;
+        this.espera = new PauseTransition(espera);
+        this.espera.setOnFinished(e -> ejecutarAhora(criteriosPendientes));
+    }
+    
+    /**
+     * Programa una búsqueda; si llega otra antes de que pase la espera, solo se ejecuta la última
+     */
+    public void solicitar(C criterios) {
+        criteriosPendientes = criterios;
+        espera.playFromStart();
+    }
+    
+    /**
+     * Ejecuta la búsqueda sin esperar (botón buscar, carga inicial, refrescar)
+     */
+    public void ejecutarAhora(C criterios) {
+        espera.stop();
+        cancelarEnCurso();
+        
+        long numero = ++generacion;
+        ConsultaCancelable cancelacion = new ConsultaCancelable();
+        enCurso = cancelacion;
+        
+        BUSQUEDAS.submit(() -> {
+            try {
+                R resultado = consulta.ejecutar(criterios, cancelacion);
+                Platform.runLater(() -> publicar(numero, resultado));
+            } catch (SQLException e) {
+                // Las canceladas terminan con error (ORA-01013) y no se informan
+                if (!cancelacion.isCancelada()) {
+                    Platform.runLater(() -> {
+                        if (numero == generacion) {
+                            enCurso = null;
+                            alFallar.accept(e);
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error en búsqueda: " + e.getMessage());
+                Platform.runLater(() -> {
+                    if (numero == generacion) {
+                        enCurso = null;
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Descarta la búsqueda programada y cancela la que esté en curso
+     */
+    public void cancelar() {
+        espera.stop();
+        generacion++;
+        cancelarEnCurso();
+    }
+    
+    /**
+     * Indica si hay una búsqueda programada o ejecutándose
+     */
+    public boolean isOcupado() {
+        return enCurso != null || espera.getStatus() == Animation.Status.RUNNING;
+    }
+    
+    private void publicar(long numero, R resultado) {
+        if (numero != generacion) {
+            return;     // Llegó tarde: ya se pidió otra búsqueda
+        }
+        enCurso = null;
+        alTerminar.accept(resultado);
+    }
+    
+    private void cancelarEnCurso() {
+        if (enCurso != null) {
+            enCurso.cancelar();
+            enCurso = null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo2.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de texto para búsquedas en español.
+ *
+ * "Plegar" un texto es pasarlo a minúsculas y quitarle las tildes, la diéresis y
+ * la virgulilla de la ñ, así "García", "GARCIA" y "garcia" tienen la misma clave.
+ * Las claves de cada entidad se calculan una sola vez al leerla de la base de datos
+ * (ver Usuario.getClaveBusqueda); al filtrar solo se pliega la consulta y cada fila
+ * se compara con coincide(), que no crea objetos.
+ *
+ * Para las búsquedas en Oracle, expresionSql() produce la expresión equivalente
+ * (en mayúsculas) que usan los índices por función y plegarParaSql() el valor a comparar.
+ * Ambos lados usan la misma tabla de letras con marca (CON_MARCA / SIN_MARCA), así una
+ * letra que Oracle no pliega tampoco se pliega en Java y las dos claves siempre coinciden.
+ */
+public final class TextNormalizer {
+    
+    // Separa los campos dentro de una clave para que una búsqueda no una el final de uno con el inicio del siguiente
+    private static final char SEPARADOR = '\u001F';
+    
+    // Letras latinas con marca (en mayúsculas) y su letra base en la misma posición
+    private static final String CON_MARCA = "ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝ";
+    private static final String SIN_MARCA = "AAAAAACEEEEIIIINOOOOOUUUUY";
+    
+    // Minúscula plegada de cada carácter Latin-1 (0 = no se pliega, solo se pasa a minúsculas)
+    private static final char[] PLEGADO = new char[0x100];
+    
+    static {
+        for (int i = 0; i < CON_MARCA.length(); i++) {
+            char base = Character.toLowerCase(SIN_MARCA.charAt(i));
+            char marcada = CON_MARCA.charAt(i);
+            PLEGADO[marcada] = base;
+            PLEGADO[Character.toLowerCase(marcada)] = base;
+        }
+    }
+    
+    private TextNormalizer() {}
+    
+    /**
+     * Pasa el texto a minúsculas sin marcas diacríticas (null se trata como texto vacío).
+     * Si ya está plegado devuelve la misma instancia.
+     */
+    public static String plegar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        
+        boolean ascii = true;
+        boolean minusculas = true;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+                break;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                minusculas = false;
+            }
+        }
+        
+        if (ascii) {
+            return minusculas ? texto : texto.toLowerCase(Locale.ROOT);
+        }
+        
+        // Las marcas escritas como caracteres combinados se unen a su letra antes de buscarla en la tabla
+        String compuesto = Normalizer.normalize(texto, Normalizer.Form.NFC);
+        StringBuilder sb = new StringBuilder(compuesto.length());
+        for (int i = 0; i < compuesto.length(); i++) {
+            char c = compuesto.charAt(i);
+            char plegado = c < PLEGADO.length ? PLEGADO[c] : 0;
+            sb.append(plegado != 0 ? plegado : Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Arma la clave de búsqueda de una entidad a partir de sus campos de texto
+     */
+    public static String claveBusqueda(String... campos) {
+        StringBuilder sb = new StringBuilder();
+        for (String campo : campos) {
+            if (sb.length() > 0) {
+                sb.append(SEPARADOR);
+            }
+            sb.append(plegar(campo));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Indica si la clave contiene la consulta ya plegada (consulta vacía = coincide siempre)
+     */
+    public static boolean coincide(String clave, String consultaPlegada) {
+        return consultaPlegada.isEmpty() || (clave != null && clave.contains(consultaPlegada));
+    }
+    
+    /**
+     * Expresión SQL que pliega una columna en mayúsculas (la misma debe usarse en el índice)
+     */
+    public static String expresionSql(String columna) {
+        return "TRANSLATE(UPPER(" + columna + "), '" + CON_MARCA + "', '" + SIN_MARCA + "')";
+    }
+    
+    /**
+     * Valor a comparar con expresionSql(): el texto plegado en mayúsculas
+     */
+    public static String plegarParaSql(String texto) {
+        return plegar(texto).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Escapa los comodines de LIKE para usar el texto literal con ESCAPE '\'
+     */
+    public static String escaparLike(String texto) {
+        return texto
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+    }
+}
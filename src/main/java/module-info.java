@@ -5,6 +5,7 @@ module com.example.bibliosystem {
     
     // Oracle Cloud Database modules
     requires java.sql;
+    requires com.oracle.database.ucp;
     
     // Security
     requires jbcrypt;
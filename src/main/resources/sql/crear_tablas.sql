@@ -58,6 +58,9 @@ CREATE INDEX idx_lectores_codigo ON lectores(codigo_lector);
 CREATE INDEX idx_lectores_documento ON lectores(numero_documento);
 CREATE INDEX idx_lectores_email ON lectores(email);
 CREATE INDEX idx_lectores_estado ON lectores(estado);
+CREATE INDEX idx_lectores_nombre_bin ON lectores(NLSSORT(apellido, 'NLS_SORT=BINARY'), NLSSORT(nombre, 'NLS_SORT=BINARY'), id);
+CREATE INDEX idx_lectores_nombre_pl2 ON lectores(TRANSLATE(UPPER(nombre || ' ' || apellido), 'ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝ', 'AAAAAACEEEEIIIINOOOOOUUUUY'));
+CREATE INDEX idx_lectores_apellido_pl2 ON lectores(TRANSLATE(UPPER(apellido), 'ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝ', 'AAAAAACEEEEIIIINOOOOOUUUUY'));
 
 -- Crear tabla de libros
 CREATE TABLE libros (
@@ -81,6 +84,9 @@ CREATE INDEX idx_libros_isbn ON libros(isbn);
 CREATE INDEX idx_libros_titulo ON libros(titulo);
 CREATE INDEX idx_libros_autor ON libros(autor);
 CREATE INDEX idx_libros_categoria ON libros(categoria);
+CREATE INDEX idx_libros_titulo_bin ON libros(NLSSORT(titulo, 'NLS_SORT=BINARY'), id);
+CREATE INDEX idx_libros_titulo_pl2 ON libros(TRANSLATE(UPPER(titulo), 'ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝ', 'AAAAAACEEEEIIIINOOOOOUUUUY'));
+CREATE INDEX idx_libros_isbn_up ON libros(UPPER(isbn));
 
 -- Crear tabla de préstamos
 CREATE TABLE prestamos (
@@ -100,6 +106,7 @@ CREATE TABLE prestamos (
     observaciones_devolucion VARCHAR2(500),
     multa NUMBER(10,2) DEFAULT 0,
     multa_pagada NUMBER(1) DEFAULT 0 CHECK (multa_pagada IN (0, 1)),
+    fecha_modificacion TIMESTAMP DEFAULT SYSTIMESTAMP,
     CONSTRAINT fk_prestamo_libro FOREIGN KEY (libro_id) REFERENCES libros(id),
     CONSTRAINT fk_prestamo_lector FOREIGN KEY (lector_id) REFERENCES lectores(id),
     CONSTRAINT fk_prestamo_bibliotecario_p FOREIGN KEY (bibliotecario_prestamo_id) REFERENCES usuarios(id),
@@ -112,6 +119,78 @@ CREATE INDEX idx_prestamos_libro ON prestamos(libro_id);
 CREATE INDEX idx_prestamos_lector ON prestamos(lector_id);
 CREATE INDEX idx_prestamos_estado ON prestamos(estado);
 CREATE INDEX idx_prestamos_fecha_prestamo ON prestamos(fecha_prestamo);
+CREATE INDEX idx_prestamos_fecha_id ON prestamos(fecha_prestamo, id);
+CREATE INDEX idx_prestamos_estado_fecha ON prestamos(estado, fecha_prestamo, id);
+CREATE INDEX idx_prestamos_codigo_up ON prestamos(UPPER(codigo_prestamo));
+CREATE INDEX idx_prestamos_fecha_mod ON prestamos(fecha_modificacion);
+
+-- Registro de cambios para invalidar las cachés de los demás equipos
+CREATE TABLE cambios_entidades (
+    id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entidad VARCHAR2(30) NOT NULL,
+    entidad_id VARCHAR2(100),
+    operacion VARCHAR2(20) NOT NULL,
+    origen VARCHAR2(36),
+    fecha_cambio TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_cambios_fecha ON cambios_entidades(fecha_cambio);
+
+-- Tareas de mantenimiento programadas: última ejecución y equipo que la tiene tomada
+CREATE TABLE tareas_mantenimiento (
+    nombre VARCHAR2(50) PRIMARY KEY,
+    propietario VARCHAR2(36),
+    lease_hasta TIMESTAMP,
+    ultima_ejecucion TIMESTAMP,
+    ultima_duracion_ms NUMBER,
+    ultimas_filas NUMBER,
+    ultimo_error VARCHAR2(500),
+    ejecuciones NUMBER DEFAULT 0 NOT NULL
+);
+
+-- Libro mayor de multas: cargos, pagos y condonaciones (solo se agregan filas)
+CREATE TABLE movimientos_multas (
+    id NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    prestamo_id NUMBER NOT NULL,
+    lector_id NUMBER NOT NULL,
+    tipo VARCHAR2(20) NOT NULL CHECK (tipo IN ('CARGO', 'PAGO', 'CONDONACION')),
+    monto NUMBER(10,2) NOT NULL,
+    usuario_id NUMBER,
+    observaciones VARCHAR2(500),
+    fecha TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_mov_multas_prestamo ON movimientos_multas(prestamo_id);
+CREATE INDEX idx_mov_multas_lector ON movimientos_multas(lector_id, fecha);
+
+-- Acumulados del libro mayor por lector y del sistema
+CREATE TABLE saldos_multas (
+    lector_id NUMBER PRIMARY KEY,
+    cargado NUMBER(12,2) DEFAULT 0 NOT NULL,
+    pagado NUMBER(12,2) DEFAULT 0 NOT NULL,
+    condonado NUMBER(12,2) DEFAULT 0 NOT NULL,
+    movimientos NUMBER DEFAULT 0 NOT NULL,
+    fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+);
+
+CREATE TABLE resumen_multas (
+    id NUMBER PRIMARY KEY CHECK (id = 1),
+    cargado NUMBER(14,2) DEFAULT 0 NOT NULL,
+    pagado NUMBER(14,2) DEFAULT 0 NOT NULL,
+    condonado NUMBER(14,2) DEFAULT 0 NOT NULL,
+    movimientos NUMBER DEFAULT 0 NOT NULL,
+    fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+);
+
+INSERT INTO resumen_multas (id) VALUES (1);
+
+-- Punto de control de los procesos por rangos (recálculo de multas) para reanudarlos
+CREATE TABLE puntos_control (
+    proceso VARCHAR2(50) PRIMARY KEY,
+    clave VARCHAR2(200),
+    ultimo_id NUMBER,
+    fecha_actualizacion TIMESTAMP DEFAULT SYSTIMESTAMP
+);
 
 -- Crear secuencias para IDs (opcional, ya que usamos IDENTITY)
 -- CREATE SEQUENCE seq_usuarios START WITH 1 INCREMENT BY 1;
@@ -0,0 +1,83 @@
+package com.example.demo2.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de EntityCache con un cargador que cuenta cuántas veces se lee cada clave
+ */
+class EntityCacheTest {
+    
+    private final Map<String, Integer> lecturas = new HashMap<>();
+    
+    private String cargar(String clave) {
+        lecturas.merge(clave, 1, Integer::sum);
+        return "valor de " + clave;
+    }
+    
+    private int lecturasDe(String clave) {
+        return lecturas.getOrDefault(clave, 0);
+    }
+    
+    @Test
+    void segundaLecturaSaleDeLaCache() throws Exception {
+        EntityCache<String, String> cache = new EntityCache<>("prueba", 10, 60);
+        
+        assertEquals("valor de a", cache.obtener("a", this::cargar));
+        assertEquals("valor de a", cache.obtener("a", this::cargar));
+        
+        assertEquals(1, lecturasDe("a"));
+        EntityCache.Estadisticas estadisticas = cache.getEstadisticas();
+        assertEquals(1, estadisticas.aciertos);
+        assertEquals(1, estadisticas.fallos);
+    }
+    
+    @Test
+    void invalidacionDuranteLaCargaNoGuardaElValor() throws Exception {
+        EntityCache<String, String> cache = new EntityCache<>("prueba", 10, 60);
+        
+        // Otro hilo modifica la entidad mientras se lee: lo leído puede ser anterior al cambio
+        String leido = cache.obtener("a", clave -> {
+            String valor = cargar(clave);
+            cache.invalidar(clave);
+            return valor;
+        });
+        assertEquals("valor de a", leido);
+        
+        cache.obtener("a", this::cargar);
+        assertEquals(2, lecturasDe("a"), "el valor leído antes de la invalidación no debe quedar en caché");
+        assertEquals(1, cache.getEstadisticas().entradas);
+    }
+    
+    @Test
+    void desalojaLaEntradaMenosFrecuenteDeLaMuestra() throws Exception {
+        EntityCache<String, String> cache = new EntityCache<>("prueba", 3, 60);
+        
+        // "a" es la usada hace más tiempo pero la más pedida
+        cache.obtener("a", this::cargar);
+        for (int i = 0; i < 3; i++) {
+            cache.obtener("a", this::cargar);
+        }
+        cache.obtener("b", this::cargar);
+        cache.obtener("c", this::cargar);
+        
+        // Al llenarse se descarta "b": la primera con menos accesos entre las más antiguas
+        cache.obtener("d", this::cargar);
+        assertEquals(1, cache.getEstadisticas().desalojos);
+        assertEquals(3, cache.getEstadisticas().entradas);
+        
+        cache.obtener("a", this::cargar);
+        cache.obtener("c", this::cargar);
+        cache.obtener("d", this::cargar);
+        assertEquals(1, lecturasDe("a"));
+        assertEquals(1, lecturasDe("c"));
+        assertEquals(1, lecturasDe("d"));
+        
+        cache.obtener("b", this::cargar);
+        assertEquals(2, lecturasDe("b"));
+    }
+}
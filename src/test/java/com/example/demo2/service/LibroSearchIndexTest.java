@@ -0,0 +1,63 @@
+package com.example.demo2.service;
+
+import com.example.demo2.models.Libro;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del orden de relevancia de LibroSearchIndex
+ */
+class LibroSearchIndexTest {
+    
+    private static final long EXACTO = 1;
+    private static final long PREFIJO = 2;
+    private static final long PREFIJO_PALABRA = 3;
+    private static final long SUBCADENA = 4;
+    private static final long DADO_DE_BAJA = 5;
+    
+    private final LibroSearchIndex indice = LibroSearchIndex.getInstance();
+    
+    private static Libro libro(long id, String titulo, String autor, String categoria) {
+        Libro libro = new Libro("978-0-" + id, titulo, autor, "Editorial", 2000, categoria, 1);
+        libro.setId(id);
+        return libro;
+    }
+    
+    @BeforeEach
+    void construirIndice() {
+        // Se insertan en un orden distinto al esperado para que no salgan así por casualidad
+        indice.reconstruir(List.of(
+            libro(SUBCADENA, "Contrarrayuela", "Autor Uno", "Novela"),
+            libro(DADO_DE_BAJA, "Rayuela", "Autor Dos", "Novela"),
+            libro(PREFIJO_PALABRA, "La rayuela de siempre", "Autor Tres", "Novela"),
+            libro(EXACTO, "Rayuela", "Julio Cortázar", "Novela"),
+            libro(PREFIJO, "Rayuelas del sur", "Autor Cuatro", "Novela")
+        ));
+        indice.desactivar(DADO_DE_BAJA);
+    }
+    
+    @Test
+    void exactoAntesQuePrefijoYPrefijoAntesQueSubcadena() {
+        List<Long> ids = indice.buscar("Rayuela", "titulo", 10);
+        
+        assertEquals(List.of(EXACTO, PREFIJO, PREFIJO_PALABRA, SUBCADENA, DADO_DE_BAJA), ids);
+    }
+    
+    @Test
+    void dadoDeBajaVaAlFinalAunqueCoincidaMejor() {
+        // El dado de baja coincide exactamente; los activos solo por prefijo o subcadena
+        indice.eliminar(EXACTO);
+        List<Long> ids = indice.buscar("rayuela", null, 10);
+        
+        assertEquals(List.of(PREFIJO, PREFIJO_PALABRA, SUBCADENA, DADO_DE_BAJA), ids);
+    }
+    
+    @Test
+    void buscaSinTildesNiMayusculas() {
+        assertEquals(List.of(EXACTO), indice.buscar("CORTAZAR", "autor", 10));
+    }
+}
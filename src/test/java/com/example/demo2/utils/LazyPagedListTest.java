@@ -0,0 +1,268 @@
+package com.example.demo2.utils;
+
+import com.example.demo2.database.Pagina;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de LazyPagedList sobre una "tabla" en memoria paginada por clave (valor, id),
+ * con las consultas en segundo plano encoladas para ejecutarlas cuando la prueba decide.
+ */
+class LazyPagedListTest {
+    
+    private static final int TAMANO_PAGINA = 3;
+    private static final int MAX_PAGINAS = 2;
+    private static final Comparator<Fila> ORDEN = Comparator.<Fila>comparingInt(f -> f.valor).thenComparingLong(f -> f.id);
+    
+    /**
+     * Fila de prueba: id es la clave y valor el orden
+     */
+    private static final class Fila {
+        final long id;
+        final int valor;
+        
+        Fila(long id, int valor) {
+            this.id = id;
+            this.valor = valor;
+        }
+        
+        @Override
+        public String toString() {
+            return id + ":" + valor;
+        }
+    }
+    
+    private final List<Fila> tabla = new ArrayList<>();
+    private final Queue<Runnable> consultas = new ArrayDeque<>();
+    private int lecturas;
+    private boolean fallar;
+    
+    @BeforeEach
+    void crearTabla() {
+        for (int id = 1; id <= 15; id++) {
+            tabla.add(new Fila(id, id * 10));
+        }
+    }
+    
+    private Pagina<Fila> cargar(String token, int tamano) throws SQLException {
+        lecturas++;
+        if (fallar) {
+            throw new SQLException("sin conexión");
+        }
+        List<Fila> ordenadas = new ArrayList<>(tabla);
+        ordenadas.sort(ORDEN);
+        
+        List<Fila> elementos = new ArrayList<>();
+        int i = 0;
+        if (token != null) {
+            String[] partes = token.split(":");
+            Fila desde = new Fila(Long.parseLong(partes[0]), Integer.parseInt(partes[1]));
+            while (i < ordenadas.size() && ORDEN.compare(ordenadas.get(i), desde) <= 0) {
+                i++;
+            }
+        }
+        while (i < ordenadas.size() && elementos.size() < tamano) {
+            elementos.add(ordenadas.get(i++));
+        }
+        String siguiente = i < ordenadas.size() ? elementos.get(elementos.size() - 1).toString() : null;
+        return new Pagina<>(elementos, siguiente);
+    }
+    
+    private LazyPagedList<Fila> crearLista() throws SQLException {
+        return new LazyPagedList<>(this::cargar, f -> f.id, cargar(null, TAMANO_PAGINA), TAMANO_PAGINA, MAX_PAGINAS,
+                                   consultas::add, Runnable::run);
+    }
+    
+    private void ejecutarConsultas() {
+        while (!consultas.isEmpty()) {
+            consultas.poll().run();
+        }
+    }
+    
+    /**
+     * Recorre la lista como lo haría la tabla al desplazarse hasta el final
+     */
+    private List<Fila> recorrer(LazyPagedList<Fila> lista) {
+        List<Fila> filas = new ArrayList<>();
+        for (int i = 0; i < lista.size(); i++) {
+            Fila fila = lista.get(i);
+            if (fila == null) {
+                ejecutarConsultas();
+                fila = lista.get(i);
+            }
+            assertNotNull(fila, "fila " + i + " sin cargar");
+            filas.add(fila);
+            ejecutarConsultas();
+        }
+        return filas;
+    }
+    
+    private List<Fila> tablaOrdenada() {
+        List<Fila> ordenadas = new ArrayList<>(tabla);
+        ordenadas.sort(ORDEN);
+        return ordenadas;
+    }
+    
+    private static Fila buscar(List<Fila> filas, long id) {
+        return filas.stream().filter(f -> f.id == id).findFirst().orElseThrow();
+    }
+    
+    @Test
+    void paginaFueraDeLaVentanaSeEntregaVaciaHastaQueLlega() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        assertEquals(15, lista.size());
+        assertFalse(lista.hayMas());
+        
+        // Con dos páginas en memoria, la primera ya salió de la ventana
+        assertNull(lista.get(0));
+        assertEquals(1, consultas.size());
+        lista.get(1);
+        assertEquals(1, consultas.size(), "la misma página no se pide dos veces");
+        
+        ejecutarConsultas();
+        assertEquals(1, lista.get(0).id);
+        assertEquals(3, lista.get(2).id);
+    }
+    
+    @Test
+    void paginaQueCambioVuelveACargarLaListaSinRepetirFilas() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        
+        // Otro equipo borra una fila de la primera página sin que la lista se entere
+        tabla.removeIf(f -> f.id == 2);
+        assertNull(lista.get(0));
+        ejecutarConsultas();
+        
+        // La página ya no coincide: la lista vuelve a empezar desde la primera página actual
+        assertEquals(TAMANO_PAGINA, lista.size());
+        assertEquals(List.of(1L, 3L, 4L), List.of(lista.get(0).id, lista.get(1).id, lista.get(2).id));
+        assertEquals(tablaOrdenada().toString(), recorrer(lista).toString());
+    }
+    
+    @Test
+    void errorAlRecargarNoInventaFilasYSeReintenta() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        
+        fallar = true;
+        assertNull(lista.get(0));
+        ejecutarConsultas();
+        assertNull(lista.get(0));
+        assertEquals(1, consultas.size(), "se vuelve a pedir después del error");
+        
+        fallar = false;
+        ejecutarConsultas();
+        assertEquals(1, lista.get(0).id);
+        assertEquals(15, lista.size());
+    }
+    
+    @Test
+    void fusionarDesplazaLasPaginasFueraDeLaVentana() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        Fila ultimaAntes = lista.get(14);
+        
+        // Baja en la página 0 y alta en la página 1, ambas fuera de la ventana
+        tabla.removeIf(f -> f.id == 2);
+        Fila nueva = new Fila(100, 45);
+        tabla.add(nueva);
+        Fila otraNueva = new Fila(101, 55);
+        tabla.add(otraNueva);
+        assertTrue(lista.fusionar(List.of(nueva, otraNueva), Set.of(2L), ORDEN));
+        
+        assertEquals(16, lista.size());
+        // Las páginas en memoria siguen sin consultar y en su nuevo índice
+        int lecturasAntes = lecturas;
+        assertEquals(ultimaAntes, lista.get(15));
+        assertEquals(lecturasAntes, lecturas);
+        assertTrue(consultas.isEmpty());
+        
+        assertEquals(tablaOrdenada().toString(), recorrer(lista).toString());
+    }
+    
+    @Test
+    void fusionarMueveUnaFilaDesdeUnaPaginaFueraDeLaVentana() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        
+        // La fila 1 (página 0, fuera de la ventana) pasa al final del orden
+        tabla.removeIf(f -> f.id == 1);
+        Fila movida = new Fila(1, 1000);
+        tabla.add(movida);
+        assertTrue(lista.fusionar(List.of(movida), Set.of(), ORDEN));
+        
+        assertEquals(15, lista.size());
+        assertEquals(movida, lista.get(14));
+        assertEquals(tablaOrdenada().toString(), recorrer(lista).toString());
+    }
+    
+    @Test
+    void fusionarModificaEnSuLugarSinCambiarElTamano() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        recorrer(lista);
+        
+        // Misma clave y misma posición en una página fuera de la ventana y en una en memoria
+        Fila fueraDeVentana = new Fila(2, 20);
+        Fila enMemoria = new Fila(14, 140);
+        tabla.replaceAll(f -> f.id == 2 ? fueraDeVentana : f.id == 14 ? enMemoria : f);
+        assertTrue(lista.fusionar(List.of(fueraDeVentana, enMemoria), Set.of(), ORDEN));
+        
+        assertEquals(15, lista.size());
+        assertEquals(enMemoria, lista.get(13));
+        List<Fila> filas = recorrer(lista);
+        assertEquals(fueraDeVentana, buscar(filas, 2));
+        assertEquals(tablaOrdenada().toString(), filas.toString());
+    }
+    
+    @Test
+    void altaDespuesDeLoCargadoLlegaConLaPaginaSiguiente() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        assertTrue(lista.hayMas());
+        
+        Fila nueva = new Fila(200, 145);
+        tabla.add(nueva);
+        assertTrue(lista.fusionar(List.of(nueva), Set.of(), ORDEN));
+        assertEquals(TAMANO_PAGINA, lista.size());
+        
+        List<Fila> filas = recorrer(lista);
+        assertEquals(16, filas.size());
+        assertEquals(tablaOrdenada().toString(), filas.toString());
+    }
+    
+    @Test
+    void paginaQueQuedaVaciaPideLaSiguiente() throws SQLException {
+        LazyPagedList<Fila> lista = crearLista();
+        
+        // Las tres filas de la única página cargada se mueven más allá de lo cargado
+        List<Fila> movidas = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            long buscado = id;
+            tabla.removeIf(f -> f.id == buscado);
+            Fila movida = new Fila(id, 1000 + (int) id);
+            tabla.add(movida);
+            movidas.add(movida);
+        }
+        assertTrue(lista.fusionar(movidas, Set.of(), ORDEN));
+        assertEquals(0, lista.size());
+        assertEquals(1, consultas.size(), "sin filas visibles la lista pide la página siguiente");
+        
+        ejecutarConsultas();
+        assertEquals(tablaOrdenada().toString(), recorrer(lista).toString());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo2.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de TextNormalizer: el plegado en Java y la expresión que se evalúa en Oracle
+ * deben dar la misma clave para cualquier texto.
+ */
+class TextNormalizerTest {
+    
+    private static final Pattern TRANSLATE = Pattern.compile("TRANSLATE\\(UPPER\\(columna\\), '(.*)', '(.*)'\\)");
+    
+    /**
+     * Lo que calcula Oracle con expresionSql(): UPPER y luego TRANSLATE con las letras de la expresión
+     */
+    private static String evaluarSql(String texto) {
+        Matcher m = TRANSLATE.matcher(TextNormalizer.expresionSql("columna"));
+        assertTrue(m.matches(), "expresionSql cambió de forma");
+        String desde = m.group(1);
+        String hacia = m.group(2);
+        assertEquals(desde.length(), hacia.length());
+        
+        String mayusculas = texto.toUpperCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(mayusculas.length());
+        for (int i = 0; i < mayusculas.length(); i++) {
+            char c = mayusculas.charAt(i);
+            int posicion = desde.indexOf(c);
+            sb.append(posicion >= 0 ? hacia.charAt(posicion) : c);
+        }
+        return sb.toString();
+    }
+    
+    @Test
+    void plegarQuitaTildesDieresisYEnie() {
+        assertEquals("garcia nunez pinguino", TextNormalizer.plegar("García NÚÑEZ Pingüino"));
+        assertEquals("cafe", TextNormalizer.plegar("café"));
+        assertEquals("", TextNormalizer.plegar(null));
+    }
+    
+    @Test
+    void plegarDevuelveLaMismaInstanciaSiYaEstaPlegado() {
+        String texto = "garcia";
+        assertSame(texto, TextNormalizer.plegar(texto));
+    }
+    
+    @Test
+    void javaYOracleCoincidenEnCadaCaracterLatino() {
+        for (char c = 0x20; c <= 0xFF; c++) {
+            String texto = String.valueOf(c);
+            if (texto.toUpperCase(Locale.ROOT).length() != 1) {
+                continue;   // ß: su mayúscula son dos letras y depende de la base de datos
+            }
+            assertEquals(evaluarSql(texto), TextNormalizer.plegarParaSql(texto),
+                         "carácter U+" + Integer.toHexString(c));
+        }
+    }
+    
+    @Test
+    void javaYOracleCoincidenEnTextosEnEspanol() {
+        String[] textos = {"Peña", "Cien años de soledad", "ÁRBOL GENEALÓGICO", "Ñandú", "Gómez-Müller", "Çà et là"};
+        for (String texto : textos) {
+            assertEquals(evaluarSql(texto), TextNormalizer.plegarParaSql(texto), texto);
+        }
+    }
+}